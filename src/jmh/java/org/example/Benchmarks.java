@@ -0,0 +1,32 @@
+package org.example;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of target/benchmarks.jar.
+ *
+ * Accepts the usual JMH command line (benchmark regex, -wi, -i, -f, ...) and
+ * always adds the gc profiler, so every run reports allocation rate
+ * (gc.alloc.rate.norm) next to throughput and the sample-time percentiles.
+ * Results are also written to target/jmh-result.json for comparing runs.
+ *
+ * Mongo-backed benchmarks need a mongod, see -Dbench.mongo in BenchData.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each PaymentStrategy.process implementation on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentStrategyBenchmark {
+
+    @Param({"CARD", "CASH", "ONLINE", "WALLET"})
+    public String method;
+
+    private PaymentStrategy strategy;
+    private Payment payment;
+
+    @Setup
+    public void setUp() {
+        strategy = switch (method) {
+            case "CARD" -> new CardPaymentStrategy();
+            case "CASH" -> new CashPaymentStrategy();
+            case "ONLINE" -> new OnlinePaymentStrategy();
+            case "WALLET" -> new WalletPaymentStrategy();
+            default -> throw new IllegalArgumentException(method);
+        };
+        payment = new Payment("P-1", "jane.doe", "INV-1", 49.0, "EUR", method,
+                "PENDING", "REF-1", "Provider", "2026-10-17");
+    }
+
+    @Benchmark
+    public Payment process() {
+        return strategy.process(payment);
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.repo;
+
+import org.bson.Document;
+import org.example.model.Appointment;
+import org.example.model.WorkoutPlan;
+import org.example.model.member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hand-written Document converters of the repositories.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+
+    private member member;
+    private Document memberDoc;
+    private Appointment appointment;
+    private Document appointmentDoc;
+    private WorkoutPlan workout;
+    private Document workoutDoc;
+
+    @Setup
+    public void setUp() {
+        member = new member("secret", "jane.doe");
+        member.age = 31;
+        member.gender = "F";
+        member.address = "12 High Street";
+        member.attendance = 148;
+        member.setPhone("+44 7700 900123");
+        member.setMembershipType("GOLD");
+        member.setMembershipStart(LocalDate.of(2026, 1, 1));
+        member.setMembershipEnd(LocalDate.of(2026, 12, 31));
+        memberDoc = ReceptionistRepository.memberToDoc(member);
+
+        appointment = new Appointment();
+        appointment.setAppointmentName("AP-1");
+        appointment.setMemberId("jane.doe");
+        appointment.setTrainerId("coach.sam");
+        appointment.setDate(LocalDate.of(2026, 10, 17));
+        appointment.setTime(LocalTime.of(18, 30));
+        appointment.setStatus("scheduled");
+        appointment.setNote("knee rehab");
+        appointmentDoc = ReceptionistRepository.appointmentToDoc(appointment);
+
+        workout = new WorkoutPlan();
+        workout.setPlanId("W-1");
+        workout.setTrainerId("coach.sam");
+        workout.setPlanName("Knee-friendly hypertrophy");
+        workout.setPlanDetails("3x12 leg press, 3x15 hamstring curl, 3x20 step-ups, 10 min bike");
+        workoutDoc = TrainerRepository.workoutToDoc(workout);
+    }
+
+    @Benchmark
+    public Document memberToDoc() {
+        return ReceptionistRepository.memberToDoc(member);
+    }
+
+    @Benchmark
+    public member memberFromDoc() {
+        return ReceptionistRepository.memberFromDoc(memberDoc);
+    }
+
+    @Benchmark
+    public Document appointmentToDoc() {
+        return ReceptionistRepository.appointmentToDoc(appointment);
+    }
+
+    @Benchmark
+    public Appointment appointmentFromDoc() {
+        return ReceptionistRepository.appointmentFromDoc(appointmentDoc);
+    }
+
+    @Benchmark
+    public Document workoutToDoc() {
+        return TrainerRepository.workoutToDoc(workout);
+    }
+
+    @Benchmark
+    public WorkoutPlan workoutFromDoc() {
+        return TrainerRepository.workoutFromDoc(workoutDoc);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.repo;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.example.model.member;
+import org.example.model.users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserCodec against the old Gson path (toJson -> Document.parse on write,
+ * toJson -> fromJson on read). Both sides start or end at the BSON bytes the
+ * driver puts on the wire, so the numbers compare the full conversion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserCodecBenchmark {
+
+    private final UserCodec codec = new UserCodec();
+    private final DocumentCodec documentCodec = new DocumentCodec();
+    // the old mapping kept dates as ISO strings; java.time is closed to Gson's reflection anyway
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDate.class, new TypeAdapter<LocalDate>() {
+                @Override
+                public void write(JsonWriter out, LocalDate value) throws IOException {
+                    out.value(value.toString());
+                }
+
+                @Override
+                public LocalDate read(JsonReader in) throws IOException {
+                    return LocalDate.parse(in.nextString());
+                }
+            }.nullSafe())
+            .create();
+
+    private member sample;
+    private byte[] bson;
+
+    @Setup
+    public void setUp() {
+        sample = new member("secret", "jane.doe");
+        sample.age = 31;
+        sample.gender = "F";
+        sample.address = "12 High Street";
+        sample.attendance = 148;
+        sample.setPhone("+44 7700 900123");
+        sample.setMembershipType("GOLD");
+        sample.setMembershipStart(LocalDate.of(2026, 1, 1));
+        sample.setMembershipEnd(LocalDate.of(2026, 12, 31));
+
+        BasicOutputBuffer out = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(out), sample, EncoderContext.builder().build());
+        bson = out.toByteArray();
+    }
+
+    // -------------------- ENCODE --------------------
+
+    @Benchmark
+    public byte[] encodeCodec() {
+        BasicOutputBuffer out = new BasicOutputBuffer(512);
+        codec.encode(new BsonBinaryWriter(out), sample, EncoderContext.builder().build());
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeGson() {
+        Document doc = Document.parse(gson.toJson(sample));
+        BasicOutputBuffer out = new BasicOutputBuffer(512);
+        documentCodec.encode(new BsonBinaryWriter(out), doc, EncoderContext.builder().build());
+        return out.toByteArray();
+    }
+
+    // -------------------- DECODE --------------------
+
+    @Benchmark
+    public users decodeCodec() {
+        return codec.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)), DecoderContext.builder().build());
+    }
+
+    @Benchmark
+    public users decodeGson() {
+        Document doc = documentCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)), DecoderContext.builder().build());
+        return gson.fromJson(doc.toJson(), users.class);
+    }
+}
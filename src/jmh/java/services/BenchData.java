@@ -0,0 +1,68 @@
+package services;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import org.example.model.Appointment;
+import org.example.model.member;
+import org.example.repo.IndexManager;
+import org.example.repo.ReceptionistRepository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seeded throw-away database for the Mongo-backed benchmarks.
+ * The URI comes from -Dbench.mongo (default: a local mongod on 27017);
+ * the "gym_bench" database is dropped and rebuilt on every trial.
+ */
+final class BenchData implements AutoCloseable {
+
+    static final LocalDate TODAY = LocalDate.of(2026, 10, 17);
+
+    final MongoClient client;
+    final ReceptionistRepository receptionistRepo;
+    private final int members;
+
+    BenchData(int members, int appointmentDays, int appointmentsPerDay) {
+        this.members = members;
+        this.client = MongoClients.create(System.getProperty("bench.mongo", "mongodb://localhost:27017/"));
+
+        MongoDatabase db = client.getDatabase("gym_bench");
+        db.drop();
+
+        receptionistRepo = new ReceptionistRepository(db, "members", "attendance", "appointments", "invoices");
+        IndexManager.bootstrap(receptionistRepo);
+
+        ReceptionistService service = new ReceptionistService(receptionistRepo);
+        for (int i = 0; i < members; i++) {
+            service.createMember(new member("pw", "member-" + i));
+        }
+
+        // history before "today" so the day view has years of data to ignore
+        for (int d = 0; d < appointmentDays; d++) {
+            LocalDate date = TODAY.minusDays(d);
+            for (int a = 0; a < appointmentsPerDay; a++) {
+                Appointment ap = new Appointment();
+                // distinct members within a day and trainers 5h apart, so nothing double-books
+                ap.setMemberId("member-" + (d * appointmentsPerDay + a) % members);
+                ap.setTrainerId("trainer-" + (a % 20));
+                ap.setDate(date);
+                ap.setTime(LocalTime.of(6 + a % 15, (a * 15) % 60));
+                ap.setStatus("scheduled");
+                service.scheduleAppointment(ap);
+            }
+        }
+    }
+
+    String randomMember() {
+        return "member-" + ThreadLocalRandom.current().nextInt(members);
+    }
+
+    @Override
+    public void close() {
+        receptionistRepo.close();
+        client.close();
+    }
+}
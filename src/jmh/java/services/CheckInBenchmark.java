@@ -0,0 +1,72 @@
+package services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event synchronous check-in against the batched pipeline, under the
+ * concurrency of several turnstiles. Run in both throughput and sample-time
+ * mode; the sample-time output carries p99.
+ *
+ * {@link #batchedPipeline} waits until the check-in's batch is written, so
+ * it compares end to end with {@link #perEventWrite}, batching delay
+ * included. {@link #batchedPipelineEnqueue} is what a turnstile waits for
+ * when it does not need the confirmation.
+ *
+ * Needs a mongod, see {@link BenchData}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class CheckInBenchmark {
+
+    private BenchData data;
+    private ReceptionistService direct;
+    private CheckInPipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = new BenchData(1_000, 0, 0);
+        direct = new ReceptionistService(data.receptionistRepo);
+        pipeline = new CheckInPipeline(data.receptionistRepo);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.close();
+        System.out.println("pipeline: " + pipeline.written() + " events in " + pipeline.batches() + " batches");
+        data.close();
+    }
+
+    @Benchmark
+    public int perEventWrite() {
+        return direct.recordAttendance(data.randomMember());
+    }
+
+    @Benchmark
+    public void batchedPipeline() throws InterruptedException {
+        pipeline.submitTracked(data.randomMember()).join();
+    }
+
+    @Benchmark
+    public void batchedPipelineEnqueue() throws InterruptedException {
+        pipeline.submit(data.randomMember());
+    }
+}
@@ -0,0 +1,71 @@
+package services;
+
+import org.example.model.Payment;
+import org.example.model.PaymentProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payments per second through the engine (registry dispatch, virtual threads)
+ * against the old single-threaded PaymentProcessor with a hand-picked strategy.
+ * Persistence is left out; see CheckInBenchmark for Mongo-backed numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentEngineBenchmark {
+
+    private static final int BATCH = 10_000;
+    private static final String[] METHODS = {"CARD", "CASH", "ONLINE", "WALLET"};
+
+    @Param({"1", "64"})
+    public int concurrency;
+
+    private PaymentEngine engine;
+    private List<Payment> batch;
+
+    @Setup
+    public void setUp() {
+        engine = new PaymentEngine(null, concurrency);
+        batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(new Payment("P-" + i, "member-" + (i % 500), "INV-" + i, 25.0, "EUR",
+                    METHODS[i % METHODS.length], "PENDING", "REF-" + i, "Provider", "2026-10-17"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<Payment> engine() throws InterruptedException {
+        return engine.processAll(batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int legacyProcessor() {
+        PaymentProcessor processor = new PaymentProcessor();
+        int ok = 0;
+        for (Payment p : batch) {
+            processor.setStrategy(PaymentEngine.strategyFor(p.getMethod()));
+            if ("SUCCESS".equals(processor.execute(p).getStatus())) ok++;
+        }
+        return ok;
+    }
+}
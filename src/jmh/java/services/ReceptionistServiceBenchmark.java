@@ -0,0 +1,56 @@
+package services;
+
+import org.example.model.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level hot paths against a real mongod (see {@link BenchData}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceptionistServiceBenchmark {
+
+    private BenchData data;
+    private ReceptionistService service;
+    private final LocalDate today = BenchData.TODAY;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = new BenchData(5_000, 365, 40);
+        service = new ReceptionistService(data.receptionistRepo);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.close();
+    }
+
+    @Benchmark
+    public int recordAttendance() {
+        return service.recordAttendance(data.randomMember());
+    }
+
+    @Benchmark
+    public List<Appointment> getDailySchedule() {
+        return service.getDailySchedule(today);
+    }
+}
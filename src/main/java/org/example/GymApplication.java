@@ -0,0 +1,299 @@
+package org.example;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.example.metrics.MetricsReporter;
+import org.example.model.Appointment;
+import org.example.model.CheckInEvent;
+import org.example.repo.DateMigration;
+import org.example.repo.DurabilityPolicy;
+import org.example.repo.IndexManager;
+import org.example.repo.PaymentRepository;
+import org.example.repo.PaymentRollups;
+import org.example.repo.ReceptionistRepository;
+import org.example.repo.TrainerRepository;
+import org.example.repo.Userrepo;
+import services.CheckInPipeline;
+import services.DeadlineScheduler;
+import services.MemberCache;
+import services.MemberSnapshot;
+import services.PaymentService;
+import services.ReceptionistService;
+import services.TrainerService;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the application around one shared, configured MongoClient: the
+ * repositories, the services and their background workers (check-in
+ * pipeline, deadline scheduler, metrics reporter).
+ *
+ * {@link #start} migrates dates, bootstraps the indexes, loads the booking
+ * index for the coming week, then warms up before returning: it opens the
+ * pool's minimum connections in parallel and runs each hot query once, so
+ * the first desk request after a deploy does not pay for connection
+ * handshakes, query planning and class loading. The plan catalogs are
+ * loaded then too, and kept current through a change stream.
+ *
+ * The member snapshot for check-in kiosks is written to
+ * {@code -Dgym.snapshot.path} (default member-snapshot.bin, empty to turn
+ * it off) and rebuilt every {@code -Dgym.snapshot.refresh} milliseconds
+ * (default five minutes).
+ */
+public class GymApplication implements AutoCloseable {
+
+    static final int BOOKING_DAYS = 7;
+    static final Duration PLAN_WATCH_RETRY = Duration.ofSeconds(5);
+    static final String SNAPSHOT_PATH = "member-snapshot.bin";
+    static final Duration SNAPSHOT_REFRESH = Duration.ofMinutes(5);
+
+    private final MongoConfig config;
+    private final MongoClient client;
+    private final MongoDatabase db;
+
+    private final ReceptionistRepository receptionistRepo;
+    private final TrainerRepository trainerRepo;
+    private final PaymentRepository paymentRepo;
+    private final Userrepo userRepo;
+
+    private final CheckInPipeline checkIns;
+    private final DeadlineScheduler deadlines;
+    private final ReceptionistService receptionistService;
+    private final TrainerService trainerService;
+    private final PaymentService paymentService;
+    private final MemberSnapshot snapshot; // null when turned off
+    private final Duration snapshotRefresh;
+    private MetricsReporter reporter;
+
+    private volatile boolean ready;
+    private boolean closed;
+    private final CountDownLatch closedLatch = new CountDownLatch(1);
+
+    private GymApplication(MongoConfig config) {
+        // checked before anything is opened
+        String snapshotPath = System.getProperty("gym.snapshot.path", SNAPSHOT_PATH);
+        Long refreshMs = Long.getLong("gym.snapshot.refresh");
+        this.snapshotRefresh = refreshMs == null ? SNAPSHOT_REFRESH : Duration.ofMillis(refreshMs);
+        if (snapshotRefresh.isNegative() || snapshotRefresh.isZero())
+            throw new IllegalArgumentException("gym.snapshot.refresh must be positive");
+
+        this.config = config;
+        this.client = MongoClients.create(config.toSettings());
+        // start() has no app to close if this constructor throws, so it closes what it opened itself
+        Deque<AutoCloseable> opened = new ArrayDeque<>();
+        opened.push(client);
+        try {
+            this.db = client.getDatabase(config.database());
+
+            DurabilityPolicy policy = DurabilityPolicy.fromSystemProperties();
+            this.receptionistRepo = new ReceptionistRepository(db, "members", "attendance", "appointments", "invoices",
+                    ZoneId.systemDefault(), policy);
+            opened.push(receptionistRepo);
+            this.trainerRepo = new TrainerRepository(db, "trainers", "workouts", "diets", "sessions", "progress",
+                    ZoneId.systemDefault(), policy);
+            this.paymentRepo = new PaymentRepository(db.getCollection("payments"), db.getCollection("payment_rollups"), policy);
+            this.userRepo = new Userrepo(db, policy);
+
+            this.checkIns = new CheckInPipeline(receptionistRepo);
+            opened.push(checkIns);
+            this.deadlines = new DeadlineScheduler(receptionistRepo, GymApplication::remind);
+            opened.push(deadlines);
+            this.receptionistService = new ReceptionistService(receptionistRepo, checkIns,
+                    new MemberCache(10_000, Duration.ofMinutes(5)), deadlines);
+            this.trainerService = new TrainerService(trainerRepo);
+            opened.push(trainerService);
+            this.paymentService = new PaymentService(paymentRepo);
+            this.snapshot = snapshotPath.isBlank() ? null : new MemberSnapshot(Path.of(snapshotPath), receptionistRepo);
+        } catch (RuntimeException e) {
+            for (AutoCloseable c : opened) { // most recent first
+                try {
+                    c.close();
+                } catch (Exception suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Connects, prepares the database and warms up. Returns once the
+     * application is ready to serve; on failure everything started so far
+     * is closed again.
+     */
+    public static GymApplication start(MongoConfig config) {
+        GymApplication app = new GymApplication(config);
+        try {
+            app.prepare();
+            app.warmUp();
+            app.reporter = new MetricsReporter(System.out, Duration.ofMinutes(1));
+            app.ready = true;
+            return app;
+        } catch (RuntimeException e) {
+            app.close();
+            throw e;
+        }
+    }
+
+    private void prepare() {
+        System.out.println("Connected to database: " + db.getName());
+
+        migrateDates();
+
+        IndexManager indexes = IndexManager.bootstrap(receptionistRepo, trainerRepo, paymentRepo, userRepo);
+        for (String name : indexes.created()) {
+            System.out.println("Created index " + name);
+        }
+        for (String problem : indexes.problems()) {
+            System.err.println("Index problem: " + problem);
+        }
+
+        LocalDate today = LocalDate.now();
+        receptionistService.loadBookings(today, today.plusDays(BOOKING_DAYS));
+        deadlines.start();
+        trainerService.watchPlanChanges(PLAN_WATCH_RETRY);
+
+        if (snapshot != null) {
+            // serve the last snapshot right away; the first rebuild runs now if there is none
+            if (snapshot.load()) System.out.println("Loaded member snapshot of " + snapshot.size() + " members");
+            snapshot.refreshEvery(snapshotRefresh);
+        }
+    }
+
+    // before the index bootstrap, so the date indexes are built over typed values
+    private void migrateDates() {
+        DateMigration migration = new DateMigration();
+        MongoCollection<Document> migrations = db.getCollection("migrations");
+        if (migration.isCompleted(migrations)) return;
+
+        List<DateMigration.Report> reports = List.of(
+                migration.migrateMembers(db.getCollection("members")),
+                migration.migrateMembers(db.getCollection("users")),
+                migration.migrateAppointments(db.getCollection("appointments")));
+        for (DateMigration.Report r : reports) {
+            if (r.scanned() > 0) {
+                System.out.println("Migrated dates in " + r.collection() + ": " + r.scanned() + " scanned, "
+                        + r.updated() + " updated, " + r.unparseable() + " left unparsed");
+            }
+            for (String value : r.unparseableValues()) {
+                System.err.println("Unparseable date left in " + r.collection() + ": " + value);
+            }
+        }
+        migration.markCompleted(migrations, reports);
+    }
+
+    // -------------------- WARM-UP --------------------
+
+    private void warmUp() {
+        long t0 = System.nanoTime();
+
+        // concurrent pings force the pool to open that many connections now
+        int connections = Math.max(1, config.minPoolSize());
+        ExecutorService pingers = Executors.newFixedThreadPool(connections);
+        try {
+            List<Future<?>> pings = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                pings.add(pingers.submit(() -> db.runCommand(new Document("ping", 1))));
+            }
+            for (Future<?> f : pings) {
+                f.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during warm-up", e);
+        } finally {
+            pingers.shutdownNow();
+        }
+
+        // one run of each desk query: plans get cached on the server, converters get loaded here
+        LocalDate today = LocalDate.now();
+        receptionistRepo.findMemberById("");
+        receptionistRepo.findMemberSummariesPage(20, null);
+        receptionistRepo.countMembersActiveOn(today);
+        receptionistRepo.findAppointmentsOn(today);
+        trainerRepo.findWorkoutsPage(20, null);
+        trainerRepo.findDietsPage(20, null);
+        trainerService.getAllWorkoutPlans(); // fills the catalog snapshots
+        trainerService.getAllDietPlans();
+        paymentRepo.revenue(PaymentRollups.Period.DAY, today.minusDays(30), today, PaymentRollups.Dimension.NONE);
+        userRepo.findByUsername("");
+
+        System.out.println("Warmed up " + connections + " connections and hot queries in "
+                + (System.nanoTime() - t0) / 1_000_000 + " ms");
+    }
+
+    private static void remind(Appointment a) {
+        System.out.println("Reminder: " + a.getMemberId() + " has " + a.getAppointmentName()
+                + " on " + a.getDate() + " at " + a.getTime());
+    }
+
+    // -------------------- ACCESS --------------------
+
+    public boolean isReady() { return ready; }
+
+    public MongoDatabase database() { return db; }
+
+    public ReceptionistService receptionistService() { return receptionistService; }
+
+    public TrainerService trainerService() { return trainerService; }
+
+    public PaymentService paymentService() { return paymentService; }
+
+    public DeadlineScheduler deadlines() { return deadlines; }
+
+    public CheckInPipeline checkIns() { return checkIns; }
+
+    /** Null if turned off with an empty gym.snapshot.path. */
+    public MemberSnapshot memberSnapshot() { return snapshot; }
+
+    // -------------------- SHUTDOWN --------------------
+
+    /**
+     * Blocks until {@link #close()} has finished, e.g. from a shutdown hook.
+     */
+    public void awaitClose() throws InterruptedException {
+        closedLatch.await();
+    }
+
+    /**
+     * Flushes queued check-ins and stops the workers before the client goes away.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        ready = false;
+        try {
+            checkIns.close();
+            // one line per lost write, so an operator can replay them
+            for (CheckInEvent e : checkIns.unwritten()) {
+                System.err.println("Unwritten check-in: " + e.getUsername() + " at " + e.getAt());
+            }
+            deadlines.close();
+            receptionistRepo.close();
+            trainerService.close();
+            if (snapshot != null) snapshot.close();
+            if (reporter != null) reporter.close();
+            client.close();
+        } finally {
+            closedLatch.countDown();
+        }
+    }
+}
@@ -1,30 +1,14 @@
 package org.example;
 
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoDatabase;
-import org.bson.Document;
-
 public class Main {
 
-    public static void main(String[] args) {
-
-        try (MongoClient client = MongoClients.create("mongodb://localhost:27017/")) {
-            MongoDatabase db = client.getDatabase("gym");
-            System.out.println("Connected to database: " + db.getName());
-
-            MongoCollection<Document> aooseCollection = db.getCollection("first");
-//comm
-
-            Document member = new Document("name", "Test Member")
-                    .append("age", 25)
-                    .append("membershipType", "Basic")
-                    .append("active", true);
+    public static void main(String[] args) throws InterruptedException {
 
-            aooseCollection.insertOne(member);
+        GymApplication app = GymApplication.start(MongoConfig.fromSystemProperties());
+        // flushes queued check-ins and stops the scheduler on Ctrl-C / SIGTERM
+        Runtime.getRuntime().addShutdownHook(new Thread(app::close, "shutdown"));
 
-            System.out.println("Inserted document into collection 'Aoose': " + member.toJson());
-        }
+        System.out.println("Ready");
+        app.awaitClose();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package org.example;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import org.example.metrics.MongoCommandMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection settings for the one MongoClient the application shares.
+ *
+ * Every value can be overridden with a system property named after the
+ * component, e.g. {@code -Dgym.mongo.maxPoolSize=100} or
+ * {@code -Dgym.mongo.compressors=zstd,zlib}; durations are in milliseconds.
+ * Values set here win over the same options in the URI.
+ *
+ * @param minPoolSize   connections kept open per server, so a quiet desk does not reconnect
+ * @param maxPoolSize   upper bound per server; requests beyond it wait up to {@code maxWait}
+ * @param maxWait       how long a request waits for a pooled connection before failing
+ * @param compressors   wire compressors in order of preference; zlib is built in, zstd and
+ *                      snappy need zstd-jni or snappy-java on the classpath and are skipped,
+ *                      with a warning, without it
+ */
+public record MongoConfig(String uri,
+                          String database,
+                          int minPoolSize,
+                          int maxPoolSize,
+                          Duration maxWait,
+                          Duration maxIdle,
+                          Duration connectTimeout,
+                          Duration socketTimeout,
+                          Duration serverSelectionTimeout,
+                          List<String> compressors) {
+
+    private static final String PREFIX = "gym.mongo.";
+
+    public MongoConfig {
+        if (minPoolSize < 0 || maxPoolSize < 1 || minPoolSize > maxPoolSize)
+            throw new IllegalArgumentException("Need 0 <= minPoolSize <= maxPoolSize, maxPoolSize >= 1");
+        compressors = List.copyOf(compressors);
+    }
+
+    public static MongoConfig defaults() {
+        return new MongoConfig(
+                "mongodb://localhost:27017/",
+                "gym",
+                5,
+                50,
+                Duration.ofSeconds(2),
+                Duration.ofMinutes(10),
+                Duration.ofSeconds(5),
+                // long enough for the rollup rebuilds, short enough to notice a dead server
+                Duration.ofSeconds(60),
+                Duration.ofSeconds(5),
+                // the only codec the driver ships with; zstd and snappy need an extra jar
+                List.of("zlib"));
+    }
+
+    /** {@link #defaults()}, overridden by gym.mongo.* system properties. */
+    public static MongoConfig fromSystemProperties() {
+        MongoConfig d = defaults();
+        return new MongoConfig(
+                System.getProperty(PREFIX + "uri", d.uri),
+                System.getProperty(PREFIX + "database", d.database),
+                Integer.getInteger(PREFIX + "minPoolSize", d.minPoolSize),
+                Integer.getInteger(PREFIX + "maxPoolSize", d.maxPoolSize),
+                millis("maxWait", d.maxWait),
+                millis("maxIdle", d.maxIdle),
+                millis("connectTimeout", d.connectTimeout),
+                millis("socketTimeout", d.socketTimeout),
+                millis("serverSelectionTimeout", d.serverSelectionTimeout),
+                System.getProperty(PREFIX + "compressors") == null
+                        ? d.compressors
+                        : Arrays.stream(System.getProperty(PREFIX + "compressors").split(","))
+                                .map(String::trim).filter(s -> !s.isEmpty()).toList());
+    }
+
+    private static Duration millis(String name, Duration fallback) {
+        Long ms = Long.getLong(PREFIX + name);
+        return ms == null ? fallback : Duration.ofMillis(ms);
+    }
+
+    public MongoClientSettings toSettings() {
+        return MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(uri))
+                .applyToConnectionPoolSettings(b -> b
+                        .minSize(minPoolSize)
+                        .maxSize(maxPoolSize)
+                        .maxWaitTime(maxWait.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(maxIdle.toMillis(), TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(b -> b
+                        .connectTimeout(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                        .readTimeout(socketTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(b -> b
+                        .serverSelectionTimeout(serverSelectionTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .compressorList(compressorList())
+                .addCommandListener(new MongoCommandMetrics())
+                .build();
+    }
+
+    /**
+     * The configured compressors the driver can actually load; the others
+     * are reported on stderr. The server picks the first one it also supports.
+     */
+    List<MongoCompressor> compressorList() {
+        List<MongoCompressor> out = new ArrayList<>();
+        for (String name : compressors) {
+            switch (name.toLowerCase(Locale.ROOT)) {
+                case "zstd" -> {
+                    if (onClasspath("com.github.luben.zstd.Zstd", name, "com.github.luben:zstd-jni"))
+                        out.add(MongoCompressor.createZstdCompressor());
+                }
+                case "snappy" -> {
+                    if (onClasspath("org.xerial.snappy.Snappy", name, "org.xerial.snappy:snappy-java"))
+                        out.add(MongoCompressor.createSnappyCompressor());
+                }
+                case "zlib" -> out.add(MongoCompressor.createZlibCompressor());
+                default -> throw new IllegalArgumentException("Unknown compressor: " + name);
+            }
+        }
+        return out;
+    }
+
+    private static boolean onClasspath(String className, String compressor, String artifact) {
+        try {
+            Class.forName(className, false, MongoConfig.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            System.err.println("Compressor " + compressor + " skipped: " + artifact + " is not on the classpath");
+            return false;
+        }
+    }
+}
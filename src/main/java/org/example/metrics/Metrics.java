@@ -0,0 +1,71 @@
+package org.example.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide registry of {@link OperationStats}.
+ * Every operation is also registered on the platform MBean server.
+ */
+public final class Metrics {
+
+    private static final ConcurrentMap<String, OperationStats> OPS = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /**
+     * Stats for an operation, created on first use. Look it up once and keep
+     * the reference; the lookup itself is not meant for the hot path.
+     */
+    public static OperationStats op(String name) {
+        return OPS.computeIfAbsent(name, n -> {
+            OperationStats stats = new OperationStats(n);
+            registerMBean(stats);
+            return stats;
+        });
+    }
+
+    public static List<OperationStats> all() {
+        List<OperationStats> list = new ArrayList<>(OPS.values());
+        list.sort(Comparator.comparing(OperationStats::getName));
+        return list;
+    }
+
+    /**
+     * Plain-text table of every operation that has been called.
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "%-48s %10s %8s %10s %9s %9s %9s %9s%n",
+                "operation", "calls", "errors", "docs", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+
+        for (OperationStats s : all()) {
+            if (s.getCalls() == 0) continue;
+            sb.append(String.format(Locale.ROOT, "%-48s %10d %8d %10d %9.3f %9.3f %9.3f %9.3f%n",
+                    s.getName(), s.getCalls(), s.getErrors(), s.getDocuments(),
+                    s.getP50Millis(), s.getP95Millis(), s.getP99Millis(), s.getMaxMillis()));
+        }
+        return sb.toString();
+    }
+
+    private static void registerMBean(OperationStats stats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(stats,
+                    new ObjectName("org.example:type=Operation,name=" + ObjectName.quote(stats.getName())));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by another class loader; the in-process stats still work
+        } catch (JMException e) {
+            System.err.println("Cannot register JMX bean for " + stats.getName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.metrics;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints {@link Metrics#dump()} at a fixed rate on a daemon thread.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "metrics-reporter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public MetricsReporter(PrintStream out, Duration period) {
+        long ms = period.toMillis();
+        scheduler.scheduleAtFixedRate(() -> out.print(Metrics.dump()), ms, ms, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
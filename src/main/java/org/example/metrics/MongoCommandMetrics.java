@@ -0,0 +1,37 @@
+package org.example.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Driver-level wire timings per command name ("mongo.find", "mongo.insert", ...).
+ * Register it on the client with MongoClientSettings.builder().addCommandListener(...).
+ */
+public class MongoCommandMetrics implements CommandListener {
+
+    // keyed by the raw command name so the hot path does no string building
+    private final ConcurrentMap<String, OperationStats> byCommand = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        stats(event.getCommandName()).recordElapsed(event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        stats(event.getCommandName()).recordElapsed(event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+    }
+
+    private OperationStats stats(String command) {
+        OperationStats s = byCommand.get(command);
+        if (s == null) {
+            s = byCommand.computeIfAbsent(command, c -> Metrics.op("mongo." + c));
+        }
+        return s;
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.metrics;
+
+import org.example.repo.Page;
+
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Calls, errors, documents and latency of one named operation.
+ *
+ * Instances are created once (usually as static finals) through
+ * {@link Metrics#op}; recording then touches only counters:
+ *
+ * <pre>
+ * return FIND.timeDocs(() -> repoCall());
+ * </pre>
+ *
+ * {@link #start()}, {@link #stop} and {@link #error()} remain for code that
+ * cannot be wrapped in a lambda, and for the per-request hot paths (member
+ * lookup, check-in, payment insert), where a capturing lambda would be
+ * allocated on every call.
+ */
+public class OperationStats implements OperationStatsMXBean {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    // -------------------- RECORDING --------------------
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records one call (successful or not) that began at {@code start}.
+     */
+    public void stop(long start) {
+        calls.increment();
+        latency.record(System.nanoTime() - start);
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    /**
+     * Counts the documents in a result and returns it unchanged.
+     * Collections and pages count their size, other non-null results count one.
+     */
+    public <T> T docs(T result) {
+        if (result instanceof Collection<?> c) {
+            documents.add(c.size());
+        } else if (result instanceof Page<?> p) {
+            documents.add(p.items().size());
+        } else if (result != null) {
+            documents.increment();
+        }
+        return result;
+    }
+
+    public void addDocuments(long n) {
+        documents.add(n);
+    }
+
+    /**
+     * Times one call, counting it as an error if it throws.
+     */
+    public <T> T time(Supplier<T> call) {
+        long t = start();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            error();
+            throw e;
+        } finally {
+            stop(t);
+        }
+    }
+
+    /**
+     * Like {@link #time}, also counting the documents in the result (see {@link #docs}).
+     */
+    public <T> T timeDocs(Supplier<T> call) {
+        return time(() -> docs(call.get()));
+    }
+
+    public void run(Runnable call) {
+        long t = start();
+        try {
+            call.run();
+        } catch (RuntimeException e) {
+            error();
+            throw e;
+        } finally {
+            stop(t);
+        }
+    }
+
+    /**
+     * Times a stream from opening until it is closed, so the time spent
+     * reading the cursor is included. Each element read counts as a
+     * document; a failure while reading counts as an error. The call is
+     * recorded when the stream is closed, so callers must close it.
+     */
+    public <T> Stream<T> timeStream(Supplier<Stream<T>> open) {
+        long t = start();
+        Stream<T> source;
+        try {
+            source = open.get();
+        } catch (RuntimeException e) {
+            error();
+            stop(t);
+            throw e;
+        }
+
+        Spliterator<T> elements = source.spliterator();
+        Spliterator<T> counted = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, elements.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED)) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    return elements.tryAdvance(e -> {
+                        documents.increment();
+                        action.accept(e);
+                    });
+                } catch (RuntimeException e) {
+                    error();
+                    throw e;
+                }
+            }
+        };
+        AtomicBoolean closed = new AtomicBoolean();
+        return StreamSupport.stream(counted, false).onClose(() -> {
+            try {
+                source.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) stop(t);
+            }
+        });
+    }
+
+    /**
+     * For timings measured elsewhere, e.g. by the driver.
+     */
+    public void recordElapsed(long nanos, boolean success) {
+        calls.increment();
+        latency.record(nanos);
+        if (!success) errors.increment();
+    }
+
+    // -------------------- READING (also exposed over JMX) --------------------
+
+    @Override
+    public String getName() { return name; }
+
+    @Override
+    public long getCalls() { return calls.sum(); }
+
+    @Override
+    public long getErrors() { return errors.sum(); }
+
+    @Override
+    public long getDocuments() { return documents.sum(); }
+
+    @Override
+    public double getP50Millis() { return millis(latency.percentile(0.50)); }
+
+    @Override
+    public double getP95Millis() { return millis(latency.percentile(0.95)); }
+
+    @Override
+    public double getP99Millis() { return millis(latency.percentile(0.99)); }
+
+    @Override
+    public double getMaxMillis() { return millis(latency.max()); }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        documents.reset();
+        latency.reset();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
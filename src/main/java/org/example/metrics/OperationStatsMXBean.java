@@ -0,0 +1,25 @@
+package org.example.metrics;
+
+/**
+ * JMX view of one operation, registered as org.example:type=Operation,name=...
+ */
+public interface OperationStatsMXBean {
+
+    String getName();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getDocuments();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
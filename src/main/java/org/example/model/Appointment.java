@@ -1,11 +1,18 @@
 package org.example.model;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+
 public class Appointment {
+    public static final String SCHEDULED = "scheduled";
+    public static final int DEFAULT_DURATION_MINUTES = 60;
+
     private String appointmentName;
     private String memberId;
     private String trainerId; // or physiotherapist / doctor
-    private String date; // yyyy-mm-dd
-    private String time; // HH:MM
+    private LocalDate date;
+    private LocalTime time; // minute precision
+    private int durationMinutes = DEFAULT_DURATION_MINUTES;
     private String status; // scheduled, cancelled, completed
     private String note;
 
@@ -20,11 +27,17 @@ public class Appointment {
     public String getTrainerId() { return trainerId; }
     public void setTrainerId(String trainerId) { this.trainerId = trainerId; }
 
-    public String getDate() { return date; }
-    public void setDate(String date) { this.date = date; }
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public LocalTime getTime() { return time; }
+    public void setTime(LocalTime time) { this.time = time; }
+
+    public int getDurationMinutes() { return durationMinutes; }
+    public void setDurationMinutes(int durationMinutes) { this.durationMinutes = durationMinutes; }
 
-    public String getTime() { return time; }
-    public void setTime(String time) { this.time = time; }
+    /** Only scheduled appointments hold a slot; a missing status counts as scheduled. */
+    public boolean isScheduled() { return status == null || SCHEDULED.equals(status); }
 
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
@@ -0,0 +1,17 @@
+package org.example.model;
+
+import java.time.Instant;
+
+/**
+ * One body measurement, e.g. metric "weight" with value 82.5 (kg) or
+ * "bodyFat" with value 18 (percent). Units are up to the metric.
+ */
+public record BodyMetric(String memberId, String metric, Instant at, double value) {
+
+    public BodyMetric {
+        if (memberId == null || metric == null || metric.isBlank() || at == null)
+            throw new IllegalArgumentException("memberId, metric and at are required");
+        if (!Double.isFinite(value))
+            throw new IllegalArgumentException("value must be finite");
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.model;
+
+import java.time.Instant;
+
+public class CheckInEvent {
+    private final String username;
+    private final Instant at;
+
+    public CheckInEvent(String username, Instant at) {
+        this.username = username;
+        this.at = at;
+    }
+
+    public String getUsername() { return username; }
+
+    public Instant getAt() { return at; }
+}
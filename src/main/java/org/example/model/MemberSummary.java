@@ -0,0 +1,15 @@
+package org.example.model;
+
+import java.time.LocalDate;
+
+/**
+ * The fields a member list shows, without password, contact details or
+ * attendance. Read straight from the members summary index, so listing
+ * members never loads the full documents.
+ */
+public record MemberSummary(String username,
+                            String phone,
+                            String membershipType,
+                            LocalDate membershipEnd,
+                            boolean isActive,
+                            boolean freezed) {}
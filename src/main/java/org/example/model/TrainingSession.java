@@ -0,0 +1,21 @@
+package org.example.model;
+
+import java.time.Instant;
+
+/**
+ * One logged exercise of a training session.
+ *
+ * @param trainerId null when the member trained alone
+ * @param weightKg  weight per rep, 0 for bodyweight exercises
+ * @param minutes   time spent on the exercise, 0 if not tracked
+ */
+public record TrainingSession(String memberId, String trainerId, String exercise, Instant at,
+                              int sets, int reps, double weightKg, int minutes) {
+
+    public TrainingSession {
+        if (memberId == null || exercise == null || exercise.isBlank() || at == null)
+            throw new IllegalArgumentException("memberId, exercise and at are required");
+        if (sets < 0 || reps < 0 || minutes < 0 || !(weightKg >= 0) || Double.isInfinite(weightKg))
+            throw new IllegalArgumentException("sets, reps, weightKg and minutes must be non-negative");
+    }
+}
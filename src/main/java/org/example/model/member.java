@@ -1,5 +1,7 @@
 package org.example.model;
 import org.example.model.Roles;
+
+import java.time.LocalDate;
 public class member extends users {
 
     public int age;
@@ -11,10 +13,10 @@ public class member extends users {
     public String phone;
 
     public String membershipType;
-    public String membershipStart; 
-    public String membershipEnd;   
+    public LocalDate membershipStart; // null until a membership is sold
+    public LocalDate membershipEnd;
 
-    public member(Roles role, String password, String username, String phone, String email, String membershipType, String membershipStart, String membershipEnd) {
+    public member(Roles role, String password, String username, String phone, String email, String membershipType, LocalDate membershipStart, LocalDate membershipEnd) {
         super(Roles.member, password, username);
         this.phone = phone;
 
@@ -27,9 +29,9 @@ public class member extends users {
         super(Roles.member, password, username);
         this.phone = "0";
      
-        this.membershipType = "null";
-        this.membershipStart = "0";
-        this.membershipEnd = "0";
+        this.membershipType = null;
+        this.membershipStart = null;
+        this.membershipEnd = null;
     }
     public String getPhone() {
         return phone;
@@ -49,19 +51,19 @@ public class member extends users {
         this.membershipType = membershipType;
     }
 
-    public String getMembershipStart() {
+    public LocalDate getMembershipStart() {
         return membershipStart;
     }
 
-    public void setMembershipStart(String membershipStart) {
+    public void setMembershipStart(LocalDate membershipStart) {
         this.membershipStart = membershipStart;
     }
 
-    public String getMembershipEnd() {
+    public LocalDate getMembershipEnd() {
         return membershipEnd;
     }
 
-    public void setMembershipEnd(String membershipEnd) {
+    public void setMembershipEnd(LocalDate membershipEnd) {
         this.membershipEnd = membershipEnd;
     }
 
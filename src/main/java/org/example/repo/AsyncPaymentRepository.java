@@ -0,0 +1,116 @@
+package org.example.repo;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.example.model.Payment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking counterpart of {@link PaymentRepository}.
+ */
+public class AsyncPaymentRepository {
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final MongoCollection<Document> insertOne;  // the payments, as seen by each operation
+    private final MongoCollection<Document> insertMany;
+    private final MongoCollection<Document> claims;
+    private final MongoCollection<Document> rollups; // null: no rollups maintained
+
+    public AsyncPaymentRepository(MongoCollection<Document> collection) {
+        this(collection, null);
+    }
+
+    /**
+     * @param rollups same bucket collection as {@link PaymentRepository}'s
+     */
+    public AsyncPaymentRepository(MongoCollection<Document> collection, MongoCollection<Document> rollups) {
+        this(collection, rollups, DurabilityPolicy.defaults());
+    }
+
+    /**
+     * @param policy as for {@link PaymentRepository}; only the payment writes are routed here
+     */
+    public AsyncPaymentRepository(MongoCollection<Document> collection, MongoCollection<Document> rollups,
+                                  DurabilityPolicy policy) {
+        this.insertOne = policy.tier(Operation.INSERT_PAYMENT).apply(Objects.requireNonNull(collection));
+        this.insertMany = policy.tier(Operation.INSERT_PAYMENTS).apply(collection);
+        this.claims = policy.tier(Operation.PAYMENT_ROLLUPS).apply(collection);
+        this.rollups = rollups == null ? null : policy.tier(Operation.PAYMENT_ROLLUPS).apply(rollups);
+    }
+
+    /**
+     * @see PaymentRepository#insertPayment
+     */
+    public CompletableFuture<Void> insertPayment(Payment p) {
+        return Publishers.done(insertOne.insertOne(PaymentRepository.paymentToDoc(p)))
+                .handle((ignored, error) -> {
+                    if (error == null) return rollUp(List.of(p));
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof MongoWriteException e && e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                        return rollUp(List.of(p)).thenRun(() -> { throw new CompletionException(cause); });
+                    }
+                    return CompletableFuture.<Void>failedFuture(cause);
+                })
+                .thenCompose(f -> f);
+    }
+
+    /**
+     * @see PaymentRepository#insertPayments
+     */
+    public CompletableFuture<BulkInsertResult> insertPayments(List<Payment> batch) {
+        if (batch.isEmpty()) return CompletableFuture.completedFuture(BulkInsertResult.EMPTY);
+
+        List<InsertOneModel<Document>> models = new ArrayList<>(batch.size());
+        for (Payment p : batch) {
+            models.add(new InsertOneModel<>(PaymentRepository.paymentToDoc(p)));
+        }
+
+        return Publishers.first(insertMany.bulkWrite(models, UNORDERED))
+                .handle((result, error) -> {
+                    if (error == null) return new BulkInsertResult(result.getInsertedCount(), 0, 0, List.of());
+
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof MongoBulkWriteException e) return PaymentRepository.rejectedResult(e);
+                    throw new CompletionException(cause);
+                })
+                .thenCompose(result -> rollUp(batch).thenApply(ignored -> result));
+    }
+
+    // claims and adds like PaymentRepository.rollUp
+    private CompletableFuture<Void> rollUp(List<Payment> sent) {
+        if (rollups == null || sent.isEmpty()) return CompletableFuture.completedFuture(null);
+        List<String> ids = PaymentRollups.ids(sent);
+        ObjectId claim = new ObjectId();
+        return Publishers.first(claims.updateMany(PaymentRollups.unclaimed(ids), PaymentRollups.claim(claim)))
+                .thenCompose(r -> r.getModifiedCount() == 0 ? CompletableFuture.completedFuture(List.<Document>of())
+                        : Publishers.toList(claims.find(PaymentRollups.claimedBy(ids, claim))
+                                .projection(PaymentRollups.ROLLUP_FIELDS), sent.size()))
+                .thenCompose(docs -> {
+                    List<Payment> claimed = new ArrayList<>(docs.size());
+                    for (Document d : docs) {
+                        claimed.add(PaymentRepository.paymentFromDoc(d));
+                    }
+                    List<UpdateOneModel<Document>> updates = PaymentRollups.updates(claimed);
+                    return updates.isEmpty() ? CompletableFuture.completedFuture(null)
+                            : Publishers.done(rollups.bulkWrite(updates, UNORDERED));
+                })
+                .exceptionally(e -> {
+                    // as in PaymentRepository: the payments are stored, only the buckets are stale
+                    System.err.println("Rollup update for " + sent.size() + " payments failed, run rebuildRollups: " + e.getMessage());
+                    return null;
+                });
+    }
+}
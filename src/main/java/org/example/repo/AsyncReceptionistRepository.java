@@ -0,0 +1,152 @@
+package org.example.repo;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.example.model.Appointment;
+import org.example.model.CheckInEvent;
+import org.example.model.member;
+import org.reactivestreams.Publisher;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link ReceptionistRepository} on the
+ * reactive-streams driver. Single results come back as CompletableFutures,
+ * multi-document results as Publishers that honour subscriber demand.
+ * Same collections, documents, converters and {@link Operation} routing as
+ * the blocking repository.
+ */
+public class AsyncReceptionistRepository {
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final ReactiveTieredCollection<Document> members;
+    private final ReactiveTieredCollection<Document> attendance;
+    private final ReactiveTieredCollection<Document> hourlyRollup;
+    private final ReactiveTieredCollection<Document> weeklyRollup;
+    private final ReactiveTieredCollection<Document> appointments;
+    private final ZoneId gymZone;
+
+    public AsyncReceptionistRepository(MongoDatabase db, String membersColl, String attendanceColl,
+                                       String appointmentsColl) {
+        this(db, membersColl, attendanceColl, appointmentsColl, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param gymZone time zone the hour-of-week occupancy buckets are counted in
+     */
+    public AsyncReceptionistRepository(MongoDatabase db, String membersColl, String attendanceColl,
+                                       String appointmentsColl, ZoneId gymZone) {
+        this(db, membersColl, attendanceColl, appointmentsColl, gymZone, DurabilityPolicy.defaults());
+    }
+
+    /**
+     * @param policy write concern and read routing of every operation, see {@link Operation}
+     */
+    public AsyncReceptionistRepository(MongoDatabase db, String membersColl, String attendanceColl,
+                                       String appointmentsColl, ZoneId gymZone, DurabilityPolicy policy) {
+        this.members = new ReactiveTieredCollection<>(db.getCollection(membersColl), policy);
+        this.attendance = new ReactiveTieredCollection<>(db.getCollection(attendanceColl), policy);
+        this.hourlyRollup = new ReactiveTieredCollection<>(db.getCollection(attendanceColl + "_hourly"), policy);
+        this.weeklyRollup = new ReactiveTieredCollection<>(db.getCollection(attendanceColl + "_member_weekly"), policy);
+        this.appointments = new ReactiveTieredCollection<>(db.getCollection(appointmentsColl), policy);
+        this.gymZone = gymZone;
+    }
+
+    // -------------------- MEMBERS --------------------
+
+    public CompletableFuture<Void> saveMember(member m) {
+        return Publishers.done(members.of(Operation.SAVE_MEMBER).replaceOne(
+                Filters.eq("username", m.getUsername()),
+                ReceptionistRepository.memberToDoc(m),
+                new ReplaceOptions().upsert(true)));
+    }
+
+    public CompletableFuture<member> findMemberById(String username) {
+        return Publishers.first(members.of(Operation.MEMBER_LOOKUP).find(Filters.eq("username", username)).first())
+                .thenApply(d -> d == null ? null : ReceptionistRepository.memberFromDoc(d));
+    }
+
+    /**
+     * @see ReceptionistRepository#incrementAttendance
+     */
+    public CompletableFuture<Integer> incrementAttendance(String username) {
+        return Publishers.first(members.of(Operation.CHECK_IN).findOneAndUpdate(
+                        ReceptionistRepository.checkInAllowed(username),
+                        Updates.inc("attendance", 1),
+                        new FindOneAndUpdateOptions()
+                                .projection(Projections.fields(Projections.include("attendance"), Projections.excludeId()))
+                                .returnDocument(ReturnDocument.AFTER)))
+                .thenCompose(d -> {
+                    if (d == null) return CompletableFuture.completedFuture(null);
+                    return recordCheckIn(new CheckInEvent(username, Instant.now()))
+                            .thenApply(v -> d.getInteger("attendance"));
+                });
+    }
+
+    // as in the blocking repository: the visit is counted, so failures are logged, not returned
+    private CompletableFuture<Void> recordCheckIn(CheckInEvent event) {
+        CompletableFuture<Void> stored = Publishers.done(
+                        attendance.of(Operation.CHECK_IN).insertOne(ReceptionistRepository.eventToDoc(event)))
+                .exceptionally(e -> {
+                    System.err.println("Check-in event of " + event.getUsername() + " not stored: " + e.getMessage());
+                    return null;
+                });
+
+        AttendanceRollups.Writes rollups = AttendanceRollups.writes(List.of(event), gymZone);
+        CompletableFuture<Void> rolledUp = CompletableFuture.allOf(
+                        Publishers.done(hourlyRollup.of(Operation.CHECK_IN).bulkWrite(rollups.hourly(), UNORDERED)),
+                        Publishers.done(weeklyRollup.of(Operation.CHECK_IN).bulkWrite(rollups.weekly(), UNORDERED)))
+                .exceptionally(e -> {
+                    System.err.println("Rollup update for a check-in failed, run rebuildAttendanceRollups: "
+                            + e.getMessage());
+                    return null;
+                });
+
+        return CompletableFuture.allOf(stored, rolledUp);
+    }
+
+    public Publisher<member> findAllMembers() {
+        return Publishers.map(members.of(Operation.MEMBER_LIST).find().sort(Sorts.ascending("username")),
+                ReceptionistRepository::memberFromDoc);
+    }
+
+    // -------------------- APPOINTMENTS --------------------
+
+    public CompletableFuture<Void> saveAppointment(Appointment ap) {
+        return Publishers.done(appointments.of(Operation.SAVE_APPOINTMENT).insertOne(ReceptionistRepository.appointmentToDoc(ap)));
+    }
+
+    public Publisher<Appointment> findAppointmentsByMember(String username) {
+        return Publishers.map(appointments.of(Operation.APPOINTMENT_LOOKUP).find(Filters.eq("memberId", username)),
+                ReceptionistRepository::appointmentFromDoc);
+    }
+
+    public Publisher<Appointment> findAppointmentsBetween(LocalDate fromDate, LocalDate toDate) {
+        return Publishers.map(
+                appointments.of(Operation.APPOINTMENT_LOOKUP).find(ReceptionistRepository.datesBetween(fromDate, toDate))
+                        .sort(Sorts.ascending("date", "time")),
+                ReceptionistRepository::appointmentFromDoc);
+    }
+
+    public Publisher<Appointment> findTrainerAppointmentsOn(String trainerId, LocalDate date) {
+        return Publishers.map(
+                appointments.of(Operation.APPOINTMENT_LOOKUP)
+                        .find(Filters.and(Filters.eq("trainerId", trainerId), Filters.eq("date", Dates.toBson(date))))
+                        .sort(Sorts.ascending("date", "time")),
+                ReceptionistRepository::appointmentFromDoc);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.repo;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.example.model.DietPlan;
+import org.example.model.WorkoutPlan;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link TrainerRepository}.
+ */
+public class AsyncTrainerRepository {
+
+    private final ReactiveTieredCollection<Document> workouts;
+    private final ReactiveTieredCollection<Document> diets;
+
+    public AsyncTrainerRepository(MongoDatabase db, String workoutColl, String dietColl) {
+        this(db, workoutColl, dietColl, DurabilityPolicy.defaults());
+    }
+
+    /**
+     * @param policy write concern and read routing of every operation, see {@link Operation}
+     */
+    public AsyncTrainerRepository(MongoDatabase db, String workoutColl, String dietColl, DurabilityPolicy policy) {
+        this.workouts = new ReactiveTieredCollection<>(db.getCollection(workoutColl), policy);
+        this.diets = new ReactiveTieredCollection<>(db.getCollection(dietColl), policy);
+    }
+
+    // ---------------- WORKOUT PLANS ----------------
+
+    public CompletableFuture<Void> saveWorkout(WorkoutPlan w) {
+        return Publishers.done(workouts.of(Operation.SAVE_PLAN).insertOne(TrainerRepository.workoutToDoc(w)));
+    }
+
+    public CompletableFuture<Void> updateWorkout(WorkoutPlan w) {
+        return Publishers.done(workouts.of(Operation.SAVE_PLAN).replaceOne(Filters.eq("planId", w.getPlanId()), TrainerRepository.workoutToDoc(w)));
+    }
+
+    public Publisher<WorkoutPlan> findAllWorkouts() {
+        return Publishers.map(workouts.of(Operation.PLAN_LIST).find(), TrainerRepository::workoutFromDoc);
+    }
+
+    public CompletableFuture<WorkoutPlan> findWorkoutByName(String name) {
+        return Publishers.first(workouts.of(Operation.PLAN_LOOKUP).find(Filters.eq("planName", name)).first())
+                .thenApply(d -> d == null ? null : TrainerRepository.workoutFromDoc(d));
+    }
+
+    // ---------------- DIET PLANS ----------------
+
+    public CompletableFuture<Void> saveDiet(DietPlan d) {
+        return Publishers.done(diets.of(Operation.SAVE_PLAN).insertOne(TrainerRepository.dietToDoc(d)));
+    }
+
+    public CompletableFuture<Void> updateDiet(DietPlan d) {
+        return Publishers.done(diets.of(Operation.SAVE_PLAN).replaceOne(Filters.eq("dietId", d.getDietId()), TrainerRepository.dietToDoc(d)));
+    }
+
+    public Publisher<DietPlan> findAllDiets() {
+        return Publishers.map(diets.of(Operation.PLAN_LIST).find(), TrainerRepository::dietFromDoc);
+    }
+
+    public CompletableFuture<DietPlan> findDietByName(String name) {
+        return Publishers.first(diets.of(Operation.PLAN_LOOKUP).find(Filters.eq("dietName", name)).first())
+                .thenApply(d -> d == null ? null : TrainerRepository.dietFromDoc(d));
+    }
+}
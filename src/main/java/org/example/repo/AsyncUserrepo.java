@@ -0,0 +1,102 @@
+package org.example.repo;
+
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import com.mongodb.client.model.Updates;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.example.model.users;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.mongodb.client.model.Filters.eq;
+
+/**
+ * Non-blocking counterpart of {@link Userrepo}, using the same {@link UserCodec}.
+ * Everything but {@link Userrepo#findPage} is here; reactive callers read
+ * {@link #findAll} with backpressure instead of paging.
+ */
+public class AsyncUserrepo {
+
+    private final ReactiveTieredCollection<Document> collection;
+    private final ReactiveTieredCollection<users> userCollection;
+    private final UserCodec codec = new UserCodec();
+
+    public AsyncUserrepo(MongoDatabase database) {
+        this(database, DurabilityPolicy.defaults());
+    }
+
+    /**
+     * @param policy write concern and read routing of every operation, see {@link Operation}
+     */
+    public AsyncUserrepo(MongoDatabase database, DurabilityPolicy policy) {
+        this.collection = new ReactiveTieredCollection<>(database.getCollection("users"), policy);
+        this.userCollection = new ReactiveTieredCollection<>(database.getCollection("users", users.class)
+                .withCodecRegistry(UserCodec.REGISTRY), policy);
+    }
+
+    public CompletableFuture<String> create(users user) {
+        return Publishers.first(userCollection.of(Operation.SAVE_USER).insertOne(user)).thenApply(r -> {
+            BsonValue id = r.getInsertedId();
+            return id == null ? null : id.asObjectId().getValue().toString();
+        });
+    }
+
+    public CompletableFuture<users> findByUsername(String username) {
+        return Publishers.first(userCollection.of(Operation.USER_LOOKUP).find(eq("username", username)).first());
+    }
+
+    public CompletableFuture<users> findById(String id) {
+        return Publishers.first(userCollection.of(Operation.USER_LOOKUP).find(eq("_id", new ObjectId(id))).first());
+    }
+
+    public Publisher<users> findAll() {
+        return userCollection.of(Operation.USER_LIST).find();
+    }
+
+    public Publisher<users> findByRole(String role) {
+        return userCollection.of(Operation.USER_LIST).find(eq("role", role));
+    }
+
+    /** Sets every field of {@code updatedUser} except _id, like {@link Userrepo#update}. */
+    public CompletableFuture<Boolean> update(String username, users updatedUser) {
+        BsonDocument updateDoc = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(updateDoc), updatedUser, EncoderContext.builder().build());
+        updateDoc.remove("_id");
+
+        return Publishers.first(collection.of(Operation.SAVE_USER).updateOne(eq("username", username), new BsonDocument("$set", updateDoc)))
+                .thenApply(r -> r.getModifiedCount() > 0);
+    }
+
+    public CompletableFuture<Boolean> updateField(String username, String fieldName, Object newValue) {
+        return Publishers.first(collection.of(Operation.SAVE_USER).updateOne(eq("username", username), Updates.set(fieldName, newValue)))
+                .thenApply(r -> r.getModifiedCount() > 0);
+    }
+
+    public CompletableFuture<Boolean> delete(String username) {
+        return Publishers.first(collection.of(Operation.DELETE_USER).deleteOne(eq("username", username)))
+                .thenApply(r -> r.getDeletedCount() > 0);
+    }
+
+    public CompletableFuture<Boolean> deleteById(String id) {
+        return Publishers.first(collection.of(Operation.DELETE_USER).deleteOne(eq("_id", new ObjectId(id))))
+                .thenApply(r -> r.getDeletedCount() > 0);
+    }
+
+    public CompletableFuture<Long> count() {
+        return Publishers.first(collection.of(Operation.USER_LIST).countDocuments());
+    }
+
+    public CompletableFuture<Long> countByRole(String role) {
+        return Publishers.first(collection.of(Operation.USER_LIST).countDocuments(eq("role", role)));
+    }
+
+    public CompletableFuture<Boolean> exists(String username) {
+        return Publishers.first(collection.of(Operation.USER_LOOKUP).countDocuments(eq("username", username)))
+                .thenApply(n -> n > 0);
+    }
+}
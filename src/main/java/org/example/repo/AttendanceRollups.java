@@ -0,0 +1,226 @@
+package org.example.repo;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Field;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.MergeOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.example.model.CheckInEvent;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-aggregated check-in counts, kept next to the raw time-series events:
+ *
+ * - hourly: one document per (week, day of week, hour) in the gym's time
+ *   zone, so a heatmap over N weeks reads at most 168 * N small documents;
+ * - weekly: one document per (member, week), the input for churn risk.
+ *
+ * Weeks start on Monday and are stored as the Monday's date. Both are
+ * updated with upserting $inc in the same call that writes the events.
+ */
+final class AttendanceRollups {
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final TieredCollection<Document> hourly;
+    private final TieredCollection<Document> weekly;
+    private final ZoneId zone;
+
+    // writes go out as CHECK_IN, queries as ATTENDANCE_REPORT, rebuilds as REBUILD_ATTENDANCE_ROLLUPS
+    AttendanceRollups(MongoCollection<Document> hourly, MongoCollection<Document> weekly, ZoneId zone,
+                      DurabilityPolicy policy) {
+        this.hourly = new TieredCollection<>(hourly, policy);
+        this.weekly = new TieredCollection<>(weekly, policy);
+        this.zone = zone;
+    }
+
+    void ensureIndexes(IndexManager indexes) {
+        indexes.ensure(hourly.base(), IndexManager.index("weekStart", Indexes.ascending("weekStart")));
+        indexes.ensure(weekly.base(), IndexManager.index("weekStart_member", Indexes.ascending("weekStart", "member")));
+    }
+
+    static LocalDate weekOf(LocalDate day) {
+        return day.with(DayOfWeek.MONDAY);
+    }
+
+    // -------------------- INCREMENTAL --------------------
+
+    /** Upserting $inc models for the hourly and the member-weekly rollup. */
+    record Writes(List<UpdateOneModel<Document>> hourly, List<UpdateOneModel<Document>> weekly) {}
+
+    /**
+     * Adds the events to both rollups, merged per bucket first.
+     */
+    void add(List<CheckInEvent> events) {
+        Writes w = writes(events, zone);
+        hourly.of(Operation.CHECK_IN).bulkWrite(w.hourly(), UNORDERED);
+        weekly.of(Operation.CHECK_IN).bulkWrite(w.weekly(), UNORDERED);
+    }
+
+    /**
+     * The rollup updates for {@code events}, for callers writing them on another driver.
+     */
+    static Writes writes(List<CheckInEvent> events, ZoneId zone) {
+        Map<String, int[]> hours = new LinkedHashMap<>();
+        Map<String, int[]> members = new LinkedHashMap<>();
+        Map<String, Document> keys = new LinkedHashMap<>();
+
+        for (CheckInEvent e : events) {
+            ZonedDateTime at = e.getAt().atZone(zone);
+            LocalDate week = weekOf(at.toLocalDate());
+            int dow = at.getDayOfWeek().getValue();
+
+            String h = week + "|" + dow + "|" + at.getHour();
+            if (hours.computeIfAbsent(h, k -> new int[1])[0]++ == 0) {
+                keys.put(h, new Document("weekStart", Dates.toBson(week)).append("dow", dow).append("hour", at.getHour()));
+            }
+            String m = e.getUsername() + "|" + week;
+            if (members.computeIfAbsent(m, k -> new int[1])[0]++ == 0) {
+                keys.put(m, new Document("member", e.getUsername()).append("weekStart", Dates.toBson(week)));
+            }
+        }
+
+        return new Writes(upserts(hours, keys), upserts(members, keys));
+    }
+
+    private static List<UpdateOneModel<Document>> upserts(Map<String, int[]> counts, Map<String, Document> keys) {
+        List<UpdateOneModel<Document>> models = new ArrayList<>(counts.size());
+        counts.forEach((id, n) -> {
+            List<Bson> updates = new ArrayList<>();
+            keys.get(id).forEach((field, value) -> updates.add(Updates.setOnInsert(field, value)));
+            updates.add(Updates.inc("count", n[0]));
+            models.add(new UpdateOneModel<>(Filters.eq("_id", id), Updates.combine(updates), UPSERT));
+        });
+        return models;
+    }
+
+    // -------------------- QUERIES --------------------
+
+    OccupancyHeatmap heatmap(LocalDate fromWeek, int weeks) {
+        long[][] counts = new long[7][24];
+        Bson inRange = Filters.and(
+                Filters.gte("weekStart", Dates.toBson(fromWeek)),
+                Filters.lt("weekStart", Dates.toBson(fromWeek.plusWeeks(weeks))));
+
+        for (Document d : hourly.of(Operation.ATTENDANCE_REPORT).aggregate(List.of(
+                Aggregates.match(inRange),
+                Aggregates.group(new Document("dow", "$dow").append("hour", "$hour"),
+                        Accumulators.sum("count", "$count"))))) {
+            Document id = d.get("_id", Document.class);
+            counts[id.getInteger("dow") - 1][id.getInteger("hour")] = ((Number) d.get("count")).longValue();
+        }
+        return new OccupancyHeatmap(fromWeek, weeks, counts);
+    }
+
+    /**
+     * Members whose visits in [recentFrom, recentFrom + windowWeeks) fell to at
+     * most {@code maxRatio} of the window before, among members with at least
+     * {@code minPrevious} visits then. Largest drop first.
+     */
+    List<ChurnRisk> churnRisks(LocalDate recentFrom, int windowWeeks, int minPrevious, double maxRatio, int limit) {
+        Object recentStart = Dates.toBson(recentFrom);
+        Bson inRange = Filters.and(
+                Filters.gte("weekStart", Dates.toBson(recentFrom.minusWeeks(windowWeeks))),
+                Filters.lt("weekStart", Dates.toBson(recentFrom.plusWeeks(windowWeeks))));
+        Document isRecent = new Document("$gte", List.of("$weekStart", recentStart));
+
+        List<Bson> pipeline = List.of(
+                Aggregates.match(inRange),
+                Aggregates.group("$member",
+                        Accumulators.sum("recent", new Document("$cond", List.of(isRecent, "$count", 0))),
+                        Accumulators.sum("previous", new Document("$cond", List.of(isRecent, 0, "$count")))),
+                Aggregates.match(Filters.and(
+                        Filters.gte("previous", minPrevious),
+                        Filters.expr(new Document("$lte", List.of("$recent",
+                                new Document("$multiply", List.of("$previous", maxRatio))))))),
+                Aggregates.addFields(new Field<>("lost",
+                        new Document("$subtract", List.of("$previous", "$recent")))),
+                Aggregates.sort(Sorts.orderBy(Sorts.descending("lost"), Sorts.ascending("_id"))),
+                Aggregates.limit(limit));
+
+        List<ChurnRisk> out = new ArrayList<>();
+        for (Document d : weekly.of(Operation.ATTENDANCE_REPORT).aggregate(pipeline)) {
+            out.add(new ChurnRisk(d.getString("_id"),
+                    ((Number) d.get("previous")).intValue(),
+                    ((Number) d.get("recent")).intValue()));
+        }
+        return out;
+    }
+
+    // -------------------- REBUILD --------------------
+
+    /**
+     * Recomputes both rollups from the raw events on the server. Run it
+     * while check-ins are paused, e.g. once after enabling the rollups.
+     */
+    void rebuild(MongoCollection<Document> events) {
+        hourly.of(Operation.REBUILD_ATTENDANCE_ROLLUPS).deleteMany(new Document());
+        weekly.of(Operation.REBUILD_ATTENDANCE_ROLLUPS).deleteMany(new Document());
+        String tz = zone.getId();
+
+        // the Monday as a UTC-midnight date, like Dates.toBson(LocalDate)
+        Document weekStart = new Document("$dateFromString", new Document("dateString",
+                new Document("$dateToString", new Document("date",
+                        new Document("$dateTrunc", new Document("date", "$ts").append("unit", "week")
+                                .append("startOfWeek", "monday").append("timezone", tz)))
+                        .append("format", "%Y-%m-%d").append("timezone", tz)))
+                .append("timezone", "UTC"));
+
+        events.aggregate(List.of(
+                Aggregates.group(new Document("ts", new Document("$dateTrunc",
+                                new Document("date", "$ts").append("unit", "hour").append("timezone", tz))),
+                        Accumulators.sum("count", 1)),
+                Aggregates.project(new Document("_id", 0)
+                        .append("ts", "$_id.ts")
+                        .append("count", 1)),
+                Aggregates.addFields(new Field<>("weekStart", weekStart)),
+                Aggregates.group(new Document("weekStart", "$weekStart")
+                                .append("dow", new Document("$isoDayOfWeek", new Document("date", "$ts").append("timezone", tz)))
+                                .append("hour", new Document("$hour", new Document("date", "$ts").append("timezone", tz))),
+                        Accumulators.sum("count", "$count")),
+                Aggregates.project(new Document("_id", new Document("$concat", List.of(
+                                new Document("$dateToString", new Document("date", "$_id.weekStart").append("format", "%Y-%m-%d")),
+                                "|", new Document("$toString", "$_id.dow"),
+                                "|", new Document("$toString", "$_id.hour"))))
+                        .append("weekStart", "$_id.weekStart")
+                        .append("dow", "$_id.dow")
+                        .append("hour", "$_id.hour")
+                        .append("count", 1)),
+                Aggregates.merge(hourly.base().getNamespace().getCollectionName(), new MergeOptions()
+                        .whenMatched(MergeOptions.WhenMatched.REPLACE)
+                        .whenNotMatched(MergeOptions.WhenNotMatched.INSERT))
+        )).toCollection();
+
+        events.aggregate(List.of(
+                Aggregates.addFields(new Field<>("weekStart", weekStart)),
+                Aggregates.group(new Document("member", "$member").append("weekStart", "$weekStart"),
+                        Accumulators.sum("count", 1)),
+                Aggregates.project(new Document("_id", new Document("$concat", List.of("$_id.member", "|",
+                                new Document("$dateToString", new Document("date", "$_id.weekStart").append("format", "%Y-%m-%d")))))
+                        .append("member", "$_id.member")
+                        .append("weekStart", "$_id.weekStart")
+                        .append("count", 1)),
+                Aggregates.merge(weekly.base().getNamespace().getCollectionName(), new MergeOptions()
+                        .whenMatched(MergeOptions.WhenMatched.REPLACE)
+                        .whenNotMatched(MergeOptions.WhenNotMatched.INSERT))
+        )).toCollection();
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.repo;
+
+import java.util.List;
+
+/**
+ * Outcome of one unordered bulk insert.
+ *
+ * @param inserted   documents written
+ * @param duplicates documents rejected by a unique index (already stored)
+ * @param failed     documents rejected for any other reason
+ * @param rejected   positions in the batch of the duplicate and failed documents
+ */
+public record BulkInsertResult(int inserted, int duplicates, int failed, List<Integer> rejected) {
+
+    public static final BulkInsertResult EMPTY = new BulkInsertResult(0, 0, 0, List.of());
+
+    public int total() {
+        return inserted + duplicates + failed;
+    }
+
+    /**
+     * Sums counts; positions are batch-relative so they are not carried over.
+     */
+    public BulkInsertResult plus(BulkInsertResult other) {
+        return new BulkInsertResult(inserted + other.inserted, duplicates + other.duplicates,
+                failed + other.failed, List.of());
+    }
+}
@@ -0,0 +1,522 @@
+package org.example.repo;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.example.model.Appointment;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming import and export between files and a collection.
+ *
+ * Import reads one row at a time (NDJSON by line, CSV by record) and upserts
+ * in chunks of unordered bulk writes keyed on the schema's key fields. Only
+ * the fields present in a row are $set, so a file that lacks passwords or
+ * attendance leaves them untouched on existing documents. Bad rows are
+ * counted and reported, never fatal. A CSV quote that never closes swallows
+ * the rest of the file; the rows before it are imported, and the report
+ * says where reading stopped ({@link ImportReport#stoppedAtLine}).
+ *
+ * Export walks a cursor and writes through a buffered channel writer into a
+ * temporary file that replaces the target when complete. Neither side holds
+ * more than one chunk in memory.
+ */
+final class BulkTransfer {
+
+    enum Type { STRING, INT, BOOL, DATE, TIME }
+
+    record Field(String name, Type type) {}
+
+    /**
+     * @param key       fields that identify a document; required on every row
+     * @param fields    every importable field, in export column order
+     * @param exportOff fields that are imported but never exported
+     * @param defaults  values given to new documents when the row leaves them out
+     * @param order     export sort; must be served by an index so the export never sorts in memory
+     */
+    record Schema(List<String> key, List<Field> fields, List<String> exportOff, Map<String, Object> defaults,
+                  String order) {
+
+        Field field(String name) {
+            for (Field f : fields) {
+                if (f.name().equals(name)) return f;
+            }
+            return null;
+        }
+
+        List<Field> exported() {
+            return fields.stream().filter(f -> !exportOff.contains(f.name())).toList();
+        }
+    }
+
+    static final Schema MEMBERS = new Schema(
+            List.of("username"),
+            List.of(new Field("username", Type.STRING),
+                    new Field("phone", Type.STRING),
+                    new Field("email", Type.STRING),
+                    new Field("age", Type.INT),
+                    new Field("gender", Type.STRING),
+                    new Field("address", Type.STRING),
+                    new Field("membershipType", Type.STRING),
+                    new Field("membershipStart", Type.DATE),
+                    new Field("membershipEnd", Type.DATE),
+                    new Field("attendance", Type.INT),
+                    new Field("isActive", Type.BOOL),
+                    new Field("freezed", Type.BOOL),
+                    new Field("password", Type.STRING)),
+            List.of("password"),
+            Map.of("role", "member", "attendance", 0, "isActive", true, "freezed", false),
+            "username");
+
+    // a slot holds one appointment per member; cancelled and scheduled rows for it collapse into one
+    static final Schema APPOINTMENTS = new Schema(
+            List.of("memberId", "date", "time"),
+            List.of(new Field("memberId", Type.STRING),
+                    new Field("date", Type.DATE),
+                    new Field("time", Type.TIME),
+                    new Field("trainerId", Type.STRING),
+                    new Field("appointmentName", Type.STRING),
+                    new Field("durationMinutes", Type.INT),
+                    new Field("status", Type.STRING),
+                    new Field("note", Type.STRING)),
+            List.of(),
+            Map.of("durationMinutes", Appointment.DEFAULT_DURATION_MINUTES, "status", Appointment.SCHEDULED),
+            "_id");
+
+    static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BulkTransfer() {}
+
+    // -------------------- IMPORT --------------------
+
+    static ImportReport importFile(MongoCollection<Document> collection, Schema schema,
+                                   Path file, TransferFormat format, int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException("chunkSize must be positive");
+
+        Importer importer = new Importer(collection, schema, chunkSize);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (format == TransferFormat.CSV) importCsv(in, importer);
+            else importNdjson(in, importer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+        return importer.finish();
+    }
+
+    private static void importNdjson(BufferedReader in, Importer importer) throws IOException {
+        long line = 0;
+        String text;
+        while ((text = in.readLine()) != null) {
+            line++;
+            if (text.isBlank()) continue;
+
+            Map<String, String> row = new LinkedHashMap<>();
+            try {
+                JsonElement parsed = JsonParser.parseString(text);
+                if (!parsed.isJsonObject()) throw new JsonParseException("not a JSON object");
+                for (Map.Entry<String, JsonElement> e : parsed.getAsJsonObject().entrySet()) {
+                    row.put(e.getKey(), text(e.getValue()));
+                }
+            } catch (JsonParseException | IllegalStateException e) {
+                importer.reject(line, "invalid JSON: " + e.getMessage());
+                continue;
+            }
+            importer.add(line, row);
+        }
+    }
+
+    private static String text(JsonElement v) {
+        if (v.isJsonNull()) return null;
+        if (v.isJsonPrimitive()) return v.getAsString();
+        throw new IllegalStateException("nested values are not supported");
+    }
+
+    private static void importCsv(BufferedReader in, Importer importer) throws IOException {
+        CsvReader csv = new CsvReader(in);
+        List<String> header = csv.next();
+        if (header == null) return;
+        if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) header.set(0, header.get(0).substring(1));
+        for (String column : header) {
+            if (importer.schema.field(column) == null)
+                throw new IllegalArgumentException("Unknown column: " + column);
+        }
+
+        List<String> values;
+        while (true) {
+            try {
+                values = csv.next();
+            } catch (IllegalArgumentException e) {
+                // the record runs to the end of the input, so there is nothing left to split into rows
+                importer.reject(csv.recordLine, e.getMessage() + "; nothing from this line on was imported");
+                importer.stoppedAtLine = csv.recordLine;
+                return;
+            }
+            if (values == null) return;
+            if (values.size() == 1 && values.get(0).isEmpty()) continue; // blank line
+
+            if (values.size() != header.size()) {
+                importer.reject(csv.recordLine, "expected " + header.size() + " columns, got " + values.size());
+                continue;
+            }
+            Map<String, String> row = new LinkedHashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                row.put(header.get(i), values.get(i));
+            }
+            importer.add(csv.recordLine, row);
+        }
+    }
+
+    /**
+     * Turns rows into upserts and writes them one chunk at a time.
+     */
+    private static final class Importer {
+        final MongoCollection<Document> collection;
+        final Schema schema;
+        final int chunkSize;
+
+        final List<UpdateOneModel<Document>> chunk = new ArrayList<>();
+        final List<Long> chunkRows = new ArrayList<>();
+        final List<ImportReport.RowError> errors = new ArrayList<>();
+        long rows, inserted, updated, failed;
+        long stoppedAtLine;
+
+        Importer(MongoCollection<Document> collection, Schema schema, int chunkSize) {
+            this.collection = collection;
+            this.schema = schema;
+            this.chunkSize = chunkSize;
+        }
+
+        void add(long line, Map<String, String> row) {
+            rows++;
+            UpdateOneModel<Document> model;
+            try {
+                model = upsert(schema, row);
+            } catch (IllegalArgumentException e) {
+                error(line, e.getMessage());
+                return;
+            }
+            chunk.add(model);
+            chunkRows.add(line);
+            if (chunk.size() == chunkSize) flush();
+        }
+
+        void reject(long line, String message) {
+            rows++;
+            error(line, message);
+        }
+
+        private void error(long line, String message) {
+            failed++;
+            if (errors.size() < ImportReport.MAX_ERRORS) errors.add(new ImportReport.RowError(line, message));
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) return;
+            try {
+                count(collection.bulkWrite(chunk, UNORDERED));
+            } catch (MongoBulkWriteException e) {
+                count(e.getWriteResult());
+                for (BulkWriteError err : e.getWriteErrors()) {
+                    error(chunkRows.get(err.getIndex()), err.getMessage());
+                }
+            }
+            chunk.clear();
+            chunkRows.clear();
+        }
+
+        private void count(BulkWriteResult result) {
+            inserted += result.getUpserts().size();
+            updated += result.getMatchedCount();
+        }
+
+        ImportReport finish() {
+            flush();
+            // errors from a chunk are reported after earlier parse errors; keep file order
+            errors.sort((a, b) -> Long.compare(a.row(), b.row()));
+            return new ImportReport(rows, inserted, updated, failed, List.copyOf(errors), stoppedAtLine);
+        }
+    }
+
+    static UpdateOneModel<Document> upsert(Schema schema, Map<String, String> row) {
+        Document values = new Document();
+        for (Map.Entry<String, String> e : row.entrySet()) {
+            Field f = schema.field(e.getKey());
+            if (f == null) throw new IllegalArgumentException("unknown field " + e.getKey());
+            String raw = e.getValue();
+            if (raw == null || raw.isBlank()) continue;
+            Object value = parse(f, raw.trim());
+            if (value != null) values.append(f.name(), value);
+        }
+
+        List<Bson> key = new ArrayList<>(schema.key().size());
+        for (String k : schema.key()) {
+            if (!values.containsKey(k)) throw new IllegalArgumentException("missing " + k);
+            key.add(Filters.eq(k, values.get(k)));
+        }
+
+        List<Bson> updates = new ArrayList<>();
+        values.forEach((name, value) -> {
+            if (!schema.key().contains(name)) updates.add(Updates.set(name, value));
+        });
+        schema.defaults().forEach((name, value) -> {
+            if (!values.containsKey(name)) updates.add(Updates.setOnInsert(name, value));
+        });
+        return new UpdateOneModel<>(Filters.and(key), Updates.combine(updates), UPSERT);
+    }
+
+    private static Object parse(Field f, String raw) {
+        switch (f.type()) {
+            case STRING:
+                return raw;
+            case INT:
+                try {
+                    return Integer.parseInt(raw);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(f.name() + " is not an integer: " + raw);
+                }
+            case BOOL:
+                if (raw.equalsIgnoreCase("true")) return true;
+                if (raw.equalsIgnoreCase("false")) return false;
+                throw new IllegalArgumentException(f.name() + " is not true/false: " + raw);
+            case DATE: {
+                if (Dates.isPlaceholder(raw)) return null;
+                LocalDate d = Dates.parseDate(raw);
+                if (d == null) throw new IllegalArgumentException(f.name() + " is not a yyyy-mm-dd date: " + raw);
+                return Dates.toBson(d);
+            }
+            case TIME: {
+                if (Dates.isPlaceholder(raw)) return null;
+                LocalTime t = Dates.parseTime(raw);
+                if (t == null) throw new IllegalArgumentException(f.name() + " is not an HH:MM time: " + raw);
+                return Dates.toBson(t);
+            }
+            default:
+                throw new IllegalStateException("Unhandled type " + f.type());
+        }
+    }
+
+    /**
+     * Reads RFC 4180 records one at a time: quoted fields may hold commas,
+     * doubled quotes and line breaks.
+     */
+    static final class CsvReader {
+        private final Reader in;
+        private int pending = -2; // one character of look-ahead, -2 = none
+        private long line = 1;
+        long recordLine;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        /** The next record, or null at end of input. */
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) return null;
+            recordLine = line;
+
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+
+            while (true) {
+                if (quoted) {
+                    if (c == -1) throw new IllegalArgumentException("unterminated quote");
+                    if (c == '"') {
+                        int n = read();
+                        if (n == '"') {
+                            value.append('"');
+                        } else {
+                            quoted = false;
+                            pending = n;
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        value.append((char) c);
+                    }
+                } else if (c == '"' && value.isEmpty() && !wasQuoted) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int n = read();
+                        if (n != '\n') pending = n;
+                    }
+                    if (c != -1) line++;
+                    values.add(value.toString());
+                    return values;
+                } else {
+                    value.append((char) c);
+                }
+                c = read();
+            }
+        }
+    }
+
+    // -------------------- EXPORT --------------------
+
+    /**
+     * Writes every document, ordered by the schema key, and returns how many
+     * were written. The target only changes once the whole file is written.
+     */
+    static long exportFile(MongoCollection<Document> collection, Schema schema, Path file, TransferFormat format) {
+        List<Field> fields = schema.exported();
+        Bson projection = Projections.fields(
+                Projections.include(fields.stream().map(Field::name).toList()), Projections.excludeId());
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long written;
+        try {
+            written = writeExport(collection, schema, fields, projection, tmp, format);
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + file, e);
+        } finally {
+            // gone after a successful move; otherwise a partial file
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                System.err.println("Cannot delete " + tmp + ": " + e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    private static long writeExport(MongoCollection<Document> collection, Schema schema, List<Field> fields,
+                                    Bson projection, Path tmp, TransferFormat format) throws IOException {
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+             MongoCursor<Document> cursor = collection.find()
+                     .projection(projection)
+                     .sort(Sorts.ascending(schema.order()))
+                     .batchSize(DEFAULT_CHUNK_SIZE)
+                     .iterator()) {
+
+            if (format == TransferFormat.CSV) {
+                writeCsvRow(out, fields.stream().map(Field::name).toList());
+            }
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                if (format == TransferFormat.CSV) writeCsv(out, fields, d);
+                else writeJson(out, fields, d);
+                written++;
+            }
+            out.flush();
+            channel.force(false);
+        }
+        return written;
+    }
+
+    private static void writeJson(Writer out, List<Field> fields, Document d) throws IOException {
+        // JsonWriter does not buffer, so the line break can go straight to out
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        for (Field f : fields) {
+            Object v = value(f, d);
+            if (v == null) continue;
+            json.name(f.name());
+            if (v instanceof Number n) json.value(n);
+            else if (v instanceof Boolean b) json.value(b);
+            else json.value(v.toString());
+        }
+        json.endObject();
+        json.flush();
+        out.write('\n');
+    }
+
+    private static void writeCsv(Writer out, List<Field> fields, Document d) throws IOException {
+        List<String> values = new ArrayList<>(fields.size());
+        for (Field f : fields) {
+            Object v = value(f, d);
+            values.add(v == null ? "" : v.toString());
+        }
+        writeCsvRow(out, values);
+    }
+
+    private static void writeCsvRow(Writer out, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) out.write(',');
+            String v = values.get(i);
+            if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(v.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(v);
+            }
+        }
+        out.write("\r\n");
+    }
+
+    // the stored value in the form the importer reads back
+    private static Object value(Field f, Document d) {
+        Object v = d.get(f.name());
+        if (v == null) return null;
+        return switch (f.type()) {
+            case DATE -> Dates.toLocalDate(v);
+            case TIME -> Dates.toLocalTime(v);
+            case BOOL -> v instanceof Boolean ? v : Boolean.parseBoolean(v.toString().toLowerCase(Locale.ROOT));
+            default -> v;
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.repo;
+
+import org.example.model.CheckInEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Stores the events of single check-ins behind the caller's back, in
+ * batches, so {@link ReceptionistRepository#incrementAttendance} costs one
+ * round trip. The writer thread starts with the first event.
+ *
+ * When the queue is full, or after {@link #close()}, an event is written on
+ * the caller's thread instead. {@link #close()} returns once everything
+ * queued has been handed to the sink.
+ */
+final class CheckInEventWriter implements AutoCloseable {
+
+    static final int CAPACITY = 10_000;
+    static final int MAX_BATCH = 500;
+    private static final long POLL_MS = 50;
+
+    private final Consumer<List<CheckInEvent>> sink;
+    private final BlockingQueue<CheckInEvent> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private Thread writer;  // guarded by this
+    private boolean closed; // guarded by this; the writer reads it through isClosed()
+
+    CheckInEventWriter(Consumer<List<CheckInEvent>> sink) {
+        this.sink = sink;
+    }
+
+    void add(CheckInEvent e) {
+        synchronized (this) {
+            if (!closed) {
+                if (writer == null) start();
+                if (queue.offer(e)) return;
+            }
+        }
+        sink.accept(List.of(e));
+    }
+
+    private void start() {
+        writer = new Thread(this::drainLoop, "check-in-events");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private void drainLoop() {
+        List<CheckInEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (!isClosed() || !queue.isEmpty()) {
+            try {
+                CheckInEvent first = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+            } catch (InterruptedException e) {
+                // shutdown is driven by the closed flag; keep draining
+            }
+            if (batch.isEmpty()) continue;
+            try {
+                sink.accept(batch);
+            } catch (RuntimeException e) {
+                System.err.println(batch.size() + " check-in events not stored: " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread w;
+        synchronized (this) {
+            closed = true;
+            w = writer;
+        }
+        if (w == null) return;
+        try {
+            w.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.repo;
+
+/**
+ * A member whose visits dropped between two equally long windows of weeks.
+ *
+ * @param previousVisits visits in the earlier window
+ * @param recentVisits   visits in the window ending last week
+ */
+public record ChurnRisk(String username, int previousVisits, int recentVisits) {
+
+    /** Share of the earlier visit rate that was lost, 0..1. */
+    public double drop() {
+        return previousVisits == 0 ? 0 : 1 - (double) recentVisits / previousVisits;
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.repo;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Turns driver cursors into lazy streams and keyset pages.
+ * Documents are decoded one batch at a time; the caller must close the
+ * stream (try-with-resources) to release the server cursor early.
+ */
+final class Cursors {
+
+    private Cursors() {}
+
+    static <D, T> Stream<T> stream(MongoIterable<D> iterable, Function<D, T> mapper) {
+        MongoCursor<D> cursor = iterable.iterator();
+        Spliterator<D> split = Spliterators.spliteratorUnknownSize(
+                cursor, Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(split, false)
+                .onClose(cursor::close)
+                .map(mapper);
+    }
+
+    /**
+     * Reads one page ordered by an indexed, unique key, starting after the
+     * key encoded in the token. Seeks with $gt instead of skip(), so every
+     * page costs the same no matter how deep the caller has paged.
+     *
+     * The key is either "_id" (token = ObjectId hex) or a unique string field
+     * (token = the last value itself).
+     */
+    static <T> Page<T> page(MongoCollection<Document> collection,
+                            String key,
+                            int pageSize,
+                            String afterToken,
+                            Function<Document, T> mapper) {
+        return page(collection, key, pageSize, afterToken, null, null, mapper, d -> d.get(key));
+    }
+
+    /**
+     * Same as above, returning only the projected fields and forcing the
+     * named index, so a projection the index holds is served from the index
+     * alone. The projection must keep {@code key}.
+     */
+    static <T> Page<T> page(MongoCollection<Document> collection,
+                            String key,
+                            int pageSize,
+                            String afterToken,
+                            Bson projection,
+                            String indexName,
+                            Function<Document, T> mapper) {
+        return page(collection, key, pageSize, afterToken, projection, indexName, mapper, d -> d.get(key));
+    }
+
+    /**
+     * Same as above for typed collections; keyOf reads the key back from a decoded document.
+     */
+    static <D, T> Page<T> page(MongoCollection<D> collection,
+                               String key,
+                               int pageSize,
+                               String afterToken,
+                               Function<D, T> mapper,
+                               Function<D, Object> keyOf) {
+        return page(collection, key, pageSize, afterToken, null, null, mapper, keyOf);
+    }
+
+    private static <D, T> Page<T> page(MongoCollection<D> collection,
+                                       String key,
+                                       int pageSize,
+                                       String afterToken,
+                                       Bson projection,
+                                       String indexName,
+                                       Function<D, T> mapper,
+                                       Function<D, Object> keyOf) {
+
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+
+        Bson filter = afterToken == null
+                ? new Document()
+                : Filters.gt(key, "_id".equals(key) ? new ObjectId(afterToken) : afterToken);
+
+        List<T> items = new ArrayList<>(pageSize);
+        Object lastKey = null;
+        boolean more = false;
+
+        // one extra document tells us whether another page exists
+        try (MongoCursor<D> cursor = collection.find(filter)
+                .projection(projection)
+                .hintString(indexName)
+                .sort(Sorts.ascending(key))
+                .limit(pageSize + 1)
+                .iterator()) {
+
+            while (cursor.hasNext()) {
+                D d = cursor.next();
+                if (items.size() == pageSize) {
+                    more = true;
+                    break;
+                }
+                items.add(mapper.apply(d));
+                lastKey = keyOf.apply(d);
+            }
+        }
+
+        String next = more ? tokenOf(lastKey) : null;
+        return new Page<>(items, next);
+    }
+
+    private static String tokenOf(Object key) {
+        return key instanceof ObjectId id ? id.toHexString() : String.valueOf(key);
+    }
+
+    static final int MAX_PAGE_SIZE = 1000;
+}
@@ -0,0 +1,151 @@
+package org.example.repo;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Rewrites legacy string dates in place: membership dates and appointment
+ * dates become BSON dates, appointment times become minute-of-day ints.
+ * Placeholders ("0", "null", "") become null. Unparseable values are left
+ * as they are and listed in the report, so nothing is lost; the readers
+ * treat them as missing until they are fixed by hand.
+ *
+ * Only documents that still hold a string in one of the fields are read,
+ * so the job is idempotent. Documents are updated in unordered bulk writes
+ * of {@code batchSize}, by _id, and only the string fields are touched.
+ *
+ * Finding those documents still scans the collection, so a startup run is
+ * gated by a marker document: see {@link #isCompleted} and {@link #markCompleted}.
+ */
+public class DateMigration {
+
+    /**
+     * @param unparseableValues up to {@link #MAX_REPORTED} of the values left in place,
+     *                          as "_id field=value"
+     */
+    public record Report(String collection, long scanned, long updated, long unparseable,
+                         List<String> unparseableValues) {}
+
+    /** _id of the marker document written once the migration has run. */
+    public static final String MARKER_ID = "string-dates-to-bson";
+
+    static final int MAX_REPORTED = 100;
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final int batchSize;
+
+    public DateMigration(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive");
+        this.batchSize = batchSize;
+    }
+
+    public DateMigration() {
+        this(1_000);
+    }
+
+    /**
+     * membershipStart / membershipEnd to BSON dates, and the literal "null" membershipType to null.
+     * Works on both the members collection and the users collection.
+     */
+    public Report migrateMembers(MongoCollection<Document> collection) {
+        return migrate(collection, List.of("membershipStart", "membershipEnd", "membershipType"));
+    }
+
+    /**
+     * date to a BSON date and time to minute-of-day.
+     */
+    public Report migrateAppointments(MongoCollection<Document> collection) {
+        return migrate(collection, List.of("date", "time"));
+    }
+
+    // -------------------- COMPLETION MARKER --------------------
+
+    /**
+     * True once {@link #markCompleted} was called on {@code migrations}.
+     */
+    public boolean isCompleted(MongoCollection<Document> migrations) {
+        return migrations.countDocuments(Filters.eq("_id", MARKER_ID)) > 0;
+    }
+
+    /**
+     * Records that every collection was migrated, with the number of values
+     * left unparsed. Delete the document to run the migration again.
+     */
+    public void markCompleted(MongoCollection<Document> migrations, List<Report> reports) {
+        long unparseable = 0;
+        for (Report r : reports) {
+            unparseable += r.unparseable();
+        }
+        migrations.replaceOne(Filters.eq("_id", MARKER_ID),
+                new Document("_id", MARKER_ID)
+                        .append("completedAt", new Date())
+                        .append("unparseable", unparseable),
+                new ReplaceOptions().upsert(true));
+    }
+
+    // -------------------- MIGRATION --------------------
+
+    private Report migrate(MongoCollection<Document> collection, List<String> fields) {
+        List<Bson> legacy = new ArrayList<>();
+        for (String f : fields) {
+            legacy.add(f.equals("membershipType") ? Filters.eq(f, "null") : Filters.type(f, BsonType.STRING));
+        }
+
+        long scanned = 0, updated = 0, unparseable = 0;
+        List<String> unparseableValues = new ArrayList<>();
+        List<UpdateOneModel<Document>> batch = new ArrayList<>(batchSize);
+
+        for (Document d : collection.find(Filters.or(legacy))
+                .projection(Projections.include(fields))
+                .sort(Sorts.ascending("_id"))
+                .batchSize(batchSize)) {
+            scanned++;
+
+            List<Bson> sets = new ArrayList<>();
+            for (String f : fields) {
+                if (!(d.get(f) instanceof String raw)) continue;
+
+                if (f.equals("membershipType")) {
+                    if (raw.equals("null")) sets.add(Updates.set(f, null));
+                    continue; // a real membership type stays as it is
+                }
+
+                Object value = f.equals("time") ? Dates.toBson(Dates.parseTime(raw)) : Dates.toBson(Dates.parseDate(raw));
+                if (value == null && !Dates.isPlaceholder(raw)) {
+                    unparseable++;
+                    if (unparseableValues.size() < MAX_REPORTED)
+                        unparseableValues.add(d.get("_id") + " " + f + "=\"" + raw + "\"");
+                    continue;
+                }
+                sets.add(Updates.set(f, value));
+            }
+            if (sets.isEmpty()) continue;
+
+            batch.add(new UpdateOneModel<>(Filters.eq("_id", d.get("_id")), Updates.combine(sets)));
+            if (batch.size() == batchSize) {
+                updated += collection.bulkWrite(batch, UNORDERED).getModifiedCount();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            updated += collection.bulkWrite(batch, UNORDERED).getModifiedCount();
+        }
+
+        return new Report(collection.getNamespace().getFullName(), scanned, updated, unparseable,
+                List.copyOf(unparseableValues));
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.repo;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * How dates and times are stored: calendar dates as BSON dates at UTC
+ * midnight, times of day as an int minute-of-day. Both sort and range-query
+ * correctly on the server.
+ *
+ * The readers also accept the legacy string forms ("yyyy-mm-dd", "HH:MM"),
+ * so documents written before {@link DateMigration} ran still decode.
+ * Placeholders such as "0", "null" or "" read as null.
+ */
+final class Dates {
+
+    private Dates() {}
+
+    static Date toBson(LocalDate date) {
+        return date == null ? null : Date.from(date.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    static Integer toBson(LocalTime time) {
+        return time == null ? null : time.getHour() * 60 + time.getMinute();
+    }
+
+    static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date d) return d.toInstant().atZone(ZoneOffset.UTC).toLocalDate();
+        if (value instanceof String s) return parseDate(s);
+        return null;
+    }
+
+    static LocalTime toLocalTime(Object value) {
+        if (value instanceof Number n) return minuteOfDay(n.intValue());
+        if (value instanceof String s) return parseTime(s);
+        return null;
+    }
+
+    static LocalTime minuteOfDay(int minute) {
+        return minute < 0 || minute >= 24 * 60 ? null : LocalTime.of(minute / 60, minute % 60);
+    }
+
+    /**
+     * ISO date, or null for blanks, placeholders and anything unparseable.
+     */
+    static LocalDate parseDate(String s) {
+        if (isPlaceholder(s)) return null;
+        try {
+            return LocalDate.parse(s.trim());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * "HH:MM" (a one-digit hour is accepted), or null if it isn't a valid time.
+     */
+    static LocalTime parseTime(String s) {
+        if (isPlaceholder(s)) return null;
+        String[] parts = s.trim().split(":");
+        if (parts.length != 2) return null;
+        try {
+            int h = Integer.parseInt(parts[0]);
+            int m = Integer.parseInt(parts[1]);
+            return h < 0 || h > 23 || m < 0 || m > 59 ? null : LocalTime.of(h, m);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static boolean isPlaceholder(String s) {
+        if (s == null) return true;
+        String t = s.trim();
+        return t.isEmpty() || t.equals("0") || t.equalsIgnoreCase("null");
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.repo;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Assigns a {@link Tier} to every {@link Operation}. Repositories take a
+ * policy in their constructor and route each operation through a
+ * collection view of its tier, so call sites never pass write concerns or
+ * read preferences themselves.
+ *
+ * Immutable; {@link #with} returns a changed copy.
+ */
+public final class DurabilityPolicy {
+
+    private static final String PREFIX = "gym.durability.";
+
+    private final EnumMap<Operation, Tier> tiers;
+
+    private DurabilityPolicy(EnumMap<Operation, Tier> tiers) {
+        this.tiers = tiers;
+    }
+
+    /** Every operation at its {@link Operation#defaultTier()}. */
+    public static DurabilityPolicy defaults() {
+        EnumMap<Operation, Tier> tiers = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            tiers.put(op, op.defaultTier());
+        }
+        return new DurabilityPolicy(tiers);
+    }
+
+    /**
+     * {@link #defaults()}, overridden by system properties such as
+     * {@code -Dgym.durability.REVENUE_REPORT=STANDARD}.
+     */
+    public static DurabilityPolicy fromSystemProperties() {
+        DurabilityPolicy policy = defaults();
+        for (Operation op : Operation.values()) {
+            String tier = System.getProperty(PREFIX + op.name());
+            if (tier != null) policy = policy.with(op, Tier.valueOf(tier.trim().toUpperCase(Locale.ROOT)));
+        }
+        return policy;
+    }
+
+    public DurabilityPolicy with(Operation op, Tier tier) {
+        EnumMap<Operation, Tier> copy = new EnumMap<>(tiers);
+        copy.put(op, tier);
+        return new DurabilityPolicy(copy);
+    }
+
+    public Tier tier(Operation op) {
+        return tiers.get(op);
+    }
+
+    public Map<Operation, Tier> asMap() {
+        return Map.copyOf(tiers);
+    }
+
+    @Override
+    public String toString() {
+        return tiers.toString();
+    }
+}
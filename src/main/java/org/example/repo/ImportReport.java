@@ -0,0 +1,34 @@
+package org.example.repo;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import.
+ *
+ * @param rows     data rows read, good or bad
+ * @param inserted rows that created a new document
+ * @param updated  rows that matched an existing document
+ * @param failed   rows rejected while parsing or by the server
+ * @param errors   the first {@link #MAX_ERRORS} rejected rows, in file order
+ * @param stoppedAtLine 0 if the whole file was read; otherwise the line of a
+ *                      record that could not be split into fields (a quote
+ *                      that never closes), from which on nothing was imported
+ */
+public record ImportReport(long rows, long inserted, long updated, long failed, List<RowError> errors,
+                           long stoppedAtLine) {
+
+    public static final int MAX_ERRORS = 1_000;
+
+    /**
+     * @param row 1-based line number in the file (for CSV, the line the record starts on)
+     */
+    public record RowError(long row, String message) {}
+
+    public boolean hasErrors() {
+        return failed > 0 || !isComplete();
+    }
+
+    public boolean isComplete() {
+        return stoppedAtLine == 0;
+    }
+}
@@ -0,0 +1,239 @@
+package org.example.repo;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Creates the indexes each repository declares and checks that the hot
+ * queries are actually served by them.
+ *
+ * Index creation is idempotent: existing indexes with the same name and
+ * options are left alone, indexes whose options changed are rebuilt, and
+ * only missing ones are created. Every problem is collected in
+ * {@link #problems()} instead of aborting startup.
+ */
+public class IndexManager {
+
+    private final List<String> created = new ArrayList<>();
+    private final List<String> problems = new ArrayList<>();
+
+    // -------------------- BOOTSTRAP --------------------
+
+    /**
+     * Ensures and verifies the indexes of every given repository.
+     */
+    public static IndexManager bootstrap(IndexedRepository... repositories) {
+        IndexManager manager = new IndexManager();
+        for (IndexedRepository r : repositories) {
+            r.ensureIndexes(manager);
+        }
+        for (IndexedRepository r : repositories) {
+            r.verifyIndexes(manager);
+        }
+        return manager;
+    }
+
+    // -------------------- CREATION --------------------
+
+    /**
+     * Creates the missing indexes of a collection.
+     * Every model must carry an explicit name so it can be matched
+     * against what is already on the server.
+     */
+    public void ensure(MongoCollection<Document> collection, IndexModel... wanted) {
+        Map<String, Document> existing = new HashMap<>();
+        for (Document d : collection.listIndexes()) {
+            existing.put(d.getString("name"), d);
+        }
+
+        List<IndexModel> missing = new ArrayList<>();
+        for (IndexModel model : wanted) {
+            String name = Objects.requireNonNull(model.getOptions().getName(), "index name is required");
+            Document current = existing.get(name);
+
+            if (current == null) {
+                missing.add(model);
+            } else if (!sameKeys(current, model.getKeys()) || !sameOptions(current, model.getOptions())) {
+                try {
+                    collection.dropIndex(name);
+                    missing.add(model);
+                } catch (MongoCommandException e) {
+                    problems.add(ns(collection) + "." + name + ": cannot rebuild (" + e.getErrorMessage() + ")");
+                }
+            }
+        }
+
+        for (IndexModel model : missing) {
+            try {
+                collection.createIndexes(List.of(model));
+                created.add(ns(collection) + "." + model.getOptions().getName());
+            } catch (MongoCommandException e) {
+                // e.g. duplicate keys already stored under a unique index
+                problems.add(ns(collection) + "." + model.getOptions().getName() + ": " + e.getErrorMessage());
+            }
+        }
+    }
+
+    private static boolean sameKeys(Document current, Bson wanted) {
+        BsonDocument keys = current.get("key", Document.class).toBsonDocument();
+        BsonDocument wantedKeys = wanted.toBsonDocument();
+
+        // the server stores text keys as _fts/_ftsx; those indexes are compared by their weights
+        if (wantedKeys.values().stream().anyMatch(v -> v.isString() && v.asString().getValue().equals("text")))
+            return keys.containsKey("_fts");
+
+        // same fields in the same order
+        List<String> order = new ArrayList<>(keys.keySet());
+        if (!order.equals(new ArrayList<>(wantedKeys.keySet()))) return false;
+        for (String field : order) {
+            BsonValue a = keys.get(field);
+            BsonValue b = wantedKeys.get(field);
+            // 1 and 1.0 are the same direction
+            boolean same = a.isNumber() && b.isNumber()
+                    ? a.asNumber().doubleValue() == b.asNumber().doubleValue()
+                    : a.equals(b);
+            if (!same) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameOptions(Document current, IndexOptions wanted) {
+        boolean unique = current.getBoolean("unique", false);
+        if (unique != wanted.isUnique()) return false;
+
+        Bson wantedWeights = wanted.getWeights();
+        if (wantedWeights != null) {
+            Document weights = current.get("weights", Document.class);
+            if (weights == null || !weights.toBsonDocument().equals(wantedWeights.toBsonDocument())) return false;
+        }
+
+        Document partial = current.get("partialFilterExpression", Document.class);
+        Bson wantedPartial = wanted.getPartialFilterExpression();
+        if (partial == null || wantedPartial == null) return partial == null && wantedPartial == null;
+
+        return partial.toBsonDocument().equals(wantedPartial.toBsonDocument());
+    }
+
+    // -------------------- VERIFICATION --------------------
+
+    /**
+     * Explains a query and records a problem if its winning plan scans the whole collection.
+     */
+    public void expectIndexScan(MongoCollection<Document> collection, String query, Bson filter) {
+        expectIndexScan(collection, query, filter, null);
+    }
+
+    public void expectIndexScan(MongoCollection<Document> collection, String query, Bson filter, Bson sort) {
+        try {
+            Document explain = collection.find(filter).sort(sort).explain();
+            Document planner = explain.get("queryPlanner", Document.class);
+            Object winning = planner == null ? null : planner.get("winningPlan");
+
+            List<String> stages = new ArrayList<>();
+            collectStages(winning, stages);
+
+            if (stages.contains("COLLSCAN")) {
+                problems.add(ns(collection) + ": " + query + " uses COLLSCAN " + stages);
+            }
+        } catch (MongoCommandException e) {
+            problems.add(ns(collection) + ": cannot explain " + query + " (" + e.getErrorMessage() + ")");
+        }
+    }
+
+    /**
+     * Explains a projected query and records a problem unless the index
+     * answers it alone: any FETCH or COLLSCAN stage means documents are read.
+     */
+    public void expectCovered(MongoCollection<Document> collection, String query,
+                              Bson filter, Bson projection, Bson sort, String indexName) {
+        try {
+            Document explain = collection.find(filter).projection(projection).sort(sort).hintString(indexName).explain();
+            Document planner = explain.get("queryPlanner", Document.class);
+            Object winning = planner == null ? null : planner.get("winningPlan");
+
+            List<String> stages = new ArrayList<>();
+            collectStages(winning, stages);
+
+            if (stages.contains("FETCH") || stages.contains("COLLSCAN")) {
+                problems.add(ns(collection) + ": " + query + " is not covered " + stages);
+            }
+        } catch (MongoCommandException e) {
+            problems.add(ns(collection) + ": cannot explain " + query + " (" + e.getErrorMessage() + ")");
+        }
+    }
+
+    private static void collectStages(Object node, List<String> out) {
+        if (node instanceof Document d) {
+            Object stage = d.get("stage");
+            if (stage instanceof String s) out.add(s);
+            for (Object child : d.values()) {
+                collectStages(child, out);
+            }
+        } else if (node instanceof List<?> l) {
+            for (Object child : l) {
+                collectStages(child, out);
+            }
+        }
+    }
+
+    // -------------------- REPORT --------------------
+
+    public List<String> created() {
+        return List.copyOf(created);
+    }
+
+    public List<String> problems() {
+        return List.copyOf(problems);
+    }
+
+    public boolean isHealthy() {
+        return problems.isEmpty();
+    }
+
+    private static String ns(MongoCollection<Document> c) {
+        return c.getNamespace().getFullName();
+    }
+
+    static IndexModel index(String name, Bson keys) {
+        return new IndexModel(keys, new IndexOptions().name(name));
+    }
+
+    static IndexModel uniqueIndex(String name, Bson keys) {
+        return new IndexModel(keys, new IndexOptions().name(name).unique(true));
+    }
+
+    /**
+     * One text index over the given string fields; a match in a field counts
+     * its weight times towards the text score. English stemming and stop words.
+     */
+    static IndexModel textIndex(String name, Map<String, Integer> weights) {
+        List<Bson> keys = new ArrayList<>();
+        Document w = new Document();
+        weights.forEach((field, weight) -> {
+            keys.add(Indexes.text(field));
+            w.append(field, weight);
+        });
+        return new IndexModel(Indexes.compoundIndex(keys),
+                new IndexOptions().name(name).weights(w).defaultLanguage("english"));
+    }
+
+    /**
+     * Unique only among documents matching {@code partialFilter}.
+     */
+    static IndexModel uniqueIndex(String name, Bson keys, Bson partialFilter) {
+        return new IndexModel(keys, new IndexOptions().name(name).unique(true).partialFilterExpression(partialFilter));
+    }
+}
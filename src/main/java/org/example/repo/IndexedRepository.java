@@ -0,0 +1,17 @@
+package org.example.repo;
+
+/**
+ * A repository that declares the indexes its queries rely on.
+ */
+public interface IndexedRepository {
+
+    /**
+     * Creates the indexes this repository needs (idempotent).
+     */
+    void ensureIndexes(IndexManager indexes);
+
+    /**
+     * Explains the hot queries and reports the ones not served by an index.
+     */
+    void verifyIndexes(IndexManager indexes);
+}
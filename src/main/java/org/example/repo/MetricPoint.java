@@ -0,0 +1,11 @@
+package org.example.repo;
+
+import java.time.LocalDate;
+
+/**
+ * One bucket of a body metric series.
+ *
+ * @param start   first day of the day, week or month bucket, in the gym's time zone
+ * @param samples measurements in the bucket
+ */
+public record MetricPoint(LocalDate start, long samples, double avg, double min, double max) {}
@@ -0,0 +1,23 @@
+package org.example.repo;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Check-ins per hour of the week, summed over {@code weeks} weeks starting
+ * on the Monday {@code fromWeek}. Check-ins stand in for occupancy: there
+ * is no check-out event.
+ *
+ * @param counts counts[dayOfWeek - 1][hour], Monday first, local time of the gym
+ */
+public record OccupancyHeatmap(LocalDate fromWeek, int weeks, long[][] counts) {
+
+    public long total(DayOfWeek day, int hour) {
+        return counts[day.getValue() - 1][hour];
+    }
+
+    /** Average check-ins in that hour over the covered weeks. */
+    public double average(DayOfWeek day, int hour) {
+        return weeks == 0 ? 0 : (double) total(day, hour) / weeks;
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.repo;
+
+/**
+ * Repository operations whose durability or read routing is chosen by a
+ * {@link DurabilityPolicy}, each with the tier it gets by default. The
+ * repositories route every read and write through one of these; STANDARD
+ * keeps the client defaults.
+ */
+public enum Operation {
+
+    // payments: money must survive a failover
+    INSERT_PAYMENT(Tier.CRITICAL),
+    INSERT_PAYMENTS(Tier.CRITICAL),
+    // the buckets can be rebuilt from the payments
+    PAYMENT_ROLLUPS(Tier.STANDARD),
+    REVENUE_REPORT(Tier.REPORTING),
+    REBUILD_PAYMENT_ROLLUPS(Tier.CRITICAL),
+
+    // members: registration, the desk lookup, renewals and cancellations
+    SAVE_MEMBER(Tier.STANDARD),
+    MEMBER_LOOKUP(Tier.STANDARD),
+    UPDATE_MEMBERSHIP(Tier.STANDARD),
+    // full lists, pages and summaries of members
+    MEMBER_LIST(Tier.STANDARD),
+    // expiring and active-on queries behind the scheduler and reports
+    MEMBERSHIP_QUERY(Tier.STANDARD),
+    DEACTIVATE_EXPIRED(Tier.STANDARD),
+
+    // attendance events, their rollups and the per-member counters
+    CHECK_IN(Tier.FAST),
+    ATTENDANCE_REPORT(Tier.REPORTING),
+    REBUILD_ATTENDANCE_ROLLUPS(Tier.STANDARD),
+
+    // appointment reads for schedules, bookings and reminders
+    APPOINTMENT_LOOKUP(Tier.FAST),
+    SAVE_APPOINTMENT(Tier.STANDARD),
+    // full lists and pages of appointments
+    APPOINTMENT_LIST(Tier.STANDARD),
+
+    // bulk file imports and exports of members and appointments
+    IMPORT(Tier.STANDARD),
+    EXPORT(Tier.REPORTING),
+
+    // workout and diet plans: saves and updates, by-name lookups, full lists and pages, keyword search
+    SAVE_PLAN(Tier.STANDARD),
+    PLAN_LOOKUP(Tier.STANDARD),
+    PLAN_LIST(Tier.STANDARD),
+    PLAN_SEARCH(Tier.STANDARD),
+
+    // training sessions and body metrics, and the charts drawn from them
+    LOG_PROGRESS(Tier.STANDARD),
+    PROGRESS_REPORT(Tier.REPORTING),
+
+    // user accounts: creation and updates, single-user reads, lists and counts, deletion
+    SAVE_USER(Tier.STANDARD),
+    USER_LOOKUP(Tier.STANDARD),
+    USER_LIST(Tier.STANDARD),
+    DELETE_USER(Tier.STANDARD);
+
+    private final Tier defaultTier;
+
+    Operation(Tier defaultTier) {
+        this.defaultTier = defaultTier;
+    }
+
+    public Tier defaultTier() {
+        return defaultTier;
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.repo;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query.
+ *
+ * @param items     the documents of this page, in key order
+ * @param nextToken resume token to pass back for the next page, null on the last page
+ */
+public record Page<T>(List<T> items, String nextToken) {
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
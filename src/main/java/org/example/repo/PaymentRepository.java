@@ -1,21 +1,198 @@
 package org.example.repo;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
 import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationStats;
 import org.example.model.Payment;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
-public class PaymentRepository {
+public class PaymentRepository implements IndexedRepository {
 
-    private final MongoCollection<Document> collection;
+    private static final OperationStats INSERT_PAYMENT = Metrics.op("PaymentRepository.insertPayment");
+    private static final OperationStats INSERT_PAYMENTS = Metrics.op("PaymentRepository.insertPayments");
+    private static final OperationStats ROLL_UP = Metrics.op("PaymentRepository.rollUp");
+    private static final OperationStats REVENUE = Metrics.op("PaymentRepository.revenue");
+    private static final OperationStats REBUILD_ROLLUPS = Metrics.op("PaymentRepository.rebuildRollups");
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final TieredCollection<Document> collection;
+    private final TieredCollection<Document> rollups; // null: no rollups maintained
 
     public PaymentRepository(MongoCollection<Document> collection) {
-        this.collection = Objects.requireNonNull(collection);
+        this(collection, null);
+    }
+
+    /**
+     * @param rollups collection of {@link PaymentRollups} buckets, kept up to date on every insert
+     */
+    public PaymentRepository(MongoCollection<Document> collection, MongoCollection<Document> rollups) {
+        this(collection, rollups, DurabilityPolicy.defaults());
+    }
+
+    /**
+     * @param policy write concern and read routing per operation
+     */
+    public PaymentRepository(MongoCollection<Document> collection, MongoCollection<Document> rollups,
+                             DurabilityPolicy policy) {
+        this.collection = new TieredCollection<>(Objects.requireNonNull(collection), policy);
+        this.rollups = rollups == null ? null : new TieredCollection<>(rollups, policy);
+    }
+
+    @Override
+    public void ensureIndexes(IndexManager indexes) {
+        indexes.ensure(collection.base(),
+                IndexManager.uniqueIndex("paymentId_unique", Indexes.ascending("paymentId")),
+                IndexManager.index("memberId_date", Indexes.ascending("memberId", "date")));
+        if (rollups != null) PaymentRollups.ensureIndexes(indexes, rollups.base());
     }
 
+    @Override
+    public void verifyIndexes(IndexManager indexes) {
+        indexes.expectIndexScan(collection.base(), "paymentById", Filters.eq("paymentId", ""));
+        indexes.expectIndexScan(collection.base(), "paymentsByMember", Filters.eq("memberId", ""));
+    }
+
+    /**
+     * Inserts one payment. A duplicate paymentId still throws, but the stored
+     * payment is rolled up first if no earlier attempt did.
+     */
     public void insertPayment(Payment p) {
-        Document doc = new Document()
+        // hot path: timed without a capturing lambda
+        long t = INSERT_PAYMENT.start();
+        try {
+            try {
+                collection.of(Operation.INSERT_PAYMENT).insertOne(paymentToDoc(p));
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) rollUp(List.of(p));
+                throw e;
+            }
+            rollUp(List.of(p));
+        } catch (RuntimeException e) {
+            INSERT_PAYMENT.error();
+            throw e;
+        } finally {
+            INSERT_PAYMENT.stop(t);
+        }
+    }
+
+    /**
+     * Inserts a batch with one unordered bulkWrite.
+     * The unique paymentId index makes re-sending a batch harmless: payments
+     * already stored come back as duplicates instead of being written twice,
+     * and are rolled up if the attempt that stored them did not.
+     */
+    public BulkInsertResult insertPayments(List<Payment> batch) {
+        return INSERT_PAYMENTS.time(() -> {
+            if (batch.isEmpty()) return BulkInsertResult.EMPTY;
+
+            List<InsertOneModel<Document>> models = new ArrayList<>(batch.size());
+            for (Payment p : batch) {
+                models.add(new InsertOneModel<>(paymentToDoc(p)));
+            }
+
+            BulkInsertResult result;
+            try {
+                int inserted = collection.of(Operation.INSERT_PAYMENTS).bulkWrite(models, UNORDERED).getInsertedCount();
+                result = new BulkInsertResult(inserted, 0, 0, List.of());
+            } catch (MongoBulkWriteException e) {
+                result = rejectedResult(e);
+            }
+            // payments that failed to insert are not stored, so the claim skips them
+            rollUp(batch);
+            return result;
+        });
+    }
+
+    /**
+     * Adds the stored payments of {@code sent} that no roll-up has claimed
+     * yet to their buckets. The payments are already stored, so a failure is
+     * reported but never fails the insert.
+     */
+    private void rollUp(List<Payment> sent) {
+        if (rollups == null || sent.isEmpty()) return;
+        long t = ROLL_UP.start();
+        try {
+            MongoCollection<Document> payments = collection.of(Operation.PAYMENT_ROLLUPS);
+            List<String> ids = PaymentRollups.ids(sent);
+            ObjectId claim = new ObjectId();
+            if (payments.updateMany(PaymentRollups.unclaimed(ids), PaymentRollups.claim(claim)).getModifiedCount() == 0)
+                return;
+
+            // the stored payments, not the caller's: a retry may carry different values
+            List<Payment> claimed = payments.find(PaymentRollups.claimedBy(ids, claim))
+                    .projection(PaymentRollups.ROLLUP_FIELDS)
+                    .map(PaymentRepository::paymentFromDoc)
+                    .into(new ArrayList<>());
+            List<UpdateOneModel<Document>> updates = PaymentRollups.updates(claimed);
+            if (!updates.isEmpty()) rollups.of(Operation.PAYMENT_ROLLUPS).bulkWrite(updates, UNORDERED);
+            ROLL_UP.addDocuments(updates.size());
+        } catch (RuntimeException e) {
+            ROLL_UP.error();
+            System.err.println("Rollup update for " + sent.size() + " payments failed, run rebuildRollups: " + e.getMessage());
+        } finally {
+            ROLL_UP.stop(t);
+        }
+    }
+
+    // -------------------- REPORTING --------------------
+
+    /**
+     * Revenue per day or month in [from, to], split by {@code by} and currency.
+     * Reads the rollup buckets only.
+     */
+    public List<RevenueRow> revenue(PaymentRollups.Period period, LocalDate from, LocalDate to,
+                                    PaymentRollups.Dimension by) {
+        return REVENUE.timeDocs(() -> PaymentRollups.report(requireRollups().of(Operation.REVENUE_REPORT), period, from, to, by));
+    }
+
+    /**
+     * Recomputes the rollups from every payment; see {@link PaymentRollups#rebuild}.
+     */
+    public void rebuildRollups() {
+        REBUILD_ROLLUPS.run(() -> PaymentRollups.rebuild(collection.of(Operation.REBUILD_PAYMENT_ROLLUPS),
+                requireRollups().of(Operation.REBUILD_PAYMENT_ROLLUPS)));
+    }
+
+    private TieredCollection<Document> requireRollups() {
+        if (rollups == null) throw new IllegalStateException("No rollup collection configured");
+        return rollups;
+    }
+
+    static BulkInsertResult rejectedResult(MongoBulkWriteException e) {
+        int duplicates = 0, failed = 0;
+        List<Integer> rejected = new ArrayList<>(e.getWriteErrors().size());
+
+        for (BulkWriteError err : e.getWriteErrors()) {
+            if (ErrorCategory.fromErrorCode(err.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                duplicates++;
+            } else {
+                failed++;
+            }
+            rejected.add(err.getIndex());
+        }
+        return new BulkInsertResult(e.getWriteResult().getInsertedCount(), duplicates, failed, rejected);
+    }
+
+    // -------------------- CONVERTERS --------------------
+
+    static Document paymentToDoc(Payment p) {
+        return new Document()
                 .append("paymentId", p.getPaymentId())
                 .append("memberId", p.getMemberId())
                 .append("invoiceId", p.getInvoiceId())
@@ -25,8 +202,23 @@ public class PaymentRepository {
                 .append("status", p.getStatus())
                 .append("referenceNumber", p.getReferenceNumber())
                 .append("provider", p.getProvider())
-                .append("date", p.getDateIso());
+                .append("date", p.getDateIso())
+                .append(PaymentRollups.ROLLED_UP, false);
+    }
 
-        collection.insertOne(doc);
+    static Payment paymentFromDoc(Document d) {
+        Payment p = new Payment();
+        p.setPaymentId(d.getString("paymentId"));
+        p.setMemberId(d.getString("memberId"));
+        p.setInvoiceId(d.getString("invoiceId"));
+        Number amount = d.get("amount", Number.class);
+        p.setAmount(amount == null ? 0 : amount.doubleValue());
+        p.setCurrency(d.getString("currency"));
+        p.setMethod(d.getString("method"));
+        p.setStatus(d.getString("status"));
+        p.setReferenceNumber(d.getString("referenceNumber"));
+        p.setProvider(d.getString("provider"));
+        p.setDateIso(d.getString("date"));
+        return p;
     }
 }
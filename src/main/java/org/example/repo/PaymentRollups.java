@@ -0,0 +1,262 @@
+package org.example.repo;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.MergeOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.example.model.Payment;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-aggregated revenue buckets, one document per
+ * (period, start, method, currency, status, provider).
+ *
+ * Each successful payment insert adds its count and amount to a day bucket
+ * and a month bucket with upserting $inc updates, so revenue reports read a
+ * few hundred buckets instead of every payment. The _id is the bucket key
+ * as a string; the key parts are also stored as plain fields for querying.
+ *
+ * Every payment is stored with {@code rolledUp: false} and is claimed
+ * before it is added, so it is counted once even when its insert is
+ * retried: a payment stored by an attempt the client saw fail comes back
+ * as a duplicate, and the retry adds it if nobody has yet. Buckets can
+ * still drift low if a process dies between claiming payments and the
+ * bucket update; {@link #rebuild} recomputes them from the payments.
+ */
+public final class PaymentRollups {
+
+    public enum Period { DAY, MONTH }
+
+    public enum Dimension {
+        NONE(null), METHOD("method"), STATUS("status"), PROVIDER("provider");
+
+        final String field;
+
+        Dimension(String field) {
+            this.field = field;
+        }
+    }
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    private PaymentRollups() {}
+
+    static void ensureIndexes(IndexManager indexes, MongoCollection<Document> rollups) {
+        indexes.ensure(rollups,
+                IndexManager.index("period_start", Indexes.ascending("period", "start")));
+    }
+
+    // -------------------- CLAIMING --------------------
+
+    /** Payment field: false until the payment is in its buckets, then the id of the claim that added it. */
+    static final String ROLLED_UP = "rolledUp";
+
+    static final Bson ROLLUP_FIELDS = Projections.include("paymentId", "date", "amount", "method", "currency",
+            "status", "provider");
+
+    /** Payments of {@code ids} that no roll-up has claimed yet. */
+    static Bson unclaimed(List<String> ids) {
+        return Filters.and(Filters.in("paymentId", ids), Filters.eq(ROLLED_UP, false));
+    }
+
+    static Bson claim(ObjectId claim) {
+        return Updates.set(ROLLED_UP, claim);
+    }
+
+    static Bson claimedBy(List<String> ids, ObjectId claim) {
+        return Filters.and(Filters.in("paymentId", ids), Filters.eq(ROLLED_UP, claim));
+    }
+
+    static List<String> ids(List<Payment> payments) {
+        List<String> ids = new ArrayList<>(payments.size());
+        for (Payment p : payments) {
+            ids.add(p.getPaymentId());
+        }
+        return ids;
+    }
+
+    // -------------------- INCREMENTAL --------------------
+
+    /**
+     * Upserts that add {@code payments} to their buckets, merged per bucket
+     * so a batch costs one update per distinct bucket. Payments whose date
+     * cannot be read are left out.
+     */
+    static List<UpdateOneModel<Document>> updates(List<Payment> payments) {
+        Map<String, Bucket> buckets = new LinkedHashMap<>();
+        for (Payment p : payments) {
+            LocalDate day = dayOf(p.getDateIso());
+            if (day == null) continue;
+            add(buckets, Period.DAY, day, p);
+            add(buckets, Period.MONTH, day.withDayOfMonth(1), p);
+        }
+
+        List<UpdateOneModel<Document>> models = new ArrayList<>(buckets.size());
+        buckets.forEach((id, b) -> models.add(new UpdateOneModel<>(
+                Filters.eq("_id", id),
+                Updates.combine(
+                        Updates.setOnInsert("period", b.period.name()),
+                        Updates.setOnInsert("start", Dates.toBson(b.start)),
+                        Updates.setOnInsert("method", b.payment.getMethod()),
+                        Updates.setOnInsert("currency", b.payment.getCurrency()),
+                        Updates.setOnInsert("status", b.payment.getStatus()),
+                        Updates.setOnInsert("provider", b.payment.getProvider()),
+                        Updates.inc("count", b.count),
+                        Updates.inc("amount", b.amount)),
+                UPSERT)));
+        return models;
+    }
+
+    private static final class Bucket {
+        final Period period;
+        final LocalDate start;
+        final Payment payment; // any payment of the bucket, for the key fields
+        long count;
+        double amount;
+
+        Bucket(Period period, LocalDate start, Payment payment) {
+            this.period = period;
+            this.start = start;
+            this.payment = payment;
+        }
+    }
+
+    private static void add(Map<String, Bucket> buckets, Period period, LocalDate start, Payment p) {
+        Bucket b = buckets.computeIfAbsent(key(period, start, p), k -> new Bucket(period, start, p));
+        b.count++;
+        b.amount += p.getAmount();
+    }
+
+    static String key(Period period, LocalDate start, Payment p) {
+        return period.name() + '|' + start + '|' + nz(p.getMethod()) + '|' + nz(p.getCurrency())
+                + '|' + nz(p.getStatus()) + '|' + nz(p.getProvider());
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+
+    /** "yyyy-mm-dd", optionally followed by a time ("yyyy-mm-ddTHH:MM..."). */
+    static LocalDate dayOf(String dateIso) {
+        if (dateIso == null || dateIso.length() < 10) return null;
+        try {
+            return LocalDate.parse(dateIso.substring(0, 10));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // -------------------- REPORTING --------------------
+
+    /**
+     * Revenue per bucket in [from, to], grouped by {@code by} and currency,
+     * ordered by bucket start. For MONTH, {@code from} and {@code to} are
+     * rounded to their months.
+     */
+    static List<RevenueRow> report(MongoCollection<Document> rollups, Period period,
+                                   LocalDate from, LocalDate to, Dimension by) {
+        if (period == Period.MONTH) {
+            from = from.withDayOfMonth(1);
+            to = to.withDayOfMonth(1);
+        }
+
+        Document groupId = new Document("start", "$start").append("currency", "$currency");
+        if (by.field != null) groupId.append("key", "$" + by.field);
+
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.and(
+                        Filters.eq("period", period.name()),
+                        Filters.gte("start", Dates.toBson(from)),
+                        Filters.lte("start", Dates.toBson(to)))),
+                Aggregates.group(groupId,
+                        Accumulators.sum("count", "$count"),
+                        Accumulators.sum("amount", "$amount")),
+                Aggregates.sort(Sorts.ascending("_id.start", "_id.key", "_id.currency")));
+
+        List<RevenueRow> rows = new ArrayList<>();
+        for (Document d : rollups.aggregate(pipeline)) {
+            Document id = d.get("_id", Document.class);
+            rows.add(new RevenueRow(
+                    Dates.toLocalDate(id.get("start")),
+                    id.getString("key"),
+                    id.getString("currency"),
+                    ((Number) d.get("count")).longValue(),
+                    ((Number) d.get("amount")).doubleValue()));
+        }
+        return rows;
+    }
+
+    // -------------------- REBUILD --------------------
+
+    /**
+     * Recomputes every bucket from the payments collection on the server
+     * ($group + $merge) and marks every payment rolled up. Run it while
+     * payment writes are paused; increments that land during the rebuild
+     * may be lost or counted twice.
+     */
+    static void rebuild(MongoCollection<Document> payments, MongoCollection<Document> rollups) {
+        payments.updateMany(Filters.eq(ROLLED_UP, false), Updates.set(ROLLED_UP, true));
+        rollups.deleteMany(new Document());
+        String into = rollups.getNamespace().getCollectionName();
+
+        rebuild(payments, into, Period.DAY,
+                new Document("$substrBytes", List.of("$date", 0, 10)));
+        rebuild(payments, into, Period.MONTH,
+                new Document("$concat", List.of(new Document("$substrBytes", List.of("$date", 0, 7)), "-01")));
+    }
+
+    private static void rebuild(MongoCollection<Document> payments, String into, Period period, Document startExpr) {
+        Document groupId = new Document("start", startExpr)
+                .append("method", "$method")
+                .append("currency", "$currency")
+                .append("status", "$status")
+                .append("provider", "$provider");
+
+        // must build the same _id as key()
+        List<Object> idParts = new ArrayList<>(List.of(period.name(), "|", "$_id.start"));
+        for (String f : List.of("method", "currency", "status", "provider")) {
+            idParts.add("|");
+            idParts.add(new Document("$ifNull", List.of("$_id." + f, "")));
+        }
+
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.type("date", "string")),
+                Aggregates.group(groupId,
+                        Accumulators.sum("count", 1),
+                        Accumulators.sum("amount", "$amount")),
+                Aggregates.project(new Document("_id", new Document("$concat", idParts))
+                        .append("period", period.name())
+                        .append("start", new Document("$dateFromString", new Document("dateString", "$_id.start")
+                                .append("format", "%Y-%m-%d")
+                                .append("timezone", "UTC")
+                                .append("onError", null)))
+                        .append("method", "$_id.method")
+                        .append("currency", "$_id.currency")
+                        .append("status", "$_id.status")
+                        .append("provider", "$_id.provider")
+                        .append("count", 1)
+                        .append("amount", 1)),
+                Aggregates.match(Filters.ne("start", null)),
+                Aggregates.merge(into, new MergeOptions()
+                        .whenMatched(MergeOptions.WhenMatched.REPLACE)
+                        .whenNotMatched(MergeOptions.WhenNotMatched.INSERT)));
+
+        payments.aggregate(pipeline).toCollection();
+    }
+}
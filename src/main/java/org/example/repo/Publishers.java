@@ -0,0 +1,140 @@
+package org.example.repo;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Small bridges between the reactive-streams driver and CompletableFuture.
+ * No reactive library is on the classpath, so these stay deliberately minimal.
+ */
+public final class Publishers {
+
+    private Publishers() {}
+
+    /**
+     * First element, or null if the publisher completes empty. Requests one element only.
+     */
+    public static <T> CompletableFuture<T> first(Publisher<T> publisher) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(T t) {
+                if (result.complete(t)) subscription.cancel();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(null);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Completes when the publisher does, dropping its value (for write acknowledgements).
+     */
+    public static CompletableFuture<Void> done(Publisher<?> publisher) {
+        return first(publisher).thenApply(ignored -> null);
+    }
+
+    /**
+     * Collects everything, requesting {@code batch} elements at a time.
+     * Only for results known to be small; stream the publisher otherwise.
+     */
+    public static <T> CompletableFuture<List<T>> toList(Publisher<T> publisher, int batch) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private final List<T> items = new ArrayList<>();
+            private Subscription subscription;
+            private int outstanding;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                outstanding = batch;
+                s.request(batch);
+            }
+
+            @Override
+            public void onNext(T t) {
+                items.add(t);
+                if (--outstanding == 0) {
+                    outstanding = batch;
+                    subscription.request(batch);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(items);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Maps each element; demand and cancellation pass straight through, so
+     * the downstream subscriber keeps control of backpressure.
+     */
+    public static <A, B> Publisher<B> map(Publisher<A> publisher, Function<A, B> mapper) {
+        return downstream -> publisher.subscribe(new Subscriber<A>() {
+            private Subscription subscription;
+            private boolean failed;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                downstream.onSubscribe(s);
+            }
+
+            @Override
+            public void onNext(A a) {
+                if (failed) return;
+                B b;
+                try {
+                    b = mapper.apply(a);
+                } catch (RuntimeException e) {
+                    failed = true;
+                    subscription.cancel();
+                    downstream.onError(e);
+                    return;
+                }
+                downstream.onNext(b);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (!failed) downstream.onError(t);
+            }
+
+            @Override
+            public void onComplete() {
+                if (!failed) downstream.onComplete();
+            }
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.repo;
+
+import com.mongodb.reactivestreams.client.MongoCollection;
+
+import java.util.EnumMap;
+
+/**
+ * {@link TieredCollection} for the reactive-streams driver.
+ */
+final class ReactiveTieredCollection<T> {
+
+    private final DurabilityPolicy policy;
+    private final EnumMap<Tier, MongoCollection<T>> views = new EnumMap<>(Tier.class);
+
+    ReactiveTieredCollection(MongoCollection<T> base, DurabilityPolicy policy) {
+        this.policy = policy;
+        for (Tier tier : Tier.values()) {
+            views.put(tier, tier.apply(base));
+        }
+    }
+
+    MongoCollection<T> of(Operation op) {
+        return views.get(policy.tier(op));
+    }
+}
@@ -1,80 +1,680 @@
 package org.example.repo;
 
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.PushOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationStats;
+import org.example.model.MemberSummary;
 import org.example.model.member;
 import org.example.model.Appointment;
+import org.example.model.CheckInEvent;
 
-public class ReceptionistRepository {
+public class ReceptionistRepository implements IndexedRepository, AutoCloseable {
 
-    private final MongoCollection<Document> members;
-    private final MongoCollection<Document> appointments;
+    private static final OperationStats SAVE_MEMBER = Metrics.op("ReceptionistRepository.saveMember");
+    private static final OperationStats FIND_MEMBER_BY_ID = Metrics.op("ReceptionistRepository.findMemberById");
+    private static final OperationStats RENEW_MEMBERSHIP = Metrics.op("ReceptionistRepository.renewMembership");
+    private static final OperationStats CANCEL_MEMBERSHIP = Metrics.op("ReceptionistRepository.cancelMembership");
+    private static final OperationStats INCREMENT_ATTENDANCE = Metrics.op("ReceptionistRepository.incrementAttendance");
+    private static final OperationStats WRITE_CHECK_INS = Metrics.op("ReceptionistRepository.writeCheckIns");
+    private static final OperationStats RECORD_CHECK_IN_EVENTS = Metrics.op("ReceptionistRepository.recordCheckInEvents");
+    private static final OperationStats OCCUPANCY_HEATMAP = Metrics.op("ReceptionistRepository.occupancyHeatmap");
+    private static final OperationStats FIND_CHURN_RISKS = Metrics.op("ReceptionistRepository.findChurnRisks");
+    private static final OperationStats FIND_ALL_MEMBERS = Metrics.op("ReceptionistRepository.findAllMembers");
+    private static final OperationStats STREAM_ALL_MEMBERS = Metrics.op("ReceptionistRepository.streamAllMembers");
+    private static final OperationStats FIND_MEMBERS_PAGE = Metrics.op("ReceptionistRepository.findMembersPage");
+    private static final OperationStats FIND_MEMBER_SUMMARIES = Metrics.op("ReceptionistRepository.findMemberSummaries");
+    private static final OperationStats STREAM_MEMBER_SUMMARIES = Metrics.op("ReceptionistRepository.streamMemberSummaries");
+    private static final OperationStats FIND_MEMBER_SUMMARIES_PAGE = Metrics.op("ReceptionistRepository.findMemberSummariesPage");
+    private static final OperationStats IMPORT_MEMBERS = Metrics.op("ReceptionistRepository.importMembers");
+    private static final OperationStats EXPORT_MEMBERS = Metrics.op("ReceptionistRepository.exportMembers");
+    private static final OperationStats FIND_MEMBERS_EXPIRING_BETWEEN = Metrics.op("ReceptionistRepository.findMembersExpiringBetween");
+    private static final OperationStats STREAM_MEMBERS_ACTIVE_ON = Metrics.op("ReceptionistRepository.streamMembersActiveOn");
+    private static final OperationStats COUNT_MEMBERS_ACTIVE_ON = Metrics.op("ReceptionistRepository.countMembersActiveOn");
+    private static final OperationStats FIND_ACTIVE_MEMBERSHIP_ENDS = Metrics.op("ReceptionistRepository.findActiveMembershipEnds");
+    private static final OperationStats DEACTIVATE_EXPIRED = Metrics.op("ReceptionistRepository.deactivateExpired");
+    private static final OperationStats SAVE_APPOINTMENT = Metrics.op("ReceptionistRepository.saveAppointment");
+    private static final OperationStats FIND_APPOINTMENTS_BY_MEMBER = Metrics.op("ReceptionistRepository.findAppointmentsByMember");
+    private static final OperationStats FIND_APPOINTMENTS_ON = Metrics.op("ReceptionistRepository.findAppointmentsOn");
+    private static final OperationStats STREAM_APPOINTMENTS_BETWEEN = Metrics.op("ReceptionistRepository.streamAppointmentsBetween");
+    private static final OperationStats STREAM_TRAINER_APPOINTMENTS_ON = Metrics.op("ReceptionistRepository.streamTrainerAppointmentsOn");
+    private static final OperationStats FIND_ALL_APPOINTMENTS = Metrics.op("ReceptionistRepository.findAllAppointments");
+    private static final OperationStats STREAM_ALL_APPOINTMENTS = Metrics.op("ReceptionistRepository.streamAllAppointments");
+    private static final OperationStats FIND_APPOINTMENTS_PAGE = Metrics.op("ReceptionistRepository.findAppointmentsPage");
+    private static final OperationStats IMPORT_APPOINTMENTS = Metrics.op("ReceptionistRepository.importAppointments");
+    private static final OperationStats EXPORT_APPOINTMENTS = Metrics.op("ReceptionistRepository.exportAppointments");
+
+    private static final Bson BY_DATE_TIME = Sorts.ascending("date", "time");
+
+    // list views read these fields from the summary index alone; _id is not in it
+    private static final String SUMMARY_INDEX = "username_summary";
+    private static final List<String> SUMMARY_FIELDS =
+            List.of("username", "phone", "membershipType", "membershipEnd", "isActive", "freezed");
+    private static final Bson SUMMARY = Projections.fields(
+            Projections.include(SUMMARY_FIELDS), Projections.excludeId());
+    private static final Bson BY_USERNAME = Sorts.ascending("username");
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final FindOneAndUpdateOptions ATTENDANCE_AFTER = new FindOneAndUpdateOptions()
+            .projection(Projections.fields(Projections.include("attendance"), Projections.excludeId()))
+            .returnDocument(ReturnDocument.AFTER);
+
+    // member field: ids of the last few check-in batches that counted the member
+    private static final String CHECK_IN_BATCHES = "checkInBatches";
+    private static final int RECENT_BATCHES = 4;
+
+    private final MongoDatabase db;
+    private final String attendanceColl;
+
+    // every operation goes through the view its Operation gets from the DurabilityPolicy
+    private final TieredCollection<Document> members;
+    private final TieredCollection<Document> attendance;  // time-series of raw check-ins
+    private final AttendanceRollups attendanceRollups;    // <attendance>_hourly and <attendance>_member_weekly
+    private final TieredCollection<Document> appointments;
+
+    private final CheckInEventWriter checkInEvents = new CheckInEventWriter(this::recordCheckInEvents);
 
     public ReceptionistRepository(MongoDatabase db,
                                   String membersColl,
-                                  String attendanceCollIgnored,
+                                  String attendanceColl,
                                   String appointmentsColl,
                                   String invoicesCollIgnored) {
+        this(db, membersColl, attendanceColl, appointmentsColl, invoicesCollIgnored, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param gymZone time zone the hour-of-week occupancy buckets are counted in
+     */
+    public ReceptionistRepository(MongoDatabase db,
+                                  String membersColl,
+                                  String attendanceColl,
+                                  String appointmentsColl,
+                                  String invoicesCollIgnored,
+                                  ZoneId gymZone) {
+        this(db, membersColl, attendanceColl, appointmentsColl, invoicesCollIgnored, gymZone, DurabilityPolicy.defaults());
+    }
+
+    /**
+     * @param policy write concern and read routing of every operation, see {@link Operation}
+     */
+    public ReceptionistRepository(MongoDatabase db,
+                                  String membersColl,
+                                  String attendanceColl,
+                                  String appointmentsColl,
+                                  String invoicesCollIgnored,
+                                  ZoneId gymZone,
+                                  DurabilityPolicy policy) {
+
+        this.db = db;
+        this.attendanceColl = attendanceColl;
+        this.members = new TieredCollection<>(db.getCollection(membersColl), policy);
+        this.attendance = new TieredCollection<>(db.getCollection(attendanceColl), policy);
+        this.attendanceRollups = new AttendanceRollups(
+                db.getCollection(attendanceColl + "_hourly"),
+                db.getCollection(attendanceColl + "_member_weekly"),
+                gymZone,
+                policy);
+        this.appointments = new TieredCollection<>(db.getCollection(appointmentsColl), policy);
+    }
 
-        this.members = db.getCollection(membersColl);
-        this.appointments = db.getCollection(appointmentsColl);
+    // -------------------- INDEXES --------------------
+
+    @Override
+    public void ensureIndexes(IndexManager indexes) {
+        indexes.ensure(members.base(),
+                IndexManager.uniqueIndex("username_unique", Indexes.ascending("username")),
+                // end first: "expiring between" is a range on end, "active on" bounds end and filters start in the index
+                IndexManager.index("membershipEnd_membershipStart", Indexes.ascending("membershipEnd", "membershipStart")),
+                IndexManager.index(SUMMARY_INDEX, Indexes.ascending(SUMMARY_FIELDS)));
+
+        TimeSeries.ensure(db, attendanceColl, "ts", "member", TimeSeriesGranularity.SECONDS);
+        indexes.ensure(attendance.base(),
+                IndexManager.index("member_ts", Indexes.ascending("member", "ts")));
+        attendanceRollups.ensureIndexes(indexes);
+
+        // last line of defence against double booking, for writers that bypass the BookingIndex
+        Bson scheduled = Filters.eq("status", Appointment.SCHEDULED);
+        indexes.ensure(appointments.base(),
+                IndexManager.index("memberId_date", Indexes.ascending("memberId", "date")),
+                // appointments without a trainer must not collide on trainerId: null
+                IndexManager.uniqueIndex("trainerId_date_time", Indexes.ascending("trainerId", "date", "time"),
+                        Filters.and(scheduled, Filters.type("trainerId", "string"))),
+                IndexManager.uniqueIndex("memberId_date_time", Indexes.ascending("memberId", "date", "time"), scheduled),
+                IndexManager.index("date_time", Indexes.ascending("date", "time")));
+    }
+
+    @Override
+    public void verifyIndexes(IndexManager indexes) {
+        indexes.expectIndexScan(members.base(), "findMemberById", Filters.eq("username", ""));
+        indexes.expectIndexScan(members.base(), "findMembersExpiringBetween", expiringBetween(LocalDate.EPOCH, LocalDate.EPOCH));
+        indexes.expectIndexScan(members.base(), "streamMembersActiveOn", activeOn(LocalDate.EPOCH));
+        indexes.expectCovered(members.base(), "findMemberSummariesPage", Filters.gt("username", ""), SUMMARY, BY_USERNAME, SUMMARY_INDEX);
+        indexes.expectIndexScan(appointments.base(), "findAppointmentsByMember", Filters.eq("memberId", ""));
+        indexes.expectIndexScan(appointments.base(), "streamAppointmentsBetween",
+                datesBetween(LocalDate.EPOCH, LocalDate.EPOCH), BY_DATE_TIME);
+        indexes.expectIndexScan(appointments.base(), "streamTrainerAppointmentsOn",
+                Filters.and(Filters.eq("trainerId", ""), Filters.eq("date", Dates.toBson(LocalDate.EPOCH))), BY_DATE_TIME);
     }
 
     // -------------------- MEMBERS --------------------
 
     public void saveMember(member m) {
         // Replace existing member using username as ID
-        members.replaceOne(
+        SAVE_MEMBER.run(() -> members.of(Operation.SAVE_MEMBER).replaceOne(
                 Filters.eq("username", m.getUsername()),
                 memberToDoc(m),
                 new com.mongodb.client.model.ReplaceOptions().upsert(true)
-        );
+        ));
     }
 
     public member findMemberById(String username) {
-        Document d = members.find(Filters.eq("username", username)).first();
-        return d == null ? null : memberFromDoc(d);
+        // hot path: timed without a capturing lambda
+        long t = FIND_MEMBER_BY_ID.start();
+        try {
+            Document d = members.of(Operation.MEMBER_LOOKUP).find(Filters.eq("username", username)).first();
+            return FIND_MEMBER_BY_ID.docs(d == null ? null : memberFromDoc(d));
+        } catch (RuntimeException e) {
+            FIND_MEMBER_BY_ID.error();
+            throw e;
+        } finally {
+            FIND_MEMBER_BY_ID.stop(t);
+        }
     }
 
-    public List<member> findAllMembers() {
-        List<member> out = new ArrayList<>();
-        for (Document d : members.find()) {
-            out.add(memberFromDoc(d));
+    /**
+     * Sets the membership type and dates and reactivates the member. Only
+     * those fields are written, so concurrent check-ins keep their count.
+     *
+     * @return false if there is no such member
+     */
+    public boolean renewMembership(String username, String membershipType, LocalDate start, LocalDate end) {
+        return RENEW_MEMBERSHIP.time(() -> members.of(Operation.UPDATE_MEMBERSHIP).updateOne(
+                Filters.eq("username", username),
+                Updates.combine(
+                        Updates.set("membershipType", membershipType),
+                        Updates.set("membershipStart", Dates.toBson(start)),
+                        Updates.set("membershipEnd", Dates.toBson(end)),
+                        Updates.set("isActive", true))).getMatchedCount() > 0);
+    }
+
+    /**
+     * Marks the membership CANCELLED, touching no other field.
+     *
+     * @return false if there is no such member
+     */
+    public boolean cancelMembership(String username) {
+        return CANCEL_MEMBERSHIP.time(() -> members.of(Operation.UPDATE_MEMBERSHIP).updateOne(Filters.eq("username", username),
+                Updates.set("membershipType", "CANCELLED")).getMatchedCount() > 0);
+    }
+
+    /**
+     * Atomically adds one visit on the server and returns the new count.
+     * Only members that are active and not frozen are counted (a missing
+     * flag means the default: active, not frozen). A counted visit is also
+     * stored as a check-in event and added to the occupancy rollups; those
+     * writes are batched behind the caller's back, so this is one round
+     * trip. {@link #close()} writes the events still queued; see
+     * {@link #writeCheckIns} for what happens when those writes fail.
+     *
+     * @return the new attendance, or null if no eligible member matched
+     */
+    public Integer incrementAttendance(String username) {
+        // hot path: timed without a capturing lambda
+        long t = INCREMENT_ATTENDANCE.start();
+        try {
+            Document d = members.of(Operation.CHECK_IN).findOneAndUpdate(
+                    checkInAllowed(username),
+                    Updates.inc("attendance", 1),
+                    ATTENDANCE_AFTER
+            );
+            if (d == null) return null;
+
+            checkInEvents.add(new CheckInEvent(username, Instant.now()));
+            return d.getInteger("attendance");
+        } catch (RuntimeException e) {
+            INCREMENT_ATTENDANCE.error();
+            throw e;
+        } finally {
+            INCREMENT_ATTENDANCE.stop(t);
         }
-        return out;
+    }
+
+    static Bson checkInAllowed(String username) {
+        return checkInAllowed(Filters.eq("username", username));
+    }
+
+    private static Bson checkInAllowed(Bson who) {
+        return Filters.and(
+                who,
+                Filters.ne("isActive", false),
+                Filters.ne("freezed", true));
+    }
+
+    // -------------------- CHECK-INS --------------------
+
+    /**
+     * Writes a batch of check-ins for the members allowed to check in (same
+     * active/not-frozen rule as {@link #incrementAttendance}); check-ins of
+     * other or unknown members are dropped. The per-member counters are
+     * bumped with one unordered bulkWrite ($inc per member), then the raw
+     * events of the members it counted go to the attendance time-series
+     * collection and its hourly / weekly rollups. Which members were
+     * counted is read back from the update itself: each $inc also tags the
+     * member with the batch's id, so a member frozen meanwhile gets no
+     * event for a visit that was not counted.
+     *
+     * The counters are the record of a visit: once they are written, a
+     * failure to store the events or rollups is logged and counted on
+     * recordCheckInEvents instead of thrown, so a caller retrying the batch
+     * does not count the visits twice.
+     *
+     * @return number of members whose counter was updated
+     */
+    public int writeCheckIns(List<CheckInEvent> batch) {
+        return WRITE_CHECK_INS.time(() -> {
+            if (batch.isEmpty()) return 0;
+
+            Map<String, Integer> perMember = new HashMap<>();
+            for (CheckInEvent e : batch) {
+                perMember.merge(e.getUsername(), 1, Integer::sum);
+            }
+
+            ObjectId batchId = new ObjectId();
+            Bson tag = Updates.pushEach(CHECK_IN_BATCHES, List.of(batchId), new PushOptions().slice(-RECENT_BATCHES));
+            List<UpdateOneModel<Document>> increments = new ArrayList<>(perMember.size());
+            perMember.forEach((username, visits) -> increments.add(new UpdateOneModel<>(
+                    checkInAllowed(username), Updates.combine(Updates.inc("attendance", visits), tag))));
+            int matched = members.of(Operation.CHECK_IN).bulkWrite(increments, UNORDERED).getMatchedCount();
+            if (matched == 0) return 0;
+
+            Set<String> counted = new HashSet<>();
+            for (Document d : members.of(Operation.CHECK_IN)
+                    .find(Filters.and(Filters.in("username", perMember.keySet()), Filters.eq(CHECK_IN_BATCHES, batchId)))
+                    .projection(Projections.fields(Projections.include("username"), Projections.excludeId()))) {
+                counted.add(d.getString("username"));
+            }
+
+            List<CheckInEvent> events = new ArrayList<>(batch.size());
+            for (CheckInEvent e : batch) {
+                if (counted.contains(e.getUsername())) events.add(e);
+            }
+            recordCheckInEvents(events);
+            return matched;
+        });
+    }
+
+    // events and rollups of visits already counted; independent writes, failures are logged
+    private void recordCheckInEvents(List<CheckInEvent> events) {
+        if (events.isEmpty()) return;
+        long t = RECORD_CHECK_IN_EVENTS.start();
+        try {
+            List<InsertOneModel<Document>> docs = new ArrayList<>(events.size());
+            for (CheckInEvent e : events) {
+                docs.add(new InsertOneModel<>(eventToDoc(e)));
+            }
+            attendance.of(Operation.CHECK_IN).bulkWrite(docs, UNORDERED);
+            RECORD_CHECK_IN_EVENTS.addDocuments(docs.size());
+        } catch (RuntimeException e) {
+            RECORD_CHECK_IN_EVENTS.error();
+            System.err.println(events.size() + " check-in events not stored: " + e.getMessage());
+        }
+        try {
+            attendanceRollups.add(events);
+        } catch (RuntimeException e) {
+            RECORD_CHECK_IN_EVENTS.error();
+            System.err.println("Rollup update for " + events.size() + " check-ins failed, run rebuildAttendanceRollups: "
+                    + e.getMessage());
+        } finally {
+            RECORD_CHECK_IN_EVENTS.stop(t);
+        }
+    }
+
+    static Document eventToDoc(CheckInEvent e) {
+        return new Document("ts", Date.from(e.getAt())).append("member", e.getUsername());
+    }
+
+    /**
+     * Writes the check-in events still queued by {@link #incrementAttendance}.
+     * Later check-ins write their events on the caller's thread.
+     */
+    @Override
+    public void close() {
+        checkInEvents.close();
+    }
+
+    // -------------------- ATTENDANCE ANALYTICS --------------------
+
+    /**
+     * Check-ins per day-of-week and hour over {@code weeks} weeks starting
+     * with the week of {@code fromWeek}. Reads the hourly rollup only.
+     */
+    public OccupancyHeatmap occupancyHeatmap(LocalDate fromWeek, int weeks) {
+        return OCCUPANCY_HEATMAP.time(() -> attendanceRollups.heatmap(AttendanceRollups.weekOf(fromWeek), weeks));
+    }
+
+    /**
+     * Members whose visits in the {@code windowWeeks} weeks starting with the
+     * week of {@code recentFrom} fell to at most {@code maxRatio} of the
+     * window before. Reads the member-weekly rollup only.
+     */
+    public List<ChurnRisk> findChurnRisks(LocalDate recentFrom, int windowWeeks, int minPrevious,
+                                          double maxRatio, int limit) {
+        return FIND_CHURN_RISKS.timeDocs(() -> attendanceRollups.churnRisks(
+                AttendanceRollups.weekOf(recentFrom), windowWeeks, minPrevious, maxRatio, limit));
+    }
+
+    /**
+     * Recomputes the occupancy and visit rollups from the raw check-in events.
+     */
+    public void rebuildAttendanceRollups() {
+        attendanceRollups.rebuild(attendance.of(Operation.REBUILD_ATTENDANCE_ROLLUPS));
+    }
+
+    public List<member> findAllMembers() {
+        return FIND_ALL_MEMBERS.time(() -> {
+            List<member> out = new ArrayList<>();
+            for (Document d : members.of(Operation.MEMBER_LIST).find()) {
+                out.add(memberFromDoc(d));
+            }
+            return FIND_ALL_MEMBERS.docs(out);
+        });
+    }
+
+    /**
+     * All members ordered by username, decoded lazily from the cursor.
+     * The stream must be closed.
+     */
+    public Stream<member> streamAllMembers() {
+        return STREAM_ALL_MEMBERS.timeStream(() ->
+                Cursors.stream(members.of(Operation.MEMBER_LIST).find().sort(Sorts.ascending("username")),
+                        ReceptionistRepository::memberFromDoc));
+    }
+
+    /**
+     * Keyset page of members ordered by username.
+     * Pass null as token for the first page, then the previous page's nextToken.
+     */
+    public Page<member> findMembersPage(int pageSize, String afterToken) {
+        return FIND_MEMBERS_PAGE.timeDocs(() ->
+                Cursors.page(members.of(Operation.MEMBER_LIST), "username", pageSize, afterToken,
+                        ReceptionistRepository::memberFromDoc));
+    }
+
+    // -------------------- MEMBER SUMMARIES --------------------
+
+    public List<MemberSummary> findMemberSummaries() {
+        return FIND_MEMBER_SUMMARIES.time(() -> {
+            List<MemberSummary> out = new ArrayList<>();
+            for (Document d : summaries()) {
+                out.add(summaryFromDoc(d));
+            }
+            return FIND_MEMBER_SUMMARIES.docs(out);
+        });
+    }
+
+    /**
+     * Summaries of all members ordered by username, read from the summary
+     * index without touching the documents. The stream must be closed.
+     */
+    public Stream<MemberSummary> streamMemberSummaries() {
+        return STREAM_MEMBER_SUMMARIES.timeStream(() -> Cursors.stream(summaries(), ReceptionistRepository::summaryFromDoc));
+    }
+
+    /**
+     * Keyset page of member summaries ordered by username; same tokens as
+     * {@link #findMembersPage}.
+     */
+    public Page<MemberSummary> findMemberSummariesPage(int pageSize, String afterToken) {
+        return FIND_MEMBER_SUMMARIES_PAGE.timeDocs(() -> Cursors.page(members.of(Operation.MEMBER_LIST), "username",
+                pageSize, afterToken, SUMMARY, SUMMARY_INDEX, ReceptionistRepository::summaryFromDoc));
+    }
+
+    private FindIterable<Document> summaries() {
+        return members.of(Operation.MEMBER_LIST).find().projection(SUMMARY).sort(BY_USERNAME).hintString(SUMMARY_INDEX);
+    }
+
+    // -------------------- MEMBER IMPORT / EXPORT --------------------
+
+    /**
+     * Upserts members from a file, keyed on username, {@code chunkSize} rows
+     * per bulk write. Columns left out of the file keep their stored values.
+     */
+    public ImportReport importMembers(Path file, TransferFormat format, int chunkSize) {
+        return IMPORT_MEMBERS.time(() -> {
+            ImportReport report = BulkTransfer.importFile(members.of(Operation.IMPORT), BulkTransfer.MEMBERS,
+                    file, format, chunkSize);
+            IMPORT_MEMBERS.addDocuments(report.inserted() + report.updated());
+            return report;
+        });
+    }
+
+    /**
+     * Writes every member except passwords, ordered by username, straight
+     * from the cursor. Returns the number of members written.
+     */
+    public long exportMembers(Path file, TransferFormat format) {
+        return EXPORT_MEMBERS.time(() -> {
+            long n = BulkTransfer.exportFile(members.of(Operation.EXPORT), BulkTransfer.MEMBERS, file, format);
+            EXPORT_MEMBERS.addDocuments(n);
+            return n;
+        });
+    }
+
+    // -------------------- MEMBERSHIP DATES --------------------
+
+    /**
+     * Members whose membership ends in [from, to], soonest first.
+     */
+    public List<member> findMembersExpiringBetween(LocalDate from, LocalDate to) {
+        return FIND_MEMBERS_EXPIRING_BETWEEN.time(() -> {
+            List<member> out = new ArrayList<>();
+            for (Document d : members.of(Operation.MEMBERSHIP_QUERY).find(expiringBetween(from, to))
+                    .sort(Sorts.ascending("membershipEnd"))) {
+                out.add(memberFromDoc(d));
+            }
+            return FIND_MEMBERS_EXPIRING_BETWEEN.docs(out);
+        });
+    }
+
+    /**
+     * Members whose membership covers {@code day} (start <= day <= end).
+     * The stream must be closed.
+     */
+    public Stream<member> streamMembersActiveOn(LocalDate day) {
+        return STREAM_MEMBERS_ACTIVE_ON.timeStream(() ->
+                Cursors.stream(members.of(Operation.MEMBERSHIP_QUERY).find(activeOn(day)), ReceptionistRepository::memberFromDoc));
+    }
+
+    public long countMembersActiveOn(LocalDate day) {
+        return COUNT_MEMBERS_ACTIVE_ON.time(() -> members.of(Operation.MEMBERSHIP_QUERY).countDocuments(activeOn(day)));
+    }
+
+    /**
+     * username -> membershipEnd of still-active members whose membership
+     * ends in [from, to], soonest first. Only the two fields are fetched.
+     */
+    public Map<String, LocalDate> findActiveMembershipEnds(LocalDate from, LocalDate to) {
+        return FIND_ACTIVE_MEMBERSHIP_ENDS.time(() -> {
+            Map<String, LocalDate> out = new LinkedHashMap<>();
+            for (Document d : members.of(Operation.MEMBERSHIP_QUERY)
+                    .find(Filters.and(expiringBetween(from, to), Filters.ne("isActive", false)))
+                    .projection(Projections.fields(Projections.include("username", "membershipEnd"), Projections.excludeId()))
+                    .sort(Sorts.ascending("membershipEnd"))) {
+                out.put(d.getString("username"), Dates.toLocalDate(d.get("membershipEnd")));
+            }
+            FIND_ACTIVE_MEMBERSHIP_ENDS.addDocuments(out.size());
+            return out;
+        });
+    }
+
+    /**
+     * Marks members inactive whose membership ended before {@code asOf}, in one
+     * updateMany. A member renewed in the meantime no longer matches and is left alone.
+     *
+     * @param usernames members to consider, or null for every member
+     * @return number of members deactivated
+     */
+    public long deactivateExpired(Collection<String> usernames, LocalDate asOf) {
+        return DEACTIVATE_EXPIRED.time(() -> {
+            Bson expired = Filters.and(
+                    Filters.lt("membershipEnd", Dates.toBson(asOf)),
+                    Filters.ne("isActive", false));
+            if (usernames != null) {
+                if (usernames.isEmpty()) return 0L;
+                expired = Filters.and(Filters.in("username", usernames), expired);
+            }
+            long n = members.of(Operation.DEACTIVATE_EXPIRED).updateMany(expired, Updates.set("isActive", false)).getModifiedCount();
+            DEACTIVATE_EXPIRED.addDocuments(n);
+            return n;
+        });
+    }
+
+    static Bson expiringBetween(LocalDate from, LocalDate to) {
+        return Filters.and(
+                Filters.gte("membershipEnd", Dates.toBson(from)),
+                Filters.lte("membershipEnd", Dates.toBson(to)));
+    }
+
+    static Bson activeOn(LocalDate day) {
+        Date d = Dates.toBson(day);
+        return Filters.and(Filters.gte("membershipEnd", d), Filters.lte("membershipStart", d));
+    }
+
+    static Bson datesBetween(LocalDate from, LocalDate to) {
+        return Filters.and(Filters.gte("date", Dates.toBson(from)), Filters.lte("date", Dates.toBson(to)));
     }
 
     // -------------------- APPOINTMENTS --------------------
 
     public void saveAppointment(Appointment ap) {
-        appointments.insertOne(appointmentToDoc(ap));
+        SAVE_APPOINTMENT.run(() -> appointments.of(Operation.SAVE_APPOINTMENT).insertOne(appointmentToDoc(ap)));
     }
 
     public List<Appointment> findAppointmentsByMember(String username) {
-        List<Appointment> out = new ArrayList<>();
-        for (Document d : appointments.find(Filters.eq("memberId", username))) {
-            out.add(appointmentFromDoc(d));
-        }
-        return out;
+        return FIND_APPOINTMENTS_BY_MEMBER.time(() -> {
+            List<Appointment> out = new ArrayList<>();
+            for (Document d : appointments.of(Operation.APPOINTMENT_LOOKUP).find(Filters.eq("memberId", username))) {
+                out.add(appointmentFromDoc(d));
+            }
+            return FIND_APPOINTMENTS_BY_MEMBER.docs(out);
+        });
+    }
+
+    /**
+     * Appointments of one day, ordered by time.
+     * Served by the date_time index, so the cost depends on the day only.
+     */
+    public List<Appointment> findAppointmentsOn(LocalDate date) {
+        return FIND_APPOINTMENTS_ON.time(() -> {
+            try (Stream<Appointment> s = streamAppointmentsBetween(date, date)) {
+                return FIND_APPOINTMENTS_ON.docs(s.toList());
+            }
+        });
+    }
+
+    /**
+     * Appointments with fromDate <= date <= toDate, ordered by date and time.
+     * The stream reads from the server cursor and must be closed.
+     */
+    public Stream<Appointment> streamAppointmentsBetween(LocalDate fromDate, LocalDate toDate) {
+        return STREAM_APPOINTMENTS_BETWEEN.timeStream(() -> Cursors.stream(
+                appointments.of(Operation.APPOINTMENT_LOOKUP).find(datesBetween(fromDate, toDate)).sort(BY_DATE_TIME),
+                ReceptionistRepository::appointmentFromDoc));
+    }
+
+    /**
+     * One trainer's appointments on a day, ordered by time.
+     */
+    public Stream<Appointment> streamTrainerAppointmentsOn(String trainerId, LocalDate date) {
+        return STREAM_TRAINER_APPOINTMENTS_ON.timeStream(() -> Cursors.stream(
+                appointments.of(Operation.APPOINTMENT_LOOKUP)
+                        .find(Filters.and(Filters.eq("trainerId", trainerId), Filters.eq("date", Dates.toBson(date))))
+                        .sort(BY_DATE_TIME),
+                ReceptionistRepository::appointmentFromDoc));
     }
 
     public List<Appointment> findAllAppointments() {
-        List<Appointment> list = new ArrayList<>();
-        for (Document d : appointments.find()) {
-            list.add(appointmentFromDoc(d));
-        }
-        return list;
+        return FIND_ALL_APPOINTMENTS.time(() -> {
+            List<Appointment> list = new ArrayList<>();
+            for (Document d : appointments.of(Operation.APPOINTMENT_LIST).find()) {
+                list.add(appointmentFromDoc(d));
+            }
+            return FIND_ALL_APPOINTMENTS.docs(list);
+        });
+    }
+
+    /**
+     * All appointments in insertion (_id) order. The stream must be closed.
+     */
+    public Stream<Appointment> streamAllAppointments() {
+        return STREAM_ALL_APPOINTMENTS.timeStream(() ->
+                Cursors.stream(appointments.of(Operation.APPOINTMENT_LIST).find().sort(Sorts.ascending("_id")),
+                        ReceptionistRepository::appointmentFromDoc));
+    }
+
+    public Page<Appointment> findAppointmentsPage(int pageSize, String afterToken) {
+        return FIND_APPOINTMENTS_PAGE.timeDocs(() ->
+                Cursors.page(appointments.of(Operation.APPOINTMENT_LIST), "_id", pageSize, afterToken,
+                        ReceptionistRepository::appointmentFromDoc));
+    }
+
+    /**
+     * Upserts appointments from a file, keyed on (memberId, date, time).
+     * Writes go straight to the collection: callers that keep a BookingIndex
+     * or a DeadlineScheduler must reload them afterwards.
+     */
+    public ImportReport importAppointments(Path file, TransferFormat format, int chunkSize) {
+        return IMPORT_APPOINTMENTS.time(() -> {
+            ImportReport report = BulkTransfer.importFile(appointments.of(Operation.IMPORT), BulkTransfer.APPOINTMENTS,
+                    file, format, chunkSize);
+            IMPORT_APPOINTMENTS.addDocuments(report.inserted() + report.updated());
+            return report;
+        });
+    }
+
+    public long exportAppointments(Path file, TransferFormat format) {
+        return EXPORT_APPOINTMENTS.time(() -> {
+            long n = BulkTransfer.exportFile(appointments.of(Operation.EXPORT), BulkTransfer.APPOINTMENTS, file, format);
+            EXPORT_APPOINTMENTS.addDocuments(n);
+            return n;
+        });
     }
 
     // -------------------- CONVERTERS --------------------
 
-    private Document memberToDoc(member m) {
+    static Document memberToDoc(member m) {
         return new Document()
                 .append("username", m.getUsername())
                 .append("password", m.getPassword())
@@ -90,11 +690,11 @@ public class ReceptionistRepository {
                 .append("phone", m.getPhone())
                 
                 .append("membershipType", m.getMembershipType())
-                .append("membershipStart", m.getMembershipStart())
-                .append("membershipEnd", m.getMembershipEnd());
+                .append("membershipStart", Dates.toBson(m.getMembershipStart()))
+                .append("membershipEnd", Dates.toBson(m.getMembershipEnd()));
     }
 
-    private member memberFromDoc(Document d) {
+    static member memberFromDoc(Document d) {
         member m = new member(
                 null,                              // role ignored in constructor (you override anyway)
                 d.getString("password"),
@@ -102,8 +702,8 @@ public class ReceptionistRepository {
                 d.getString("phone"),
                 d.getString("email"),
                 d.getString("membershipType"),
-                d.getString("membershipStart"),
-                d.getString("membershipEnd")
+                Dates.toLocalDate(d.get("membershipStart")),
+                Dates.toLocalDate(d.get("membershipEnd"))
         );
 
         // assign extra fields manually:
@@ -117,26 +717,38 @@ public class ReceptionistRepository {
         return m;
     }
 
+    static MemberSummary summaryFromDoc(Document d) {
+        return new MemberSummary(
+                d.getString("username"),
+                d.getString("phone"),
+                d.getString("membershipType"),
+                Dates.toLocalDate(d.get("membershipEnd")),
+                d.getBoolean("isActive", true),
+                d.getBoolean("freezed", false));
+    }
+
     // -------------------- APPOINTMENT CONVERTERS --------------------
 
-    private Document appointmentToDoc(Appointment s) {
+    static Document appointmentToDoc(Appointment s) {
         return new Document()
                 .append("appointmentName", s.getAppointmentName())
                 .append("memberId", s.getMemberId())
                 .append("trainerId", s.getTrainerId())
-                .append("date", s.getDate())
-                .append("time", s.getTime())
+                .append("date", Dates.toBson(s.getDate()))
+                .append("time", Dates.toBson(s.getTime()))
+                .append("durationMinutes", s.getDurationMinutes())
                 .append("status", s.getStatus())
                 .append("note", s.getNote());
     }
 
-    private Appointment appointmentFromDoc(Document d) {
+    static Appointment appointmentFromDoc(Document d) {
         Appointment s = new Appointment();
         s.setAppointmentName(d.getString("appointmentName"));
         s.setMemberId(d.getString("memberId"));
         s.setTrainerId(d.getString("trainerId"));
-        s.setDate(d.getString("date"));
-        s.setTime(d.getString("time"));
+        s.setDate(Dates.toLocalDate(d.get("date")));
+        s.setTime(Dates.toLocalTime(d.get("time")));
+        s.setDurationMinutes(d.getInteger("durationMinutes", Appointment.DEFAULT_DURATION_MINUTES));
         s.setStatus(d.getString("status"));
         s.setNote(d.getString("note"));
         return s;
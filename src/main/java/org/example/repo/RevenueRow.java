@@ -0,0 +1,15 @@
+package org.example.repo;
+
+import java.time.LocalDate;
+
+/**
+ * Revenue of one period, split by one dimension and always by currency
+ * (amounts in different currencies are never added up).
+ *
+ * @param start    first day of the day or month bucket
+ * @param key      value of the grouping dimension (method, status, ...), null when not grouped
+ * @param currency currency of {@code amount}
+ * @param count    number of payments
+ * @param amount   sum of their amounts
+ */
+public record RevenueRow(LocalDate start, String key, String currency, long count, double amount) {}
@@ -0,0 +1,8 @@
+package org.example.repo;
+
+/**
+ * One result of a ranked search.
+ *
+ * @param score relevance, higher is better; only comparable within one search
+ */
+public record SearchHit<T>(T item, double score) {}
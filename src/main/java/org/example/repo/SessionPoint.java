@@ -0,0 +1,15 @@
+package org.example.repo;
+
+import java.time.LocalDate;
+
+/**
+ * Training done in one bucket.
+ *
+ * @param start       first day of the day, week or month bucket, in the gym's time zone
+ * @param entries     exercises logged
+ * @param reps        sets times reps, summed
+ * @param volumeKg    sets times reps times weight, summed
+ * @param maxWeightKg heaviest weight used
+ */
+public record SessionPoint(LocalDate start, long entries, long sets, long reps, double volumeKg,
+                           double maxWeightKg, long minutes) {}
@@ -0,0 +1,61 @@
+package org.example.repo;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoCollection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How durable a write must be and where a read may go. A null component
+ * keeps whatever the collection (in the end, the client) already uses.
+ */
+public enum Tier {
+
+    /** Acknowledged by a majority and journaled before returning; reads see only majority-committed data. */
+    CRITICAL(WriteConcern.MAJORITY.withJournal(true).withWTimeout(10, TimeUnit.SECONDS),
+            ReadPreference.primary(), ReadConcern.MAJORITY),
+
+    /** The client defaults. */
+    STANDARD(null, null, null),
+
+    /** Acknowledged by the primary alone; for counters and lookups that a lost write does not hurt. */
+    FAST(WriteConcern.W1, ReadPreference.primary(), ReadConcern.LOCAL),
+
+    /** Reads from a secondary when there is one; for reports and exports that tolerate some lag. */
+    REPORTING(null, ReadPreference.secondaryPreferred(), ReadConcern.LOCAL);
+
+    private final WriteConcern writeConcern;
+    private final ReadPreference readPreference;
+    private final ReadConcern readConcern;
+
+    Tier(WriteConcern writeConcern, ReadPreference readPreference, ReadConcern readConcern) {
+        this.writeConcern = writeConcern;
+        this.readPreference = readPreference;
+        this.readConcern = readConcern;
+    }
+
+    public WriteConcern writeConcern() { return writeConcern; }
+
+    public ReadPreference readPreference() { return readPreference; }
+
+    public ReadConcern readConcern() { return readConcern; }
+
+    /** A view of {@code collection} with this tier's settings; the collection itself is unchanged. */
+    public <T> MongoCollection<T> apply(MongoCollection<T> collection) {
+        if (writeConcern != null) collection = collection.withWriteConcern(writeConcern);
+        if (readPreference != null) collection = collection.withReadPreference(readPreference);
+        if (readConcern != null) collection = collection.withReadConcern(readConcern);
+        return collection;
+    }
+
+    /** Same for the reactive driver. */
+    public <T> com.mongodb.reactivestreams.client.MongoCollection<T> apply(
+            com.mongodb.reactivestreams.client.MongoCollection<T> collection) {
+        if (writeConcern != null) collection = collection.withWriteConcern(writeConcern);
+        if (readPreference != null) collection = collection.withReadPreference(readPreference);
+        if (readConcern != null) collection = collection.withReadConcern(readConcern);
+        return collection;
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.repo;
+
+import com.mongodb.client.MongoCollection;
+
+import java.util.EnumMap;
+
+/**
+ * One collection seen through each {@link Tier}. The views are built once,
+ * so routing an operation is a map lookup.
+ */
+final class TieredCollection<T> {
+
+    private final MongoCollection<T> base;
+    private final DurabilityPolicy policy;
+    private final EnumMap<Tier, MongoCollection<T>> views = new EnumMap<>(Tier.class);
+
+    TieredCollection(MongoCollection<T> base, DurabilityPolicy policy) {
+        this.base = base;
+        this.policy = policy;
+        for (Tier tier : Tier.values()) {
+            views.put(tier, tier.apply(base));
+        }
+    }
+
+    /** The collection as configured, for operations without a policy entry. */
+    MongoCollection<T> base() {
+        return base;
+    }
+
+    MongoCollection<T> of(Operation op) {
+        return views.get(policy.tier(op));
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.repo;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+
+/**
+ * Creates time-series collections on first use.
+ * A time-series collection has to be created explicitly; an implicit
+ * insert would create a plain collection instead.
+ */
+final class TimeSeries {
+
+    private static final int NAMESPACE_EXISTS = 48;
+
+    private TimeSeries() {}
+
+    /**
+     * @return true if the collection was created by this call
+     */
+    static boolean ensure(MongoDatabase db, String name, String timeField, String metaField,
+                          TimeSeriesGranularity granularity) {
+
+        if (db.listCollectionNames().filter(Filters.eq("name", name)).first() != null) {
+            return false;
+        }
+
+        try {
+            db.createCollection(name, new CreateCollectionOptions().timeSeriesOptions(
+                    new TimeSeriesOptions(timeField).metaField(metaField).granularity(granularity)));
+            return true;
+        } catch (MongoCommandException e) {
+            // another process created it between the check and the create
+            if (e.getErrorCode() == NAMESPACE_EXISTS) return false;
+            throw e;
+        }
+    }
+}
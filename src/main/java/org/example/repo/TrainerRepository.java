@@ -1,23 +1,87 @@
 package org.example.repo;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationStats;
+import org.example.model.BodyMetric;
 import org.example.model.DietPlan;
+import org.example.model.TrainingSession;
 import org.example.model.WorkoutPlan;
 
 
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoChangeStreamCursor;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
-public class TrainerRepository {
+public class TrainerRepository implements IndexedRepository {
 
-    private final MongoCollection<Document> trainers;
-    private final MongoCollection<Document> workouts;
-    private final MongoCollection<Document> diets;
-    private final MongoCollection<Document> sessions;
-    private final MongoCollection<Document> progress;
+    private static final OperationStats SAVE_WORKOUT = Metrics.op("TrainerRepository.saveWorkout");
+    private static final OperationStats UPDATE_WORKOUT = Metrics.op("TrainerRepository.updateWorkout");
+    private static final OperationStats FIND_ALL_WORKOUTS = Metrics.op("TrainerRepository.findAllWorkouts");
+    private static final OperationStats STREAM_ALL_WORKOUTS = Metrics.op("TrainerRepository.streamAllWorkouts");
+    private static final OperationStats FIND_WORKOUTS_PAGE = Metrics.op("TrainerRepository.findWorkoutsPage");
+    private static final OperationStats FIND_WORKOUT_BY_NAME = Metrics.op("TrainerRepository.findWorkoutByName");
+    private static final OperationStats SAVE_DIET = Metrics.op("TrainerRepository.saveDiet");
+    private static final OperationStats UPDATE_DIET = Metrics.op("TrainerRepository.updateDiet");
+    private static final OperationStats FIND_ALL_DIETS = Metrics.op("TrainerRepository.findAllDiets");
+    private static final OperationStats STREAM_ALL_DIETS = Metrics.op("TrainerRepository.streamAllDiets");
+    private static final OperationStats FIND_DIETS_PAGE = Metrics.op("TrainerRepository.findDietsPage");
+    private static final OperationStats FIND_DIET_BY_NAME = Metrics.op("TrainerRepository.findDietByName");
+    private static final OperationStats SEARCH_WORKOUTS = Metrics.op("TrainerRepository.searchWorkouts");
+    private static final OperationStats SEARCH_DIETS = Metrics.op("TrainerRepository.searchDiets");
+    private static final OperationStats PLAN_CHANGES = Metrics.op("TrainerRepository.followPlanChanges");
+    private static final OperationStats LOG_SESSIONS = Metrics.op("TrainerRepository.logSessions");
+    private static final OperationStats LOG_METRICS = Metrics.op("TrainerRepository.logMetrics");
+    private static final OperationStats METRIC_SERIES = Metrics.op("TrainerRepository.metricSeries");
+    private static final OperationStats SESSION_SERIES = Metrics.op("TrainerRepository.sessionSeries");
+
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+    /** Which plan collection changed. */
+    public enum PlanKind { WORKOUTS, DIETS }
+
+    /** Bucket size of a progress series; weeks start on Monday. */
+    public enum Bucket { DAY, WEEK, MONTH }
+
+    // a word in the name counts three times a word in the details
+    private static final Map<String, Integer> WORKOUT_TEXT = Map.of("planName", 3, "planDetails", 1);
+    private static final Map<String, Integer> DIET_TEXT = Map.of("dietName", 3, "dietDetails", 1);
+
+    private final MongoDatabase db;
+    private final MongoCollection<Document> trainers; // only indexed here
+    // every other operation goes through the view its Operation gets from the DurabilityPolicy
+    private final TieredCollection<Document> workouts;
+    private final TieredCollection<Document> diets;
+    private final TieredCollection<Document> sessions;
+    private final TieredCollection<Document> progress;
+    private final ZoneId zone;
+
+    private final List<PlanListener> planListeners = new CopyOnWriteArrayList<>();
 
     public TrainerRepository(
             MongoDatabase db,
@@ -27,60 +91,410 @@ public class TrainerRepository {
             String sessionColl,
             String progressColl
     ) {
+        this(db, trainerColl, workoutColl, dietColl, sessionColl, progressColl, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param zone the gym's time zone; progress buckets start at its midnights
+     */
+    public TrainerRepository(
+            MongoDatabase db,
+            String trainerColl,
+            String workoutColl,
+            String dietColl,
+            String sessionColl,
+            String progressColl,
+            ZoneId zone
+    ) {
+        this(db, trainerColl, workoutColl, dietColl, sessionColl, progressColl, zone, DurabilityPolicy.defaults());
+    }
+
+    /**
+     * @param policy write concern and read routing of every operation, see {@link Operation}
+     */
+    public TrainerRepository(
+            MongoDatabase db,
+            String trainerColl,
+            String workoutColl,
+            String dietColl,
+            String sessionColl,
+            String progressColl,
+            ZoneId zone,
+            DurabilityPolicy policy
+    ) {
+        this.db = db;
         this.trainers = db.getCollection(trainerColl);
-        this.workouts = db.getCollection(workoutColl);
-        this.diets = db.getCollection(dietColl);
-        this.sessions = db.getCollection(sessionColl);
-        this.progress = db.getCollection(progressColl);
+        this.workouts = new TieredCollection<>(db.getCollection(workoutColl), policy);
+        this.diets = new TieredCollection<>(db.getCollection(dietColl), policy);
+        this.sessions = new TieredCollection<>(db.getCollection(sessionColl), policy);
+        this.progress = new TieredCollection<>(db.getCollection(progressColl), policy);
+        this.zone = zone;
+    }
+
+    // ---------------- INDEXES ----------------
+
+    @Override
+    public void ensureIndexes(IndexManager indexes) {
+        indexes.ensure(trainers,
+                IndexManager.uniqueIndex("username_unique", Indexes.ascending("username")));
+
+        indexes.ensure(workouts.base(),
+                IndexManager.uniqueIndex("planId_unique", Indexes.ascending("planId")),
+                IndexManager.index("planName", Indexes.ascending("planName")),
+                IndexManager.index("trainerId", Indexes.ascending("trainerId")),
+                IndexManager.textIndex("search_text", WORKOUT_TEXT));
+
+        indexes.ensure(diets.base(),
+                IndexManager.uniqueIndex("dietId_unique", Indexes.ascending("dietId")),
+                IndexManager.index("dietName", Indexes.ascending("dietName")),
+                IndexManager.index("trainerId", Indexes.ascending("trainerId")),
+                IndexManager.textIndex("search_text", DIET_TEXT));
+
+        // a few entries per member and day; hour buckets keep each member's year in a few hundred buckets
+        TimeSeries.ensure(db, sessions.base().getNamespace().getCollectionName(), "ts", "meta", TimeSeriesGranularity.HOURS);
+        indexes.ensure(sessions.base(),
+                IndexManager.index("member_exercise_ts", Indexes.ascending("meta.member", "meta.exercise", "ts")));
+
+        TimeSeries.ensure(db, progress.base().getNamespace().getCollectionName(), "ts", "meta", TimeSeriesGranularity.HOURS);
+        indexes.ensure(progress.base(),
+                IndexManager.index("member_metric_ts", Indexes.ascending("meta.member", "meta.metric", "ts")));
+    }
+
+    @Override
+    public void verifyIndexes(IndexManager indexes) {
+        indexes.expectIndexScan(workouts.base(), "findWorkoutByName", Filters.eq("planName", ""));
+        indexes.expectIndexScan(workouts.base(), "updateWorkout", Filters.eq("planId", ""));
+        indexes.expectIndexScan(diets.base(), "findDietByName", Filters.eq("dietName", ""));
+        indexes.expectIndexScan(diets.base(), "updateDiet", Filters.eq("dietId", ""));
     }
 
     // ---------------- WORKOUT PLANS ----------------
     public void saveWorkout(WorkoutPlan w) {
-        workouts.insertOne(workoutToDoc(w));
+        SAVE_WORKOUT.run(() -> {
+            workouts.of(Operation.SAVE_PLAN).insertOne(workoutToDoc(w));
+            workoutWritten(w);
+        });
     }
 
     public void updateWorkout(WorkoutPlan w) {
-        workouts.replaceOne(Filters.eq("planId", w.getPlanId()), workoutToDoc(w));
+        UPDATE_WORKOUT.run(() -> {
+            workouts.of(Operation.SAVE_PLAN).replaceOne(Filters.eq("planId", w.getPlanId()), workoutToDoc(w));
+            workoutWritten(w);
+        });
     }
 
     public List<WorkoutPlan> findAllWorkouts() {
-        List<WorkoutPlan> list = new ArrayList<>();
-        for (Document doc : workouts.find()) {
-            list.add(workoutFromDoc(doc));
-        }
-        return list;
+        return FIND_ALL_WORKOUTS.time(() -> {
+            List<WorkoutPlan> list = new ArrayList<>();
+            for (Document doc : workouts.of(Operation.PLAN_LIST).find()) {
+                list.add(workoutFromDoc(doc));
+            }
+            return FIND_ALL_WORKOUTS.docs(list);
+        });
+    }
+
+    public Stream<WorkoutPlan> streamAllWorkouts() {
+        return STREAM_ALL_WORKOUTS.timeStream(() ->
+                Cursors.stream(workouts.of(Operation.PLAN_LIST).find().sort(Sorts.ascending("_id")), TrainerRepository::workoutFromDoc));
+    }
+
+    public Page<WorkoutPlan> findWorkoutsPage(int pageSize, String afterToken) {
+        return FIND_WORKOUTS_PAGE.timeDocs(() ->
+                Cursors.page(workouts.of(Operation.PLAN_LIST), "_id", pageSize, afterToken, TrainerRepository::workoutFromDoc));
     }
 
     public WorkoutPlan findWorkoutByName(String name) {
-        Document doc = workouts.find(Filters.eq("planName", name)).first();
-        return doc == null ? null : workoutFromDoc(doc);
+        return FIND_WORKOUT_BY_NAME.time(() -> {
+            Document doc = workouts.of(Operation.PLAN_LOOKUP).find(Filters.eq("planName", name)).first();
+            return FIND_WORKOUT_BY_NAME.docs(doc == null ? null : workoutFromDoc(doc));
+        });
+    }
+
+    /**
+     * Ranked keyword search over plan names and details through the text
+     * index: any word may match, stemmed, best text score first.
+     */
+    public List<SearchHit<WorkoutPlan>> searchWorkouts(String query, int limit) {
+        return SEARCH_WORKOUTS.timeDocs(() -> textSearch(workouts.of(Operation.PLAN_SEARCH), query, limit, TrainerRepository::workoutFromDoc));
     }
 
     // ---------------- DIET PLANS ----------------
     public void saveDiet(DietPlan d) {
-        diets.insertOne(dietToDoc(d));
+        SAVE_DIET.run(() -> {
+            diets.of(Operation.SAVE_PLAN).insertOne(dietToDoc(d));
+            dietWritten(d);
+        });
     }
 
     public void updateDiet(DietPlan d) {
-        diets.replaceOne(Filters.eq("dietId", d.getDietId()), dietToDoc(d));
+        UPDATE_DIET.run(() -> {
+            diets.of(Operation.SAVE_PLAN).replaceOne(Filters.eq("dietId", d.getDietId()), dietToDoc(d));
+            dietWritten(d);
+        });
     }
 
     public List<DietPlan> findAllDiets() {
-        List<DietPlan> list = new ArrayList<>();
-        for (Document doc : diets.find()) {
-            list.add(dietFromDoc(doc));
-        }
-        return list;
+        return FIND_ALL_DIETS.time(() -> {
+            List<DietPlan> list = new ArrayList<>();
+            for (Document doc : diets.of(Operation.PLAN_LIST).find()) {
+                list.add(dietFromDoc(doc));
+            }
+            return FIND_ALL_DIETS.docs(list);
+        });
+    }
+
+    public Stream<DietPlan> streamAllDiets() {
+        return STREAM_ALL_DIETS.timeStream(() ->
+                Cursors.stream(diets.of(Operation.PLAN_LIST).find().sort(Sorts.ascending("_id")), TrainerRepository::dietFromDoc));
+    }
+
+    public Page<DietPlan> findDietsPage(int pageSize, String afterToken) {
+        return FIND_DIETS_PAGE.timeDocs(() -> Cursors.page(diets.of(Operation.PLAN_LIST), "_id", pageSize, afterToken, TrainerRepository::dietFromDoc));
     }
 
     public DietPlan findDietByName(String name) {
-        Document doc = diets.find(Filters.eq("dietName", name)).first();
-        return doc == null ? null : dietFromDoc(doc);
+        return FIND_DIET_BY_NAME.time(() -> {
+            Document doc = diets.of(Operation.PLAN_LOOKUP).find(Filters.eq("dietName", name)).first();
+            return FIND_DIET_BY_NAME.docs(doc == null ? null : dietFromDoc(doc));
+        });
+    }
+
+    public List<SearchHit<DietPlan>> searchDiets(String query, int limit) {
+        return SEARCH_DIETS.timeDocs(() -> textSearch(diets.of(Operation.PLAN_SEARCH), query, limit, TrainerRepository::dietFromDoc));
+    }
+
+    private static <T> List<SearchHit<T>> textSearch(MongoCollection<Document> collection, String query, int limit,
+                                                     Function<Document, T> mapper) {
+        if (limit < 1) throw new IllegalArgumentException("limit must be positive");
+        if (query == null || query.isBlank()) return List.of();
+
+        List<SearchHit<T>> hits = new ArrayList<>();
+        for (Document d : collection.find(Filters.text(query))
+                .projection(Projections.metaTextScore("score"))
+                .sort(Sorts.metaTextScore("score"))
+                .limit(limit)) {
+            hits.add(new SearchHit<>(mapper.apply(d), d.getDouble("score")));
+        }
+        return hits;
+    }
+
+    // ---------------- PROGRESS ----------------
+
+    /**
+     * Logs exercises into the sessions time-series collection, one
+     * unordered insert for the batch.
+     *
+     * @return number of entries written
+     */
+    public int logSessions(List<TrainingSession> entries) {
+        return LOG_SESSIONS.time(() -> {
+            if (entries.isEmpty()) return 0;
+            List<Document> docs = new ArrayList<>(entries.size());
+            for (TrainingSession e : entries) {
+                docs.add(new Document("ts", Date.from(e.at()))
+                        .append("meta", new Document("member", e.memberId()).append("exercise", e.exercise()))
+                        .append("trainer", e.trainerId())
+                        .append("sets", e.sets())
+                        .append("reps", e.reps())
+                        .append("weight", e.weightKg())
+                        .append("minutes", e.minutes()));
+            }
+            sessions.of(Operation.LOG_PROGRESS).insertMany(docs, UNORDERED);
+            LOG_SESSIONS.addDocuments(docs.size());
+            return docs.size();
+        });
+    }
+
+    /**
+     * Logs body measurements into the progress time-series collection.
+     *
+     * @return number of measurements written
+     */
+    public int logMetrics(List<BodyMetric> metrics) {
+        return LOG_METRICS.time(() -> {
+            if (metrics.isEmpty()) return 0;
+            List<Document> docs = new ArrayList<>(metrics.size());
+            for (BodyMetric m : metrics) {
+                docs.add(new Document("ts", Date.from(m.at()))
+                        .append("meta", new Document("member", m.memberId()).append("metric", m.metric()))
+                        .append("value", m.value()));
+            }
+            progress.of(Operation.LOG_PROGRESS).insertMany(docs, UNORDERED);
+            LOG_METRICS.addDocuments(docs.size());
+            return docs.size();
+        });
+    }
+
+    /**
+     * One member's metric over the days [from, to], one point per
+     * non-empty bucket, oldest first. The downsampling runs on the server:
+     * the response holds one document per bucket however many
+     * measurements were logged.
+     */
+    public List<MetricPoint> metricSeries(String memberId, String metric, LocalDate from, LocalDate to,
+                                          Bucket bucket) {
+        return METRIC_SERIES.time(() -> {
+            Bson match = Filters.and(
+                    Filters.eq("meta.member", memberId),
+                    Filters.eq("meta.metric", metric),
+                    inDays(from, to));
+
+            List<MetricPoint> out = new ArrayList<>();
+            for (Document d : progress.of(Operation.PROGRESS_REPORT).aggregate(List.of(
+                    Aggregates.match(match),
+                    Aggregates.group(bucketStart(bucket),
+                            Accumulators.sum("samples", 1),
+                            Accumulators.avg("avg", "$value"),
+                            Accumulators.min("min", "$value"),
+                            Accumulators.max("max", "$value")),
+                    Aggregates.sort(Sorts.ascending("_id"))))) {
+                out.add(new MetricPoint(toLocalDate(d.getDate("_id")),
+                        ((Number) d.get("samples")).longValue(),
+                        ((Number) d.get("avg")).doubleValue(),
+                        ((Number) d.get("min")).doubleValue(),
+                        ((Number) d.get("max")).doubleValue()));
+            }
+            return METRIC_SERIES.docs(out);
+        });
+    }
+
+    /**
+     * Training done by one member over the days [from, to], one point per
+     * non-empty bucket, oldest first; aggregated on the server like
+     * {@link #metricSeries}.
+     *
+     * @param exercise only this exercise, e.g. to chart one lift; null for all
+     */
+    public List<SessionPoint> sessionSeries(String memberId, String exercise, LocalDate from, LocalDate to,
+                                            Bucket bucket) {
+        return SESSION_SERIES.time(() -> {
+            List<Bson> filters = new ArrayList<>(List.of(Filters.eq("meta.member", memberId), inDays(from, to)));
+            if (exercise != null) filters.add(Filters.eq("meta.exercise", exercise));
+            Document setsTimesReps = new Document("$multiply", List.of("$sets", "$reps"));
+
+            List<SessionPoint> out = new ArrayList<>();
+            for (Document d : sessions.of(Operation.PROGRESS_REPORT).aggregate(List.of(
+                    Aggregates.match(Filters.and(filters)),
+                    Aggregates.group(bucketStart(bucket),
+                            Accumulators.sum("entries", 1),
+                            Accumulators.sum("sets", "$sets"),
+                            Accumulators.sum("reps", setsTimesReps),
+                            Accumulators.sum("volume", new Document("$multiply", List.of("$sets", "$reps", "$weight"))),
+                            Accumulators.max("maxWeight", "$weight"),
+                            Accumulators.sum("minutes", "$minutes")),
+                    Aggregates.sort(Sorts.ascending("_id"))))) {
+                out.add(new SessionPoint(toLocalDate(d.getDate("_id")),
+                        ((Number) d.get("entries")).longValue(),
+                        ((Number) d.get("sets")).longValue(),
+                        ((Number) d.get("reps")).longValue(),
+                        ((Number) d.get("volume")).doubleValue(),
+                        d.get("maxWeight") == null ? 0 : ((Number) d.get("maxWeight")).doubleValue(),
+                        ((Number) d.get("minutes")).longValue()));
+            }
+            return SESSION_SERIES.docs(out);
+        });
+    }
+
+    // from's midnight up to the midnight after to, in the gym's zone
+    private Bson inDays(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) throw new IllegalArgumentException("to is before from");
+        return Filters.and(
+                Filters.gte("ts", Date.from(from.atStartOfDay(zone).toInstant())),
+                Filters.lt("ts", Date.from(to.plusDays(1).atStartOfDay(zone).toInstant())));
+    }
+
+    private Document bucketStart(Bucket bucket) {
+        Document trunc = new Document("date", "$ts")
+                .append("unit", bucket.name().toLowerCase(Locale.ROOT))
+                .append("timezone", zone.getId());
+        if (bucket == Bucket.WEEK) trunc.append("startOfWeek", "monday");
+        return new Document("$dateTrunc", trunc);
+    }
+
+    private LocalDate toLocalDate(Date bucketStart) {
+        return bucketStart.toInstant().atZone(zone).toLocalDate();
+    }
+
+    // ---------------- PLAN CHANGES ----------------
+
+    /**
+     * Told about every plan write made through this repository, with the
+     * plan as written. Listeners run on the writing thread and must be quick.
+     */
+    public interface PlanListener {
+        void workoutWritten(WorkoutPlan w);
+
+        void dietWritten(DietPlan d);
+    }
+
+    public void onPlanWritten(PlanListener listener) {
+        planListeners.add(listener);
+    }
+
+    private void workoutWritten(WorkoutPlan w) {
+        notifyPlanListeners(l -> l.workoutWritten(w));
+    }
+
+    private void dietWritten(DietPlan d) {
+        notifyPlanListeners(l -> l.dietWritten(d));
+    }
+
+    private void notifyPlanListeners(Consumer<PlanListener> call) {
+        for (PlanListener l : planListeners) {
+            try {
+                call.accept(l);
+            } catch (RuntimeException e) {
+                System.err.println("Plan change listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Follows the workout and diet collections through a change stream and
+     * tells {@code onChange} about every insert, update, replace or delete,
+     * including those made by other nodes. Blocks until the thread is
+     * interrupted.
+     *
+     * Once the stream is open both kinds are reported, since anything may
+     * have changed before. A failed stream (after the driver's own resume
+     * attempt) is thrown; events may have been missed by then. Needs a
+     * replica set or sharded cluster.
+     */
+    public void followPlanChanges(Consumer<PlanKind> onChange) {
+        String workoutColl = workouts.base().getNamespace().getCollectionName();
+        String dietColl = diets.base().getNamespace().getCollectionName();
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.in("ns.coll", workoutColl, dietColl)),
+                Aggregates.project(Projections.include("operationType", "ns")));
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor =
+                     db.watch(pipeline).maxAwaitTime(1, TimeUnit.SECONDS).cursor()) {
+            onChange.accept(PlanKind.WORKOUTS);
+            onChange.accept(PlanKind.DIETS);
+
+            // tryNext returns every maxAwaitTime, so an interrupt is noticed within a second
+            while (!Thread.currentThread().isInterrupted()) {
+                ChangeStreamDocument<Document> event = cursor.tryNext();
+                if (event == null) continue;
+                PLAN_CHANGES.addDocuments(1);
+
+                if (event.getOperationType() == OperationType.INVALIDATE)
+                    throw new IllegalStateException("Plan change stream invalidated");
+                MongoNamespace ns = event.getNamespace();
+                if (ns == null) continue;
+                onChange.accept(ns.getCollectionName().equals(workoutColl) ? PlanKind.WORKOUTS : PlanKind.DIETS);
+            }
+        } catch (MongoInterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            PLAN_CHANGES.error();
+            throw e;
+        }
     }
 
     // ---------------- DOCUMENT CONVERSION ----------------
 
-    private Document workoutToDoc(WorkoutPlan w) {
+    static Document workoutToDoc(WorkoutPlan w) {
         return new Document()
                 .append("planId", w.getPlanId())
                 .append("trainerId", w.getTrainerId())
@@ -88,7 +502,7 @@ public class TrainerRepository {
                 .append("planDetails", w.getPlanDetails());
     }
 
-    private WorkoutPlan workoutFromDoc(Document d) {
+    static WorkoutPlan workoutFromDoc(Document d) {
         WorkoutPlan w = new WorkoutPlan();
         w.setPlanId(d.getString("planId"));
         w.setTrainerId(d.getString("trainerId"));
@@ -97,7 +511,7 @@ public class TrainerRepository {
         return w;
     }
 
-    private Document dietToDoc(DietPlan d) {
+    static Document dietToDoc(DietPlan d) {
         return new Document()
                 .append("dietId", d.getDietId())
                 .append("trainerId", d.getTrainerId())
@@ -105,7 +519,7 @@ public class TrainerRepository {
                 .append("dietDetails", d.getDietDetails());
     }
 
-    private DietPlan dietFromDoc(Document d) {
+    static DietPlan dietFromDoc(Document d) {
         DietPlan di = new DietPlan();
         di.setDietId(d.getString("dietId"));
         di.setTrainerId(d.getString("trainerId"));
@@ -0,0 +1,20 @@
+package org.example.repo;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * File formats for bulk import and export: one JSON object per line, or
+ * CSV with a header row.
+ */
+public enum TransferFormat {
+    NDJSON, CSV;
+
+    /** By file extension: .csv, or .ndjson / .jsonl / .json. */
+    public static TransferFormat of(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) return NDJSON;
+        throw new IllegalArgumentException("Unknown transfer format: " + file.getFileName());
+    }
+}
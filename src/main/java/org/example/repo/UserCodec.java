@@ -0,0 +1,230 @@
+package org.example.repo;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.example.model.Roles;
+import org.example.model.member;
+import org.example.model.physitherapist;
+import org.example.model.receptionist;
+import org.example.model.trainer;
+import org.example.model.users;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Reads and writes the users hierarchy straight to BSON.
+ *
+ * The "role" field is the discriminator: a document with role "member"
+ * decodes to {@link member}, "trainer" to {@link trainer} and so on, so the
+ * subtype fields survive a round trip. Field names match what the old Gson
+ * mapping stored, so existing documents decode unchanged. Membership dates
+ * are written as BSON dates; legacy string dates are still read.
+ *
+ * Null fields are left out, as Gson did: {@code Userrepo.update} $sets the
+ * encoded document, so a partial user must not wipe what it does not carry.
+ */
+public class UserCodec implements Codec<users> {
+
+    /** Default driver codecs plus this one, for users-typed collections. */
+    public static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(new UserCodec()),
+            MongoClientSettings.getDefaultCodecRegistry());
+
+    @Override
+    public Class<users> getEncoderClass() {
+        return users.class;
+    }
+
+    // -------------------- ENCODE --------------------
+
+    @Override
+    public void encode(BsonWriter w, users u, EncoderContext ctx) {
+        w.writeStartDocument();
+        writeString(w, "username", u.getUsername());
+        writeString(w, "password", u.getPassword());
+        writeString(w, "role", u.getRole() == null ? null : u.getRole().name());
+
+        if (u instanceof member m) {
+            w.writeInt32("age", m.age);
+            writeString(w, "gender", m.gender);
+            writeString(w, "address", m.address);
+            w.writeInt32("attendance", m.attendance);
+            w.writeBoolean("isActive", m.isActive);
+            w.writeBoolean("freezed", m.freezed);
+            writeString(w, "phone", m.getPhone());
+            writeString(w, "membershipType", m.getMembershipType());
+            writeDate(w, "membershipStart", m.getMembershipStart());
+            writeDate(w, "membershipEnd", m.getMembershipEnd());
+        } else if (u instanceof trainer t) {
+            writeString(w, "specialization", t.getSpecialization());
+            w.writeInt32("experienceYears", t.getExperienceYears());
+            writeString(w, "workingHours", t.getWorkingHours());
+            w.writeDouble("salary", t.getSalary());
+        } else if (u instanceof receptionist r) {
+            writeString(w, "phone", r.getPhone());
+            writeString(w, "experienceYear", r.getExperienceYear());
+        }
+
+        w.writeEndDocument();
+    }
+
+    private static void writeString(BsonWriter w, String name, String value) {
+        if (value != null) w.writeString(name, value);
+    }
+
+    private static void writeDate(BsonWriter w, String name, LocalDate value) {
+        if (value != null) w.writeDateTime(name, Dates.toBson(value).getTime());
+    }
+
+    // -------------------- DECODE --------------------
+
+    @Override
+    public users decode(BsonReader r, DecoderContext ctx) {
+        Fields f = new Fields();
+
+        r.readStartDocument();
+        while (r.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = r.readName();
+            switch (name) {
+                case "username" -> f.username = readString(r);
+                case "password" -> f.password = readString(r);
+                case "role" -> f.role = readString(r);
+                case "age" -> f.age = readInt(r);
+                case "gender" -> f.gender = readString(r);
+                case "address" -> f.address = readString(r);
+                case "attendance" -> f.attendance = readInt(r);
+                case "isActive" -> f.isActive = readBoolean(r, true);
+                case "freezed" -> f.freezed = readBoolean(r, false);
+                case "phone" -> f.phone = readString(r);
+                case "membershipType" -> f.membershipType = readString(r);
+                case "membershipStart" -> f.membershipStart = readDate(r);
+                case "membershipEnd" -> f.membershipEnd = readDate(r);
+                case "specialization" -> f.specialization = readString(r);
+                case "experienceYears" -> f.experienceYears = readInt(r);
+                case "workingHours" -> f.workingHours = readString(r);
+                case "salary" -> f.salary = readDouble(r);
+                case "experienceYear" -> f.experienceYear = readString(r);
+                default -> r.skipValue();
+            }
+        }
+        r.readEndDocument();
+
+        return f.build();
+    }
+
+    /** Values of one document, collected before the subtype is known. */
+    private static final class Fields {
+        String username, password, role;
+        int age, attendance, experienceYears;
+        String gender, address, phone;
+        boolean isActive = true, freezed = false;
+        String membershipType;
+        LocalDate membershipStart, membershipEnd;
+        String specialization, workingHours, experienceYear;
+        double salary;
+
+        users build() {
+            Roles r = role == null ? null : parseRole(role);
+            if (r == null) {
+                return new users(null, password, username);
+            }
+
+            // the subtype constructors take (password, username)
+            users u = switch (r) {
+                case member -> new member(password, username);
+                case trainer -> new trainer(password, username);
+                case receptionist -> new receptionist(password, username);
+                case physiotherapist -> new physitherapist(password, username);
+            };
+            if (u instanceof member m) {
+                m.age = age;
+                m.gender = gender;
+                m.address = address;
+                m.attendance = attendance;
+                m.isActive = isActive;
+                m.freezed = freezed;
+                m.setPhone(phone);
+                m.setMembershipType(membershipType);
+                m.setMembershipStart(membershipStart);
+                m.setMembershipEnd(membershipEnd);
+            } else if (u instanceof trainer t) {
+                t.setSpecialization(specialization);
+                t.setExperienceYears(experienceYears);
+                t.setWorkingHours(workingHours);
+                t.setSalary(salary);
+            } else if (u instanceof receptionist rc) {
+                rc.setPhone(phone);
+                rc.setExperienceYear(experienceYear);
+            }
+            return u;
+        }
+
+        private static Roles parseRole(String role) {
+            try {
+                return Roles.valueOf(role);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static String readString(BsonReader r) {
+        if (r.getCurrentBsonType() == BsonType.NULL) {
+            r.readNull();
+            return null;
+        }
+        return r.readString();
+    }
+
+    /** BSON date, or a legacy "yyyy-mm-dd" string not yet migrated. */
+    private static LocalDate readDate(BsonReader r) {
+        return switch (r.getCurrentBsonType()) {
+            case DATE_TIME -> Dates.toLocalDate(new Date(r.readDateTime()));
+            case STRING -> Dates.parseDate(r.readString());
+            default -> {
+                r.skipValue();
+                yield null;
+            }
+        };
+    }
+
+    private static int readInt(BsonReader r) {
+        return switch (r.getCurrentBsonType()) {
+            case INT32 -> r.readInt32();
+            case INT64 -> (int) r.readInt64();
+            case DOUBLE -> (int) r.readDouble();
+            default -> {
+                r.skipValue();
+                yield 0;
+            }
+        };
+    }
+
+    private static double readDouble(BsonReader r) {
+        return switch (r.getCurrentBsonType()) {
+            case DOUBLE -> r.readDouble();
+            case INT32 -> r.readInt32();
+            case INT64 -> r.readInt64();
+            default -> {
+                r.skipValue();
+                yield 0;
+            }
+        };
+    }
+
+    private static boolean readBoolean(BsonReader r, boolean fallback) {
+        if (r.getCurrentBsonType() == BsonType.BOOLEAN) {
+            return r.readBoolean();
+        }
+        r.skipValue();
+        return fallback;
+    }
+}
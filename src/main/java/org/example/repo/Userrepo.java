@@ -1,123 +1,160 @@
 package org.example.repo;
 
-import com.google.gson.Gson;
-import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.codecs.EncoderContext;
 import org.bson.types.ObjectId;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationStats;
 import org.example.model.users;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static com.mongodb.client.model.Filters.*;
 
-public class Userrepo {
-
-    private final MongoCollection<Document> collection;
-    private final Gson gson;
+public class Userrepo implements IndexedRepository {
+
+    private static final OperationStats CREATE = Metrics.op("Userrepo.create");
+    private static final OperationStats FIND_BY_USERNAME = Metrics.op("Userrepo.findByUsername");
+    private static final OperationStats FIND_BY_ID = Metrics.op("Userrepo.findById");
+    private static final OperationStats FIND_ALL = Metrics.op("Userrepo.findAll");
+    private static final OperationStats STREAM_ALL = Metrics.op("Userrepo.streamAll");
+    private static final OperationStats FIND_PAGE = Metrics.op("Userrepo.findPage");
+    private static final OperationStats FIND_BY_ROLE = Metrics.op("Userrepo.findByRole");
+    private static final OperationStats UPDATE = Metrics.op("Userrepo.update");
+    private static final OperationStats UPDATE_FIELD = Metrics.op("Userrepo.updateField");
+    private static final OperationStats DELETE = Metrics.op("Userrepo.delete");
+    private static final OperationStats DELETE_BY_ID = Metrics.op("Userrepo.deleteById");
+    private static final OperationStats COUNT = Metrics.op("Userrepo.count");
+    private static final OperationStats COUNT_BY_ROLE = Metrics.op("Userrepo.countByRole");
+    private static final OperationStats EXISTS = Metrics.op("Userrepo.exists");
+
+    // every operation goes through the view its Operation gets from the DurabilityPolicy
+    private final TieredCollection<Document> collection;
+    // same collection, encoded and decoded by UserCodec without a JSON round trip
+    private final TieredCollection<users> userCollection;
+    private final UserCodec codec = new UserCodec();
 
     public Userrepo(MongoDatabase database) {
-        this.collection = database.getCollection("users");
-        this.gson = new Gson();
+        this(database, DurabilityPolicy.defaults());
+    }
+
+    /**
+     * @param policy write concern and read routing of every operation, see {@link Operation}
+     */
+    public Userrepo(MongoDatabase database, DurabilityPolicy policy) {
+        this.collection = new TieredCollection<>(database.getCollection("users"), policy);
+        this.userCollection = new TieredCollection<>(database.getCollection("users", users.class)
+                .withCodecRegistry(UserCodec.REGISTRY), policy);
+    }
+
+    @Override
+    public void ensureIndexes(IndexManager indexes) {
+        indexes.ensure(collection.base(),
+                IndexManager.uniqueIndex("username_unique", Indexes.ascending("username")),
+                IndexManager.index("role", Indexes.ascending("role")));
+    }
+
+    @Override
+    public void verifyIndexes(IndexManager indexes) {
+        indexes.expectIndexScan(collection.base(), "findByUsername", eq("username", ""));
+        indexes.expectIndexScan(collection.base(), "findByRole", eq("role", ""));
     }
 
     public String create(users user) {
-        String json = gson.toJson(user);
-        Document doc = Document.parse(json);
-        collection.insertOne(doc);
-        return doc.getObjectId("_id").toString();
+        return CREATE.time(() -> {
+            BsonValue id = userCollection.of(Operation.SAVE_USER).insertOne(user).getInsertedId();
+            return id == null ? null : id.asObjectId().getValue().toString();
+        });
     }
 
     public users findByUsername(String username) {
-        Document doc = collection.find(eq("username", username)).first();
-        
-        if (doc != null) {
-            String json = doc.toJson();
-            return gson.fromJson(json, users.class);
-        }
-        return null;
+        return FIND_BY_USERNAME.timeDocs(() -> userCollection.of(Operation.USER_LOOKUP).find(eq("username", username)).first());
     }
 
     public users findById(String id) {
-        Document doc = collection.find(eq("_id", new ObjectId(id))).first();
-        
-        if (doc != null) {
-            String json = doc.toJson();
-            return gson.fromJson(json, users.class);
-        }
-        return null;
+        return FIND_BY_ID.timeDocs(() -> userCollection.of(Operation.USER_LOOKUP).find(eq("_id", new ObjectId(id))).first());
     }
 
     public List<users> findAll() {
-        List<users> usersList = new ArrayList<>();
-        
-        for (Document doc : collection.find()) {
-            String json = doc.toJson();
-            users user = gson.fromJson(json, users.class);
-            usersList.add(user);
-        }
-        
-        return usersList;
+        return FIND_ALL.timeDocs(() -> userCollection.of(Operation.USER_LIST).find().into(new ArrayList<>()));
+    }
+
+    /**
+     * All users ordered by username, decoded lazily. The stream must be closed.
+     */
+    public Stream<users> streamAll() {
+        return STREAM_ALL.timeStream(() -> Cursors.stream(userCollection.of(Operation.USER_LIST).find().sort(Sorts.ascending("username")), u -> u));
+    }
+
+    public Page<users> findPage(int pageSize, String afterToken) {
+        return FIND_PAGE.timeDocs(() -> Cursors.page(userCollection.of(Operation.USER_LIST), "username", pageSize, afterToken, u -> u, users::getUsername));
     }
 
     public List<users> findByRole(String role) {
-        List<users> usersList = new ArrayList<>();
-        
-        for (Document doc : collection.find(eq("role", role))) {
-            String json = doc.toJson();
-            users user = gson.fromJson(json, users.class);
-            usersList.add(user);
-        }
-        
-        return usersList;
+        return FIND_BY_ROLE.timeDocs(() -> userCollection.of(Operation.USER_LIST).find(eq("role", role)).into(new ArrayList<>()));
     }
 
     public boolean update(String username, users updatedUser) {
-        String json = gson.toJson(updatedUser);
-        Document updateDoc = Document.parse(json);
-        updateDoc.remove("_id");
-        
-        UpdateResult result = collection.updateOne(
-            eq("username", username),
-            new Document("$set", updateDoc)
-        );
-        
-        return result.getModifiedCount() > 0;
+        return UPDATE.time(() -> {
+            BsonDocument updateDoc = new BsonDocument();
+            codec.encode(new BsonDocumentWriter(updateDoc), updatedUser, EncoderContext.builder().build());
+            updateDoc.remove("_id");
+
+            UpdateResult result = collection.of(Operation.SAVE_USER).updateOne(
+                eq("username", username),
+                new BsonDocument("$set", updateDoc)
+            );
+
+            return result.getModifiedCount() > 0;
+        });
     }
 
     public boolean updateField(String username, String fieldName, Object newValue) {
-        UpdateResult result = collection.updateOne(
-            eq("username", username),
-            Updates.set(fieldName, newValue)
-        );
-        
-        return result.getModifiedCount() > 0;
+        return UPDATE_FIELD.time(() -> {
+            UpdateResult result = collection.of(Operation.SAVE_USER).updateOne(
+                eq("username", username),
+                Updates.set(fieldName, newValue)
+            );
+
+            return result.getModifiedCount() > 0;
+        });
     }
 
     public boolean delete(String username) {
-        DeleteResult result = collection.deleteOne(eq("username", username));
-        return result.getDeletedCount() > 0;
+        return DELETE.time(() -> {
+            DeleteResult result = collection.of(Operation.DELETE_USER).deleteOne(eq("username", username));
+            return result.getDeletedCount() > 0;
+        });
     }
 
     public boolean deleteById(String id) {
-        DeleteResult result = collection.deleteOne(eq("_id", new ObjectId(id)));
-        return result.getDeletedCount() > 0;
+        return DELETE_BY_ID.time(() -> {
+            DeleteResult result = collection.of(Operation.DELETE_USER).deleteOne(eq("_id", new ObjectId(id)));
+            return result.getDeletedCount() > 0;
+        });
     }
 
     public long count() {
-        return collection.countDocuments();
+        return COUNT.time(() -> collection.of(Operation.USER_LIST).countDocuments());
     }
 
     public long countByRole(String role) {
-        return collection.countDocuments(eq("role", role));
+        return COUNT_BY_ROLE.time(() -> collection.of(Operation.USER_LIST).countDocuments(eq("role", role)));
     }
 
     public boolean exists(String username) {
-        return collection.countDocuments(eq("username", username)) > 0;
+        return EXISTS.time(() -> collection.of(Operation.USER_LOOKUP).countDocuments(eq("username", username)) > 0);
     }
 }
 
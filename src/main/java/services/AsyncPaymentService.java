@@ -0,0 +1,69 @@
+package services;
+
+import com.mongodb.MongoException;
+import org.example.model.Payment;
+import org.example.repo.AsyncPaymentRepository;
+import org.example.repo.BulkInsertResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking variant of {@link PaymentService}.
+ */
+public class AsyncPaymentService {
+
+    private final AsyncPaymentRepository repo;
+
+    public AsyncPaymentService(AsyncPaymentRepository repo) {
+        this.repo = repo;
+    }
+
+    public CompletableFuture<Void> createPayment(Payment payment) {
+        if (payment.getPaymentId() == null || payment.getPaymentId().isEmpty()) {
+            throw new IllegalArgumentException("paymentId is required");
+        }
+        return repo.insertPayment(payment);
+    }
+
+    /**
+     * Writes the payments in chunks, one batch in flight at a time so a large
+     * import doesn't flood the pool. Same results as the blocking version:
+     * payments without a paymentId and batches the server could not take
+     * are counted as failed, and {@code rejected} holds input positions.
+     *
+     * @see PaymentService#ingestPayments(Iterable, int)
+     */
+    public CompletableFuture<List<BulkInsertResult>> ingestPayments(List<Payment> payments, int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive");
+
+        List<BulkInsertResult> results = new ArrayList<>();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+
+        for (int from = 0; from < payments.size(); from += batchSize) {
+            List<Payment> batch = new ArrayList<>(batchSize);
+            List<Integer> sentAt = new ArrayList<>(batchSize);
+            List<Integer> invalidAt = new ArrayList<>();
+            for (int i = from; i < Math.min(from + batchSize, payments.size()); i++) {
+                if (PaymentService.isValid(payments.get(i))) {
+                    batch.add(payments.get(i));
+                    sentAt.add(i);
+                } else {
+                    invalidAt.add(i);
+                }
+            }
+
+            chain = chain
+                    .thenCompose(ignored -> repo.insertPayments(batch)
+                            .exceptionally(e -> {
+                                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                                if (cause instanceof MongoException) return PaymentService.allFailed(batch.size());
+                                throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+                            }))
+                    .thenAccept(r -> results.add(PaymentService.toInputPositions(r, sentAt, invalidAt)));
+        }
+        return chain.thenApply(ignored -> results);
+    }
+}
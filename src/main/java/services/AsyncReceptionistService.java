@@ -0,0 +1,150 @@
+package services;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import org.example.model.Appointment;
+import org.example.model.member;
+import org.example.repo.AsyncReceptionistRepository;
+import org.example.repo.Publishers;
+import org.reactivestreams.Publisher;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking variant of {@link ReceptionistService} for desk and kiosk
+ * clients: no thread is parked while a query is in flight. Validation
+ * failures are thrown immediately, data errors complete the future
+ * exceptionally with the same exception types as the blocking service.
+ *
+ * Overlapping bookings are rejected through a {@link BookingIndex} like in
+ * the blocking service; a day that is not loaded yet is fetched
+ * asynchronously before the check.
+ */
+public class AsyncReceptionistService {
+
+    private static final int LIST_BATCH = 256;
+
+    private final AsyncReceptionistRepository repo;
+    private final BookingIndex bookings;
+
+    // last day for which earlier days were evicted from bookings
+    private volatile LocalDate evictedBefore = LocalDate.MIN;
+
+    public AsyncReceptionistService(AsyncReceptionistRepository repo) {
+        this.repo = repo;
+        // days are loaded asynchronously before reserve(); the blocking loader only runs
+        // if a past day was evicted between that load and the reservation
+        this.bookings = new BookingIndex(date -> loadDay(date).join());
+    }
+
+    // ---------------------------------------------------------
+    // MEMBER APIs
+    // ---------------------------------------------------------
+
+    public CompletableFuture<Void> createMember(member m) {
+        if (m == null) throw new IllegalArgumentException("Member is null");
+        if (m.getUsername() == null || m.getUsername().isBlank())
+            throw new IllegalArgumentException("username is required");
+
+        return repo.saveMember(m);
+    }
+
+    public CompletableFuture<member> getMemberById(String username) {
+        return repo.findMemberById(username);
+    }
+
+    public Publisher<member> streamAllMembers() {
+        return repo.findAllMembers();
+    }
+
+    // ---------------------------------------------------------
+    // ATTENDANCE
+    // ---------------------------------------------------------
+
+    /**
+     * @see ReceptionistService#recordAttendance
+     */
+    public CompletableFuture<Integer> recordAttendance(String username) {
+        return repo.incrementAttendance(username).thenCompose(count -> {
+            if (count != null) return CompletableFuture.completedFuture(count);
+
+            return repo.findMemberById(username).thenApply(m -> {
+                if (m == null) throw new IllegalArgumentException("Member not found");
+                throw new IllegalStateException("Member is inactive or frozen");
+            });
+        });
+    }
+
+    // ---------------------------------------------------------
+    // APPOINTMENTS / SCHEDULE
+    // ---------------------------------------------------------
+
+    public CompletableFuture<Void> scheduleAppointment(Appointment appt) {
+        if (appt == null) throw new IllegalArgumentException("Appointment is null");
+
+        if (appt.getAppointmentName() == null || appt.getAppointmentName().isBlank())
+            appt.setAppointmentName("AP-" + System.currentTimeMillis());
+
+        if (appt.getMemberId() == null || appt.getMemberId().isBlank())
+            throw new IllegalArgumentException("username (memberId) required");
+
+        if (appt.getStatus() == null) appt.setStatus(Appointment.SCHEDULED);
+        if (!appt.isScheduled()) return repo.saveAppointment(appt);
+        if (appt.getDate() == null || appt.getTime() == null)
+            throw new IllegalArgumentException("date and time are required");
+        if (appt.getDurationMinutes() <= 0) throw new IllegalArgumentException("durationMinutes must be positive");
+
+        evictPastDays();
+        CompletableFuture<Void> loaded = bookings.isLoaded(appt.getDate())
+                ? CompletableFuture.completedFuture(null)
+                : loadDay(appt.getDate()).thenAccept(day -> bookings.loadDay(appt.getDate(), day));
+
+        return loaded.thenCompose(v -> {
+            bookings.reserve(appt);
+            return repo.saveAppointment(appt).handle((ok, e) -> {
+                if (e == null) return ok;
+                bookings.release(appt);
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof MongoWriteException w && w.getError().getCategory() == ErrorCategory.DUPLICATE_KEY)
+                    throw new IllegalStateException("Slot " + appt.getDate() + " " + appt.getTime() + " was booked concurrently", w);
+                throw e instanceof CompletionException c ? c : new CompletionException(e);
+            });
+        });
+    }
+
+    public BookingIndex bookings() {
+        return bookings;
+    }
+
+    private CompletableFuture<List<Appointment>> loadDay(LocalDate date) {
+        return Publishers.toList(repo.findAppointmentsBetween(date, date), LIST_BATCH);
+    }
+
+    // no scheduler drives this service, so past days are dropped on the first booking of a new day
+    private void evictPastDays() {
+        LocalDate today = LocalDate.now();
+        if (today.equals(evictedBefore)) return;
+        bookings.evictBefore(today);
+        evictedBefore = today;
+    }
+
+    public Publisher<Appointment> getAppointmentsForMember(String username) {
+        return repo.findAppointmentsByMember(username);
+    }
+
+    public CompletableFuture<List<Appointment>> getDailySchedule(LocalDate date) {
+        if (date == null) throw new IllegalArgumentException("date is required");
+
+        return Publishers.toList(repo.findAppointmentsBetween(date, date), LIST_BATCH);
+    }
+
+    public CompletableFuture<List<Appointment>> getTrainerSchedule(String trainerId, LocalDate date) {
+        if (trainerId == null || trainerId.isBlank()) throw new IllegalArgumentException("trainerId is required");
+        if (date == null) throw new IllegalArgumentException("date is required");
+
+        return Publishers.toList(repo.findTrainerAppointmentsOn(trainerId, date), LIST_BATCH);
+    }
+}
@@ -0,0 +1,54 @@
+package services;
+
+import org.example.model.DietPlan;
+import org.example.model.WorkoutPlan;
+import org.example.repo.AsyncTrainerRepository;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link TrainerService}.
+ */
+public class AsyncTrainerService {
+
+    private final AsyncTrainerRepository repo;
+
+    public AsyncTrainerService(AsyncTrainerRepository repo) {
+        this.repo = repo;
+    }
+
+    // -------- WORKOUTS --------
+    public CompletableFuture<Void> createWorkout(WorkoutPlan w) {
+        return repo.saveWorkout(w);
+    }
+
+    public CompletableFuture<Void> updateWorkout(WorkoutPlan w) {
+        return repo.updateWorkout(w);
+    }
+
+    public Publisher<WorkoutPlan> getAllWorkoutPlans() {
+        return repo.findAllWorkouts();
+    }
+
+    public CompletableFuture<WorkoutPlan> findWorkoutByName(String name) {
+        return repo.findWorkoutByName(name);
+    }
+
+    // -------- DIETS --------
+    public CompletableFuture<Void> createDiet(DietPlan d) {
+        return repo.saveDiet(d);
+    }
+
+    public CompletableFuture<Void> updateDiet(DietPlan d) {
+        return repo.updateDiet(d);
+    }
+
+    public Publisher<DietPlan> getAllDietPlans() {
+        return repo.findAllDiets();
+    }
+
+    public CompletableFuture<DietPlan> findDietByName(String name) {
+        return repo.findDietByName(name);
+    }
+}
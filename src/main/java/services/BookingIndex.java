@@ -0,0 +1,207 @@
+package services;
+
+import org.example.model.Appointment;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * In-memory view of booked slots, used to reject overlapping appointments
+ * before they reach the database.
+ *
+ * Each trainer and each member has, per day, a TreeMap from start minute to
+ * end minute. Slots in one map never overlap, so a new interval only has to
+ * be compared with its floor and ceiling entries: O(log n) per check.
+ *
+ * A day is loaded from the database the first time it is touched (or
+ * up-front through {@link #load}); after that every booking made through
+ * this index keeps it current. Writers in other processes are caught by the
+ * unique trainerId/memberId + date + time indexes instead.
+ */
+public class BookingIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private record Key(String owner, LocalDate date) {}
+
+    private final Function<LocalDate, List<Appointment>> dayLoader;
+
+    private final Map<Key, TreeMap<Integer, Integer>> trainers = new HashMap<>();
+    private final Map<Key, TreeMap<Integer, Integer>> members = new HashMap<>();
+    private final Set<LocalDate> loadedDays = new HashSet<>();
+
+    /**
+     * @param dayLoader all appointments stored for one day
+     */
+    public BookingIndex(Function<LocalDate, List<Appointment>> dayLoader) {
+        this.dayLoader = dayLoader;
+    }
+
+    // -------------------- BOOKING --------------------
+
+    /**
+     * Claims the appointment's slot for its trainer and member.
+     *
+     * @throws IllegalArgumentException if date, time or duration are missing or invalid
+     * @throws IllegalStateException if the trainer or member is already booked in that interval
+     */
+    public synchronized void reserve(Appointment a) {
+        int start = startMinute(a);
+        int end = endMinute(a, start);
+        ensureLoaded(a.getDate());
+
+        TreeMap<Integer, Integer> trainerSlots = a.getTrainerId() == null ? null
+                : trainers.computeIfAbsent(new Key(a.getTrainerId(), a.getDate()), k -> new TreeMap<>());
+        TreeMap<Integer, Integer> memberSlots =
+                members.computeIfAbsent(new Key(a.getMemberId(), a.getDate()), k -> new TreeMap<>());
+
+        if (trainerSlots != null && overlaps(trainerSlots, start, end))
+            throw new IllegalStateException("Trainer " + a.getTrainerId() + " is already booked on "
+                    + a.getDate() + " around " + a.getTime());
+        if (overlaps(memberSlots, start, end))
+            throw new IllegalStateException("Member " + a.getMemberId() + " already has an appointment on "
+                    + a.getDate() + " around " + a.getTime());
+
+        if (trainerSlots != null) trainerSlots.put(start, end);
+        memberSlots.put(start, end);
+    }
+
+    /**
+     * Frees a slot claimed by {@link #reserve}, e.g. when the insert that followed it failed.
+     */
+    public synchronized void release(Appointment a) {
+        int start = startMinute(a);
+        if (a.getTrainerId() != null) remove(trainers, new Key(a.getTrainerId(), a.getDate()), start);
+        remove(members, new Key(a.getMemberId(), a.getDate()), start);
+    }
+
+    private static boolean overlaps(TreeMap<Integer, Integer> slots, int start, int end) {
+        Map.Entry<Integer, Integer> before = slots.floorEntry(start);
+        if (before != null && before.getValue() > start) return true;
+
+        Map.Entry<Integer, Integer> after = slots.ceilingEntry(start);
+        return after != null && after.getKey() < end;
+    }
+
+    private static void remove(Map<Key, TreeMap<Integer, Integer>> index, Key key, int start) {
+        TreeMap<Integer, Integer> slots = index.get(key);
+        if (slots == null) return;
+        slots.remove(start);
+        if (slots.isEmpty()) index.remove(key);
+    }
+
+    // -------------------- LOADING --------------------
+
+    /**
+     * Loads every day that occurs in {@code appointments}, e.g. the upcoming
+     * range at startup. Days already loaded are left as they are.
+     */
+    public synchronized void load(Stream<Appointment> appointments) {
+        Set<LocalDate> fresh = new HashSet<>();
+        appointments.forEach(a -> {
+            if (a.getDate() == null || loadedDays.contains(a.getDate())) return;
+            fresh.add(a.getDate());
+            add(a);
+        });
+        loadedDays.addAll(fresh);
+    }
+
+    /**
+     * Loads one day from appointments fetched by the caller, e.g.
+     * asynchronously, unless the day is loaded already.
+     */
+    public synchronized void loadDay(LocalDate date, List<Appointment> appointments) {
+        if (loadedDays.contains(date)) return;
+        for (Appointment a : appointments) {
+            if (date.equals(a.getDate())) add(a);
+        }
+        loadedDays.add(date);
+    }
+
+    public synchronized boolean isLoaded(LocalDate date) {
+        return loadedDays.contains(date);
+    }
+
+    /**
+     * Marks a day as loaded without touching the database, for days known to be empty.
+     */
+    public synchronized void markLoaded(LocalDate date) {
+        loadedDays.add(date);
+    }
+
+    /**
+     * Drops days before {@code date}; they are reloaded if booked again.
+     */
+    public synchronized void evictBefore(LocalDate date) {
+        trainers.keySet().removeIf(k -> k.date().isBefore(date));
+        members.keySet().removeIf(k -> k.date().isBefore(date));
+        loadedDays.removeIf(d -> d.isBefore(date));
+    }
+
+    /**
+     * Forgets every day, e.g. after appointments were written around the
+     * index by an import; days are reloaded as they are booked.
+     */
+    public synchronized void clear() {
+        trainers.clear();
+        members.clear();
+        loadedDays.clear();
+    }
+
+    // the loader runs under the lock, once per day, so no booking can slip in between
+    private void ensureLoaded(LocalDate date) {
+        if (loadedDays.contains(date)) return;
+        for (Appointment a : dayLoader.apply(date)) {
+            add(a);
+        }
+        loadedDays.add(date);
+    }
+
+    private void add(Appointment a) {
+        if (!a.isScheduled() || a.getTime() == null || a.getMemberId() == null) return;
+        int start = startMinute(a);
+        // stored durations are trusted, but clipped to the day
+        int end = Math.min(start + Math.max(a.getDurationMinutes(), 1), MINUTES_PER_DAY);
+        if (a.getTrainerId() != null) {
+            trainers.computeIfAbsent(new Key(a.getTrainerId(), a.getDate()), k -> new TreeMap<>())
+                    .merge(start, end, Math::max);
+        }
+        members.computeIfAbsent(new Key(a.getMemberId(), a.getDate()), k -> new TreeMap<>())
+                .merge(start, end, Math::max);
+    }
+
+    // -------------------- TIME --------------------
+
+    private static int startMinute(Appointment a) {
+        if (a.getDate() == null || a.getTime() == null)
+            throw new IllegalArgumentException("date and time are required");
+        LocalTime t = a.getTime();
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    private static int endMinute(Appointment a, int start) {
+        if (a.getDurationMinutes() <= 0)
+            throw new IllegalArgumentException("durationMinutes must be positive");
+        int end = start + a.getDurationMinutes();
+        if (end > MINUTES_PER_DAY)
+            throw new IllegalArgumentException("Appointment must end on the day it starts");
+        return end;
+    }
+
+    // -------------------- STATS --------------------
+
+    public synchronized int loadedDays() { return loadedDays.size(); }
+
+    public synchronized int bookedSlots() {
+        return trainers.values().stream().mapToInt(Map::size).sum()
+                + members.values().stream().mapToInt(Map::size).sum();
+    }
+}
@@ -0,0 +1,70 @@
+package services;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable copy of a whole catalog (all workout or all diet plans),
+ * read without locks and replaced as a whole when it goes stale.
+ *
+ * {@link #invalidate()} only bumps a version; the next {@link #get()}
+ * sees the snapshot is older and loads a new one. A load racing with an
+ * invalidation keeps the version it started with, so it is reloaded again
+ * on the following read instead of hiding the change.
+ *
+ * The plans themselves are mutable beans, so the snapshot keeps its own
+ * copies and every read hands out fresh ones; a caller editing a plan it
+ * read cannot change what other readers see.
+ */
+final class CatalogSnapshot<T> {
+
+    private record Snapshot<T>(List<T> items, long version) {}
+
+    private final Supplier<List<T>> loader;
+    private final UnaryOperator<T> copyOf;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot<T> current;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    CatalogSnapshot(Supplier<List<T>> loader, UnaryOperator<T> copyOf) {
+        this.loader = loader;
+        this.copyOf = copyOf;
+    }
+
+    /** The current catalog: an unmodifiable list of copies owned by the caller. */
+    List<T> get() {
+        Snapshot<T> s = current;
+        if (s != null && s.version == version.get()) {
+            hits.incrementAndGet();
+            return copies(s.items);
+        }
+
+        // one load at a time; readers of a fresh snapshot never wait here
+        synchronized (this) {
+            long v = version.get();
+            s = current;
+            if (s == null || s.version != v) {
+                s = new Snapshot<>(List.copyOf(loader.get()), v);
+                current = s;
+                loads.incrementAndGet();
+            }
+        }
+        return copies(s.items);
+    }
+
+    private List<T> copies(List<T> items) {
+        return items.stream().map(copyOf).toList();
+    }
+
+    void invalidate() {
+        version.incrementAndGet();
+    }
+
+    long hits() { return hits.get(); }
+
+    long loads() { return loads.get(); }
+}
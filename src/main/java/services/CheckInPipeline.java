@@ -0,0 +1,284 @@
+package services;
+
+import org.example.model.CheckInEvent;
+import org.example.repo.ReceptionistRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind check-in ingestion.
+ *
+ * Turnstiles hand events to a bounded queue and return immediately; a single
+ * writer thread drains the queue and writes batches through
+ * {@link ReceptionistRepository#writeCheckIns}. A batch is flushed when it
+ * reaches maxBatch events or when maxDelay has passed since its first event.
+ *
+ * When the queue is full callers block (or time out), which is the
+ * backpressure signal.
+ *
+ * A batch that fails is retried with exponential backoff until it is
+ * written; meanwhile the queue fills up and producers feel backpressure.
+ * Delivery is at least once: a batch that failed half-way may be partly
+ * written twice. {@link #close()} stops accepting events and returns only
+ * after everything already accepted has been written, or, if the database
+ * stays unreachable during shutdown, handed back through
+ * {@link #unwritten()}.
+ */
+public class CheckInPipeline implements AutoCloseable {
+
+    static final long FIRST_RETRY_MS = 100;
+    static final long MAX_RETRY_MS = 10_000;
+    // once closing, a failing batch gets this many attempts before it is handed back
+    static final int ATTEMPTS_WHILE_CLOSING = 3;
+
+    // done is null for untracked submits
+    private record Pending(CheckInEvent event, CompletableFuture<Void> done) {}
+
+    private final ReceptionistRepository repo;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread writer;
+
+    private volatile boolean accepting = true;
+    private volatile boolean stopped = false;
+    // producers between their accepting check and the enqueue
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final List<CheckInEvent> unwritten = new ArrayList<>(); // guarded by itself
+    private boolean givenUp; // writer thread only
+
+    public CheckInPipeline(ReceptionistRepository repo, int capacity, int maxBatch, Duration maxDelay) {
+        if (capacity < 1 || maxBatch < 1) throw new IllegalArgumentException("capacity and maxBatch must be positive");
+        if (maxDelay.isNegative() || maxDelay.isZero()) throw new IllegalArgumentException("maxDelay must be positive");
+
+        this.repo = repo;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = maxDelay.toNanos();
+
+        this.writer = new Thread(this::drainLoop, "check-in-writer");
+        this.writer.start();
+    }
+
+    public CheckInPipeline(ReceptionistRepository repo) {
+        this(repo, 10_000, 500, Duration.ofMillis(50));
+    }
+
+    // ---------------------------------------------------------
+    // PRODUCERS
+    // ---------------------------------------------------------
+
+    /**
+     * Enqueue a check-in, waiting while the queue is full.
+     */
+    public void submit(String username) throws InterruptedException {
+        inFlight.incrementAndGet();
+        try {
+            ensureAccepting();
+            queue.put(new Pending(new CheckInEvent(username, Instant.now()), null));
+            accepted.incrementAndGet();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Like {@link #submit}, and the returned future completes once the
+     * check-in's batch has been written; it fails if the check-in was
+     * handed back at shutdown.
+     */
+    public CompletableFuture<Void> submitTracked(String username) throws InterruptedException {
+        inFlight.incrementAndGet();
+        try {
+            ensureAccepting();
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            queue.put(new Pending(new CheckInEvent(username, Instant.now()), done));
+            accepted.incrementAndGet();
+            return done;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Enqueue a check-in, waiting at most {@code wait} for free space.
+     *
+     * @return false if the queue stayed full (caller should retry or fall back)
+     */
+    public boolean offer(String username, Duration wait) throws InterruptedException {
+        inFlight.incrementAndGet();
+        try {
+            ensureAccepting();
+            boolean ok = queue.offer(new Pending(new CheckInEvent(username, Instant.now()), null),
+                    wait.toNanos(), TimeUnit.NANOSECONDS);
+            if (ok) accepted.incrementAndGet();
+            return ok;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void ensureAccepting() {
+        if (!accepting) throw new IllegalStateException("Check-in pipeline is closed");
+    }
+
+    // ---------------------------------------------------------
+    // WRITER
+    // ---------------------------------------------------------
+
+    private void drainLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(maxDelayNanos, TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) continue;
+
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    Pending next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutdown is driven by the stopped flag; keep draining
+            }
+
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        if (batch.isEmpty()) return;
+        List<CheckInEvent> events = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            events.add(p.event());
+        }
+
+        long backoff = FIRST_RETRY_MS;
+        int attemptsWhileClosing = 0;
+        RuntimeException lastError = null;
+        while (!givenUp) {
+            try {
+                repo.writeCheckIns(events);
+                written.addAndGet(events.size());
+                lastError = null;
+                break;
+            } catch (RuntimeException e) {
+                lastError = e;
+                // closing, not stopped: producers blocked on the full queue only get space once we give up
+                if (!accepting && ++attemptsWhileClosing >= ATTEMPTS_WHILE_CLOSING) {
+                    // the database is still gone at shutdown: hand this and every later batch back
+                    givenUp = true;
+                    break;
+                }
+                retries.incrementAndGet();
+                System.err.println("Check-in batch of " + events.size() + " failed, retrying in "
+                        + backoff + " ms: " + e.getMessage());
+                sleepQuietly(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_MS);
+            }
+        }
+
+        if (givenUp) {
+            failed.addAndGet(events.size());
+            synchronized (unwritten) {
+                unwritten.addAll(events);
+            }
+            System.err.println("Check-in batch of " + events.size() + " not written at shutdown, see unwritten()"
+                    + (lastError == null ? "" : ": " + lastError.getMessage()));
+        }
+        for (Pending p : batch) {
+            if (p.done() == null) continue;
+            if (givenUp) {
+                p.done().completeExceptionally(lastError != null ? lastError
+                        : new IllegalStateException("Check-in not written at shutdown"));
+            } else {
+                p.done().complete(null);
+            }
+        }
+        batches.incrementAndGet();
+        batch.clear();
+    }
+
+    // close() is driven by the stopped flag, not by interrupts
+    private static void sleepQuietly(long ms) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms);
+        for (long left = ms; left > 0; left = TimeUnit.NANOSECONDS.toMillis(until - System.nanoTime())) {
+            try {
+                Thread.sleep(left);
+            } catch (InterruptedException e) {
+                // keep waiting
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // SHUTDOWN / STATS
+    // ---------------------------------------------------------
+
+    /**
+     * Stop accepting events and wait until every accepted event is written
+     * or, if the database stays unreachable, handed back through
+     * {@link #unwritten()}.
+     */
+    @Override
+    public void close() {
+        accepting = false;
+        try {
+            // producers blocked on a full queue finish while the writer is still draining,
+            // or handing batches back if the database stays down
+            while (inFlight.get() > 0) {
+                Thread.sleep(1);
+            }
+            stopped = true;
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int queued() { return queue.size(); }
+
+    public long accepted() { return accepted.get(); }
+
+    public long written() { return written.get(); }
+
+    /** Check-ins handed back at shutdown; see {@link #unwritten()}. */
+    public long failed() { return failed.get(); }
+
+    /** Failed write attempts that were retried. */
+    public long retries() { return retries.get(); }
+
+    /**
+     * Check-ins that could not be written before {@link #close()} returned,
+     * oldest first, for the caller to store or replay.
+     */
+    public List<CheckInEvent> unwritten() {
+        synchronized (unwritten) {
+            return List.copyOf(unwritten);
+        }
+    }
+
+    public long batches() { return batches.get(); }
+}
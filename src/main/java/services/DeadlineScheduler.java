@@ -0,0 +1,331 @@
+package services;
+
+import org.example.model.Appointment;
+import org.example.repo.ReceptionistRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Fires membership expiries and appointment reminders when they fall due.
+ *
+ * Only deadlines inside a rolling horizon of {@code horizonDays} are held in
+ * memory, in a DelayQueue. They are loaded with the indexed range queries
+ * ({@link ReceptionistRepository#findActiveMembershipEnds},
+ * {@link ReceptionistRepository#streamAppointmentsBetween}), one more day
+ * each midnight. So memory and work grow with the number of upcoming
+ * events, not with the number of members.
+ *
+ * A membership that ends on day D expires at the start of D+1. All expiries
+ * due at the same moment go out in one updateMany, in chunks of
+ * {@link #EXPIRY_BATCH}. The update filter re-checks the end date, so a
+ * member renewed after being loaded is not deactivated. Reminders are
+ * handed to the listener {@code reminderLead} before the appointment
+ * starts.
+ *
+ * {@link #start()} runs a catch-up for memberships that ended while the
+ * process was down, loads the first horizon and starts the worker thread.
+ */
+public class DeadlineScheduler implements AutoCloseable {
+
+    static final int EXPIRY_BATCH = 1_000;
+
+    private enum Kind { EXPIRY, REMINDER, REFILL }
+
+    private final class Event implements Delayed {
+        final long dueMillis;
+        final Kind kind;
+        final String username;
+        final Appointment appointment;
+
+        Event(long dueMillis, Kind kind, String username, Appointment appointment) {
+            this.dueMillis = dueMillis;
+            this.kind = kind;
+            this.username = username;
+            this.appointment = appointment;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - clock.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(dueMillis, ((Event) o).dueMillis);
+        }
+    }
+
+    private final ReceptionistRepository repo;
+    private final Consumer<Appointment> reminders;
+    private final int horizonDays;
+    private final Duration reminderLead;
+    private final Clock clock;
+    private final ZoneId zone;
+
+    private final DelayQueue<Event> queue = new DelayQueue<>();
+    private final List<Consumer<List<String>>> expiryListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<LocalDate>> refillListeners = new CopyOnWriteArrayList<>();
+    private final Thread worker;
+
+    // last day whose deadlines are in the queue; only touched under this
+    private LocalDate loadedUntil;
+    private volatile boolean running;
+
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong reminded = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @param reminders    called on the scheduler thread for each reminder; keep it short
+     * @param horizonDays  days of deadlines held in memory (at least 1)
+     * @param reminderLead how long before the start a reminder fires, at most horizonDays
+     */
+    public DeadlineScheduler(ReceptionistRepository repo, Consumer<Appointment> reminders,
+                             int horizonDays, Duration reminderLead, Clock clock) {
+        if (horizonDays < 1) throw new IllegalArgumentException("horizonDays must be positive");
+        if (reminderLead.isNegative() || reminderLead.compareTo(Duration.ofDays(horizonDays)) > 0)
+            throw new IllegalArgumentException("reminderLead must be between 0 and horizonDays");
+
+        this.repo = repo;
+        this.reminders = reminders;
+        this.horizonDays = horizonDays;
+        this.reminderLead = reminderLead;
+        this.clock = clock;
+        this.zone = clock.getZone();
+        this.worker = new Thread(this::runLoop, "deadline-scheduler");
+    }
+
+    public DeadlineScheduler(ReceptionistRepository repo, Consumer<Appointment> reminders) {
+        this(repo, reminders, 2, Duration.ofHours(24), Clock.systemDefaultZone());
+    }
+
+    /**
+     * Called with the usernames of every expiry batch, after the update succeeded.
+     */
+    public void onExpired(Consumer<List<String>> listener) {
+        expiryListeners.add(listener);
+    }
+
+    /**
+     * Called with the current day after every refill: at start, on reload
+     * and each midnight. Used to drop state kept for days that have passed.
+     */
+    public void onRefill(Consumer<LocalDate> listener) {
+        refillListeners.add(listener);
+    }
+
+    public synchronized void start() {
+        if (running) return;
+
+        LocalDate today = LocalDate.now(clock);
+        // one server-side update for everything that lapsed while we were down
+        expired.addAndGet(repo.deactivateExpired(null, today));
+
+        loadedUntil = today.minusDays(1);
+        refill();
+        running = true;
+        worker.start();
+    }
+
+    // -------------------- BOOKKEEPING FROM WRITES --------------------
+
+    /**
+     * Queues an expiry for a membership that was sold or renewed, if its end
+     * falls inside the loaded horizon; later ends are picked up by a refill.
+     */
+    public synchronized void membershipChanged(String username, LocalDate end) {
+        // an end of loadedUntil or later expires after the horizon and is left to a refill
+        if (loadedUntil == null || end == null || !end.isBefore(loadedUntil)) return;
+        queue.add(expiryEvent(username, end));
+    }
+
+    /**
+     * Queues a reminder for an appointment booked inside the loaded horizon.
+     */
+    public synchronized void appointmentBooked(Appointment a) {
+        if (loadedUntil == null || a.getDate() == null || a.getDate().isAfter(loadedUntil)) return;
+        Event e = reminderEvent(a);
+        if (e != null) queue.add(e);
+    }
+
+    /**
+     * Re-reads the whole horizon after bulk writes that bypassed
+     * membershipChanged and appointmentBooked, e.g. an import, and expires
+     * memberships that arrived already lapsed. Reminders whose time has
+     * passed are not sent again, so an imported appointment starting within
+     * {@code reminderLead} gets no reminder.
+     */
+    public synchronized void reload() {
+        if (!running) return;
+
+        LocalDate today = LocalDate.now(clock);
+        expired.addAndGet(repo.deactivateExpired(null, today));
+
+        queue.clear();
+        loadedUntil = today.minusDays(1);
+        try {
+            refill(false);
+        } catch (RuntimeException e) {
+            // the queue is empty now; let the worker retry the load
+            queue.add(new Event(clock.millis() + 60_000, Kind.REFILL, null, null));
+            throw e;
+        }
+    }
+
+    // -------------------- LOADING --------------------
+
+    private void refill() {
+        refill(true);
+    }
+
+    // loads (loadedUntil, today + horizonDays] and schedules the next refill for midnight;
+    // overdueReminders: send reminders whose time has passed right away instead of dropping them
+    private synchronized void refill(boolean overdueReminders) {
+        LocalDate today = LocalDate.now(clock);
+        LocalDate until = today.plusDays(horizonDays);
+        LocalDate from = loadedUntil.plusDays(1);
+
+        if (!from.isAfter(until)) {
+            // collected first, so a failed query leaves nothing half-loaded
+            List<Event> loaded = new ArrayList<>();
+            for (Map.Entry<String, LocalDate> e : repo.findActiveMembershipEnds(from.minusDays(1), until.minusDays(1)).entrySet()) {
+                loaded.add(expiryEvent(e.getKey(), e.getValue()));
+            }
+            try (Stream<Appointment> s = repo.streamAppointmentsBetween(from, until)) {
+                s.forEach(a -> {
+                    Event e = a.isScheduled() ? reminderEvent(a) : null;
+                    if (e != null && (overdueReminders || e.dueMillis > clock.millis())) loaded.add(e);
+                });
+            }
+            queue.addAll(loaded);
+            loadedUntil = until;
+        }
+
+        refills.incrementAndGet();
+        queue.add(new Event(startOf(today.plusDays(1)), Kind.REFILL, null, null));
+
+        for (Consumer<LocalDate> l : refillListeners) {
+            try {
+                l.accept(today);
+            } catch (RuntimeException ex) {
+                failures.incrementAndGet();
+                System.err.println("Refill listener failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    // a membership ending on day D lapses at the start of D + 1
+    private Event expiryEvent(String username, LocalDate end) {
+        return new Event(startOf(end.plusDays(1)), Kind.EXPIRY, username, null);
+    }
+
+    private Event reminderEvent(Appointment a) {
+        if (a.getTime() == null) return null;
+        long start = a.getDate().atTime(a.getTime()).atZone(zone).toInstant().toEpochMilli();
+        long now = clock.millis();
+        if (start <= now) return null;
+        return new Event(Math.max(start - reminderLead.toMillis(), now), Kind.REMINDER, null, a);
+    }
+
+    private long startOf(LocalDate day) {
+        return day.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    // -------------------- WORKER --------------------
+
+    private void runLoop() {
+        List<Event> due = new ArrayList<>();
+        while (running) {
+            try {
+                due.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // close() clears running
+            }
+            queue.drainTo(due);
+            fire(due);
+            due.clear();
+        }
+    }
+
+    private void fire(List<Event> due) {
+        List<String> expiring = new ArrayList<>();
+        boolean refill = false;
+
+        for (Event e : due) {
+            switch (e.kind) {
+                case EXPIRY -> expiring.add(e.username);
+                case REFILL -> refill = true;
+                case REMINDER -> {
+                    try {
+                        reminders.accept(e.appointment);
+                        reminded.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        LocalDate today = LocalDate.now(clock);
+        for (int i = 0; i < expiring.size(); i += EXPIRY_BATCH) {
+            List<String> chunk = expiring.subList(i, Math.min(i + EXPIRY_BATCH, expiring.size()));
+            try {
+                expired.addAndGet(repo.deactivateExpired(chunk, today));
+                for (Consumer<List<String>> l : expiryListeners) {
+                    l.accept(chunk);
+                }
+            } catch (RuntimeException ex) {
+                failures.incrementAndGet();
+                System.err.println("Expiry batch of " + chunk.size() + " failed: " + ex.getMessage());
+            }
+        }
+
+        if (refill) {
+            try {
+                refill();
+            } catch (RuntimeException ex) {
+                failures.incrementAndGet();
+                System.err.println("Deadline refill failed: " + ex.getMessage());
+                // try again in a minute rather than waiting for the next midnight
+                queue.add(new Event(clock.millis() + 60_000, Kind.REFILL, null, null));
+            }
+        }
+    }
+
+    // -------------------- SHUTDOWN / STATS --------------------
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            if (worker.isAlive()) worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int pending() { return queue.size(); }
+
+    public long expired() { return expired.get(); }
+
+    public long reminded() { return reminded.get(); }
+
+    public long refills() { return refills.get(); }
+
+    public long failures() { return failures.get(); }
+}
@@ -0,0 +1,202 @@
+package services;
+
+import org.example.model.member;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of members keyed by username.
+ *
+ * Entries are evicted least-recently-used once maxSize is reached, and are
+ * reloaded once they are older than ttl. Misses are not cached, so a member
+ * created by another process shows up on the next lookup.
+ *
+ * The cache keeps its own copies: {@link #put} stores a copy and lookups
+ * hand out copies, so a caller modifying a member (or a failed save of
+ * one) never changes what other callers see. Changes are made with
+ * {@link #update} or by invalidating the entry after a write.
+ *
+ * A load that an {@link #invalidate}, {@link #put} or {@link #clear}
+ * overtakes is returned to its caller but not cached, so a member read
+ * before a renewal or freeze cannot outlive it for a whole ttl.
+ */
+public class MemberCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record Entry(member value, long loadedAt) {}
+
+    // generation of a key with loads in flight; bumped when the key is invalidated or replaced
+    private static final class Loading {
+        long generation;
+        int loaders;
+    }
+
+    private final Map<String, Loading> loading = new HashMap<>(); // only keys being loaded
+
+    public MemberCache(int maxSize, Duration ttl) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be positive");
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be positive");
+
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        // access-order: iteration starts at the least recently used entry
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > MemberCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached member, or the loader's result (cached if not null).
+     * The loader runs outside the lock so a slow query doesn't block other lookups.
+     */
+    public member get(String username, Function<String, member> loader) {
+        Loading load;
+        long generation;
+        synchronized (this) {
+            Entry e = entries.get(username);
+            if (e != null) {
+                if (System.nanoTime() - e.loadedAt() < ttlNanos) {
+                    hits.incrementAndGet();
+                    return copy(e.value());
+                }
+                entries.remove(username);
+                evictions.incrementAndGet();
+            }
+            load = loading.computeIfAbsent(username, k -> new Loading());
+            load.loaders++;
+            generation = load.generation;
+        }
+
+        misses.incrementAndGet();
+        member loaded = null;
+        try {
+            loaded = loader.apply(username);
+            return loaded;
+        } finally {
+            synchronized (this) {
+                if (loaded != null && load.generation == generation) {
+                    entries.put(loaded.getUsername(), new Entry(copy(loaded), System.nanoTime()));
+                }
+                if (--load.loaders == 0) loading.remove(username);
+            }
+        }
+    }
+
+    /**
+     * Cached member without loading or counting a hit/miss; null if absent or expired.
+     */
+    public synchronized member peek(String username) {
+        Entry e = entries.get(username);
+        return e != null && System.nanoTime() - e.loadedAt() < ttlNanos ? copy(e.value()) : null;
+    }
+
+    public synchronized void put(member m) {
+        overtakeLoad(m.getUsername());
+        entries.put(m.getUsername(), new Entry(copy(m), System.nanoTime()));
+    }
+
+    /**
+     * Applies {@code change} to a copy of the cached member and caches that
+     * copy, keeping the entry's age. Does nothing if the member is not cached.
+     */
+    public synchronized void update(String username, Consumer<member> change) {
+        Entry e = entries.get(username);
+        if (e == null) return;
+        member m = copy(e.value());
+        change.accept(m);
+        entries.put(username, new Entry(m, e.loadedAt()));
+    }
+
+    public synchronized void invalidate(String username) {
+        overtakeLoad(username);
+        entries.remove(username);
+    }
+
+    public synchronized void clear() {
+        for (Loading l : loading.values()) {
+            l.generation++;
+        }
+        entries.clear();
+    }
+
+    // caller holds the lock
+    private void overtakeLoad(String username) {
+        Loading l = loading.get(username);
+        if (l != null) l.generation++;
+    }
+
+    /**
+     * Drops expired entries eagerly; lookups also expire them lazily.
+     */
+    public synchronized int purgeExpired() {
+        long now = System.nanoTime();
+        int removed = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().loadedAt() >= ttlNanos) {
+                it.remove();
+                removed++;
+            }
+        }
+        evictions.addAndGet(removed);
+        return removed;
+    }
+
+    static member copy(member m) {
+        member c = new member(m.getPassword(), m.getUsername());
+        c.age = m.age;
+        c.gender = m.gender;
+        c.address = m.address;
+        c.attendance = m.attendance;
+        c.isActive = m.isActive;
+        c.freezed = m.freezed;
+        c.setPhone(m.getPhone());
+        c.setMembershipType(m.getMembershipType());
+        c.setMembershipStart(m.getMembershipStart());
+        c.setMembershipEnd(m.getMembershipEnd());
+        return c;
+    }
+
+    // -------------------- STATS --------------------
+
+    public synchronized int size() { return entries.size(); }
+
+    public int maxSize() { return maxSize; }
+
+    public long hits() { return hits.get(); }
+
+    public long misses() { return misses.get(); }
+
+    public long evictions() { return evictions.get(); }
+
+    public double hitRate() {
+        long h = hits.get(), m = misses.get();
+        return h + m == 0 ? 0 : (double) h / (h + m);
+    }
+
+    @Override
+    public String toString() {
+        return "MemberCache{size=" + size() + "/" + maxSize +
+                ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + '}';
+    }
+}
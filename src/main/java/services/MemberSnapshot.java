@@ -0,0 +1,376 @@
+package services;
+
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationStats;
+import org.example.model.MemberSummary;
+import org.example.repo.ReceptionistRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Read-only member status for check-in kiosks, served from a memory-mapped
+ * file so lookups keep working while MongoDB is slow or unreachable, and a
+ * kiosk can start from the last snapshot without the database.
+ *
+ * File layout (little-endian):
+ * <pre>
+ *   header   magic, version, count, slots, builtAt millis   (24 bytes)
+ *   slots    open-addressing table, linear probing, at most half full;
+ *            per slot: hash, name offset, membershipEnd epoch day,
+ *            name length, flags                                (16 bytes each)
+ *   names    UTF-8 usernames the slots point into
+ * </pre>
+ *
+ * Lookups hash the username, probe the table and compare the name bytes
+ * in place: nothing is copied onto the heap. A refresh writes a new file
+ * from {@link ReceptionistRepository#streamMemberSummaries} (a covered
+ * index scan), moves it over the old one and maps it; lookups running
+ * meanwhile finish on the previous mapping. A kiosk without a repository
+ * picks up files written by another process through {@link #reloadIfChanged}.
+ */
+public class MemberSnapshot implements AutoCloseable {
+
+    private static final OperationStats REFRESH = Metrics.op("MemberSnapshot.refresh");
+
+    private static final int MAGIC = 0x47594D53; // "GYMS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int SLOT_BYTES = 16;
+    private static final int NO_END = Integer.MIN_VALUE;
+    private static final int ACTIVE = 1;
+    private static final int FREEZED = 2;
+
+    /**
+     * Status of one member as of the snapshot.
+     */
+    public record Status(boolean isActive, boolean freezed, LocalDate membershipEnd) {
+
+        /** Same rule as a live check-in, plus the end date for when expiries could not run. */
+        public boolean canCheckIn(LocalDate today) {
+            return isActive && !freezed && (membershipEnd == null || !today.isAfter(membershipEnd));
+        }
+    }
+
+    // one mapped file; replaced as a whole on refresh
+    private record View(MappedByteBuffer buf, int count, int slots, Instant builtAt, FileTime modified) {}
+
+    private final Path file;
+    private final ReceptionistRepository repo;
+    private volatile View view;
+    private final Object refreshLock = new Object(); // one writer of the file at a time
+
+    private ScheduledExecutorService scheduler;
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @param repo source for {@link #refresh}; null for a kiosk that only reads snapshots written elsewhere
+     */
+    public MemberSnapshot(Path file, ReceptionistRepository repo) {
+        this.file = file;
+        this.repo = repo;
+    }
+
+    // -------------------- LOADING --------------------
+
+    /**
+     * Maps the snapshot already on disk, if there is one. Does not touch
+     * the database, so a kiosk can call it before anything else.
+     *
+     * @return false if there is no snapshot file yet
+     */
+    public boolean load() {
+        try {
+            view = map(file);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map " + file, e);
+        }
+    }
+
+    /**
+     * Maps the file again if it was replaced since it was last mapped, e.g.
+     * by the application refreshing it for a read-only kiosk.
+     *
+     * @return true if a new snapshot was mapped
+     */
+    public boolean reloadIfChanged() {
+        try {
+            View v = view;
+            if (v != null && Files.getLastModifiedTime(file).equals(v.modified)) return false;
+            view = map(file);
+            refreshes.incrementAndGet();
+            return true;
+        } catch (NoSuchFileException e) {
+            return false; // keep the current mapping until a file appears again
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map " + file, e);
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from the database and switches lookups to it.
+     */
+    public void refresh() {
+        if (repo == null) throw new IllegalStateException("No repository to refresh from");
+
+        long t = REFRESH.start();
+        try {
+            synchronized (refreshLock) {
+                try (Stream<MemberSummary> members = repo.streamMemberSummaries()) {
+                    REFRESH.addDocuments(write(file, members.iterator(), Instant.now()));
+                }
+                view = map(file);
+            }
+            refreshes.incrementAndGet();
+        } catch (IOException e) {
+            REFRESH.error();
+            throw new UncheckedIOException("Cannot write " + file, e);
+        } catch (RuntimeException e) {
+            REFRESH.error();
+            throw e;
+        } finally {
+            REFRESH.stop(t);
+        }
+    }
+
+    /**
+     * Refreshes at a fixed rate on a daemon thread: from the database, or
+     * without a repository through {@link #reloadIfChanged}. A failed
+     * refresh is logged and counted; lookups keep using the previous snapshot.
+     */
+    public synchronized void refreshEvery(Duration period) {
+        if (scheduler != null) throw new IllegalStateException("Already refreshing");
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread th = new Thread(r, "member-snapshot");
+            th.setDaemon(true);
+            return th;
+        });
+        long ms = period.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (repo == null) reloadIfChanged();
+                else refresh();
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                System.err.println("Member snapshot refresh failed: " + e.getMessage());
+            }
+        }, view == null ? 0 : ms, ms, TimeUnit.MILLISECONDS);
+    }
+
+    // -------------------- LOOKUP --------------------
+
+    /**
+     * @return the member's status, or null if the member is not in the
+     *         snapshot or no snapshot is loaded
+     */
+    public Status lookup(String username) {
+        View v = view;
+        if (v == null || username == null) return null;
+
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(name);
+        int mask = v.slots - 1;
+        MappedByteBuffer buf = v.buf;
+
+        for (int probe = 0, i = hash & mask; probe < v.slots; probe++, i = (i + 1) & mask) {
+            int at = HEADER_BYTES + i * SLOT_BYTES;
+            int h = buf.getInt(at);
+            if (h == 0) return null;
+            if (h == hash && sameName(buf, buf.getInt(at + 4), buf.getShort(at + 12) & 0xFFFF, name)) {
+                int end = buf.getInt(at + 8);
+                int flags = buf.get(at + 14);
+                return new Status((flags & ACTIVE) != 0, (flags & FREEZED) != 0,
+                        end == NO_END ? null : LocalDate.ofEpochDay(end));
+            }
+        }
+        return null;
+    }
+
+    private static boolean sameName(MappedByteBuffer buf, int offset, int length, byte[] name) {
+        if (length != name.length) return false;
+        for (int i = 0; i < length; i++) {
+            if (buf.get(offset + i) != name[i]) return false;
+        }
+        return true;
+    }
+
+    // FNV-1a; 0 marks an empty slot. Package-private so tests can build colliding keys
+    static int hash(byte[] name) {
+        int h = 0x811C9DC5;
+        for (byte b : name) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    // -------------------- FILE --------------------
+
+    /**
+     * Writes a snapshot of {@code members} to a temporary file and moves it
+     * over {@code target}. Returns the number of members written; usernames
+     * over 64 KiB of UTF-8 are skipped.
+     */
+    static int write(Path target, Iterator<MemberSummary> members, Instant builtAt) throws IOException {
+        // fixed-size fields in parallel arrays, names in one byte run: about 17 bytes per member plus the name
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        int[] hashes = new int[1024];
+        int[] offsets = new int[1024];
+        int[] ends = new int[1024];
+        short[] lengths = new short[1024];
+        byte[] flags = new byte[1024];
+        int n = 0;
+
+        while (members.hasNext()) {
+            MemberSummary m = members.next();
+            if (m.username() == null) continue;
+            byte[] name = m.username().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF) continue;
+
+            if (n == hashes.length) {
+                int cap = n * 2;
+                hashes = Arrays.copyOf(hashes, cap);
+                offsets = Arrays.copyOf(offsets, cap);
+                ends = Arrays.copyOf(ends, cap);
+                lengths = Arrays.copyOf(lengths, cap);
+                flags = Arrays.copyOf(flags, cap);
+            }
+            hashes[n] = hash(name);
+            offsets[n] = names.size();
+            ends[n] = m.membershipEnd() == null ? NO_END : (int) m.membershipEnd().toEpochDay();
+            lengths[n] = (short) name.length;
+            flags[n] = (byte) ((m.isActive() ? ACTIVE : 0) | (m.freezed() ? FREEZED : 0));
+            names.write(name);
+            n++;
+        }
+
+        int slots = Integer.highestOneBit(Math.max(16, n * 2 - 1)) << 1;
+        int namesAt = HEADER_BYTES + slots * SLOT_BYTES;
+        long size = (long) namesAt + names.size();
+        if (size > Integer.MAX_VALUE) throw new IllegalStateException("Snapshot over 2 GiB");
+
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+
+            buf.putInt(0, MAGIC);
+            buf.putInt(4, VERSION);
+            buf.putInt(8, n);
+            buf.putInt(12, slots);
+            buf.putLong(16, builtAt.toEpochMilli());
+
+            int mask = slots - 1;
+            for (int k = 0; k < n; k++) {
+                int i = hashes[k] & mask;
+                while (buf.getInt(HEADER_BYTES + i * SLOT_BYTES) != 0) {
+                    i = (i + 1) & mask;
+                }
+                int at = HEADER_BYTES + i * SLOT_BYTES;
+                buf.putInt(at, hashes[k]);
+                buf.putInt(at + 4, namesAt + offsets[k]);
+                buf.putInt(at + 8, ends[k]);
+                buf.putShort(at + 12, lengths[k]);
+                buf.put(at + 14, flags[k]);
+            }
+            buf.put(namesAt, names.toByteArray());
+            buf.force();
+        }
+
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return n;
+    }
+
+    private static View map(Path file) throws IOException {
+        // read before mapping: if the file is replaced in between, the next check maps it again
+        FileTime modified = Files.getLastModifiedTime(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES) throw new IOException("Snapshot too short: " + file);
+
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+                throw new IOException("Not a member snapshot: " + file);
+            int count = buf.getInt(8);
+            int slots = buf.getInt(12);
+            if (slots <= 0 || Integer.bitCount(slots) != 1 || (long) HEADER_BYTES + (long) slots * SLOT_BYTES > size)
+                throw new IOException("Corrupt member snapshot: " + file);
+
+            // lookups read names wherever the slots point, so check every slot once here
+            int namesAt = HEADER_BYTES + slots * SLOT_BYTES;
+            int used = 0;
+            for (int i = 0; i < slots; i++) {
+                int at = HEADER_BYTES + i * SLOT_BYTES;
+                if (buf.getInt(at) == 0) continue;
+                long offset = buf.getInt(at + 4);
+                int length = buf.getShort(at + 12) & 0xFFFF;
+                if (offset < namesAt || offset + length > size)
+                    throw new IOException("Corrupt member snapshot, name out of bounds in slot " + i + ": " + file);
+                used++;
+            }
+            if (used != count || used > slots / 2)
+                throw new IOException("Corrupt member snapshot, " + used + " slots used for " + count + " members: " + file);
+
+            return new View(buf, count, slots, Instant.ofEpochMilli(buf.getLong(16)), modified);
+        }
+    }
+
+    // -------------------- SHUTDOWN / STATS --------------------
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    public boolean isLoaded() { return view != null; }
+
+    /** Members in the current snapshot, 0 if none is loaded. */
+    public int size() {
+        View v = view;
+        return v == null ? 0 : v.count;
+    }
+
+    /** When the current snapshot was read from the database, null if none is loaded. */
+    public Instant builtAt() {
+        View v = view;
+        return v == null ? null : v.builtAt;
+    }
+
+    public long refreshes() { return refreshes.get(); }
+
+    public long failures() { return failures.get(); }
+}
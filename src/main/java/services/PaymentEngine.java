@@ -0,0 +1,131 @@
+package services;
+
+import org.example.model.CardPaymentStrategy;
+import org.example.model.CashPaymentStrategy;
+import org.example.model.OnlinePaymentStrategy;
+import org.example.model.Payment;
+import org.example.model.PaymentStrategy;
+import org.example.model.WalletPaymentStrategy;
+import org.example.repo.BulkInsertResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Thread-safe replacement for {@link org.example.model.PaymentProcessor}.
+ *
+ * The strategy is picked per payment from {@link Payment#getMethod()} through
+ * a registry built once, so one engine can be shared by every thread. Batches
+ * run on virtual threads, at most maxConcurrency at a time (real gateways are
+ * I/O bound), and are then stored through {@link PaymentService#ingestPayments}.
+ */
+public class PaymentEngine {
+
+    private static final Map<String, PaymentStrategy> STRATEGIES = Map.of(
+            "CARD", new CardPaymentStrategy(),
+            "CASH", new CashPaymentStrategy(),
+            "ONLINE", new OnlinePaymentStrategy(),
+            "WALLET", new WalletPaymentStrategy()
+    );
+
+    private final PaymentService payments;
+    private final int maxConcurrency;
+
+    public PaymentEngine(PaymentService payments, int maxConcurrency) {
+        if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be positive");
+        this.payments = payments;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    // ---------------------------------------------------------
+    // SINGLE PAYMENT
+    // ---------------------------------------------------------
+
+    public static PaymentStrategy strategyFor(String method) {
+        PaymentStrategy s = method == null ? null : STRATEGIES.get(method.trim().toUpperCase(Locale.ROOT));
+        if (s == null) throw new IllegalArgumentException("Unsupported payment method: " + method);
+        return s;
+    }
+
+    public Payment process(Payment payment) {
+        if (payment == null) throw new IllegalArgumentException("Payment is null");
+        return strategyFor(payment.getMethod()).process(payment);
+    }
+
+    // ---------------------------------------------------------
+    // BATCHES
+    // ---------------------------------------------------------
+
+    /**
+     * Processes every payment concurrently and returns them in input order.
+     * A payment whose method is unknown or whose strategy throws is marked FAILED.
+     *
+     * @throws IllegalArgumentException if the batch or one of its payments is null
+     */
+    public List<Payment> processAll(Collection<Payment> batch) throws InterruptedException {
+        if (batch == null) throw new IllegalArgumentException("batch is null");
+        int i = 0;
+        for (Payment p : batch) {
+            if (p == null) throw new IllegalArgumentException("Payment at position " + i + " is null");
+            i++;
+        }
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<Future<Payment>> futures = new ArrayList<>(batch.size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Payment p : batch) {
+                permits.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return processOrFail(p);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        List<Payment> out = new ArrayList<>(futures.size());
+        for (Future<Payment> f : futures) {
+            try {
+                out.add(f.get());
+            } catch (ExecutionException e) {
+                // payments were checked for null and processOrFail catches RuntimeException: only an Error gets here
+                throw new IllegalStateException("Payment processing failed", e.getCause());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Processes a batch concurrently, then stores it in bulk.
+     */
+    public BulkInsertResult processAndPersist(Collection<Payment> batch) throws InterruptedException {
+        if (payments == null) throw new IllegalStateException("PaymentService not configured");
+
+        BulkInsertResult total = BulkInsertResult.EMPTY;
+        for (BulkInsertResult r : payments.ingestPayments(processAll(batch), PaymentService.DEFAULT_BATCH_SIZE)) {
+            total = total.plus(r);
+        }
+        return total;
+    }
+
+    private Payment processOrFail(Payment p) {
+        try {
+            return process(p);
+        } catch (RuntimeException e) {
+            p.setStatus("FAILED");
+            p.setReferenceNumber("ERROR-" + e.getClass().getSimpleName());
+            return p;
+        }
+    }
+}
@@ -1,10 +1,29 @@
 package services;
 
+import com.mongodb.MongoException;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationStats;
 import org.example.model.Payment;
+import org.example.repo.BulkInsertResult;
 import org.example.repo.PaymentRepository;
+import org.example.repo.PaymentRollups;
+import org.example.repo.RevenueRow;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class PaymentService {
 
+    private static final OperationStats CREATE_PAYMENT = Metrics.op("PaymentService.createPayment");
+    private static final OperationStats INGEST_PAYMENTS = Metrics.op("PaymentService.ingestPayments");
+    private static final OperationStats GET_REVENUE = Metrics.op("PaymentService.getRevenue");
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
     private final PaymentRepository repo;
 
     public PaymentService(PaymentRepository repo) {
@@ -12,9 +31,128 @@ public class PaymentService {
     }
 
     public void createPayment(Payment payment) {
-        if (payment.getPaymentId() == null || payment.getPaymentId().isEmpty()) {
-            throw new IllegalArgumentException("paymentId is required");
+        CREATE_PAYMENT.run(() -> {
+            if (payment.getPaymentId() == null || payment.getPaymentId().isEmpty()) {
+                throw new IllegalArgumentException("paymentId is required");
+            }
+            repo.insertPayment(payment);
+        });
+    }
+
+    // ---------------------------------------------------------
+    // BULK INGESTION
+    // ---------------------------------------------------------
+
+    /**
+     * Imports payments in chunks of {@code batchSize}, one unordered bulkWrite each.
+     * Safe to re-run: payments whose paymentId is already stored are counted as
+     * duplicates. Payments without a paymentId are counted as failed and not sent.
+     *
+     * @return one result per batch, in order; {@code rejected} holds positions in
+     *         {@code payments} (counting from 0 across all batches), including the
+     *         payments that were not sent
+     */
+    public List<BulkInsertResult> ingestPayments(Iterable<Payment> payments, int batchSize) {
+        return ingestPayments(payments.iterator(), batchSize);
+    }
+
+    public List<BulkInsertResult> ingestPayments(Stream<Payment> payments, int batchSize) {
+        return ingestPayments(payments.iterator(), batchSize);
+    }
+
+    private List<BulkInsertResult> ingestPayments(Iterator<Payment> it, int batchSize) {
+        return INGEST_PAYMENTS.time(() -> {
+            if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive");
+
+            List<BulkInsertResult> results = new ArrayList<>();
+            List<Payment> batch = new ArrayList<>(batchSize);
+            List<Integer> sentAt = new ArrayList<>(batchSize); // input position of each batch entry
+            List<Integer> invalidAt = new ArrayList<>();
+            int position = 0;
+
+            while (it.hasNext()) {
+                Payment p = it.next();
+                if (!isValid(p)) {
+                    invalidAt.add(position);
+                } else {
+                    batch.add(p);
+                    sentAt.add(position);
+                }
+                position++;
+
+                if (batch.size() + invalidAt.size() == batchSize) {
+                    results.add(writeBatch(batch, sentAt, invalidAt));
+                    INGEST_PAYMENTS.addDocuments(batchSize);
+                    batch.clear();
+                    sentAt.clear();
+                    invalidAt.clear();
+                }
+            }
+            if (!batch.isEmpty() || !invalidAt.isEmpty()) {
+                results.add(writeBatch(batch, sentAt, invalidAt));
+                INGEST_PAYMENTS.addDocuments(batch.size() + invalidAt.size());
+            }
+            return results;
+        });
+    }
+
+    // ---------------------------------------------------------
+    // REPORTING
+    // ---------------------------------------------------------
+
+    /**
+     * Revenue per day or month between from and to (inclusive), split by
+     * {@code by} and by currency. Served from the rollup buckets.
+     */
+    public List<RevenueRow> getRevenue(PaymentRollups.Period period, LocalDate from, LocalDate to,
+                                       PaymentRollups.Dimension by) {
+        return GET_REVENUE.time(() -> {
+            if (period == null || from == null || to == null)
+                throw new IllegalArgumentException("period, from and to are required");
+            if (to.isBefore(from)) throw new IllegalArgumentException("to is before from");
+
+            return GET_REVENUE.docs(repo.revenue(period, from, to, by == null ? PaymentRollups.Dimension.NONE : by));
+        });
+    }
+
+    public void rebuildRevenueRollups() {
+        repo.rebuildRollups();
+    }
+
+    /**
+     * Writes one batch and reports its rejections as input positions.
+     */
+    private BulkInsertResult writeBatch(List<Payment> batch, List<Integer> sentAt, List<Integer> invalidAt) {
+        BulkInsertResult r;
+        try {
+            r = repo.insertPayments(batch);
+        } catch (MongoException e) {
+            r = allFailed(batch.size());
         }
-        repo.insertPayment(payment);
+        return toInputPositions(r, sentAt, invalidAt);
+    }
+
+    // the whole batch is unaccounted for; a retry is idempotent and rolls up whatever this attempt stored
+    static BulkInsertResult allFailed(int batchSize) {
+        return new BulkInsertResult(0, 0, batchSize, IntStream.range(0, batchSize).boxed().toList());
+    }
+
+    /**
+     * Maps a batch result back to the caller's input: {@code sentAt.get(i)}
+     * is where batch entry i came from, {@code invalidAt} are the payments
+     * that were not sent. They are counted as failed.
+     */
+    static BulkInsertResult toInputPositions(BulkInsertResult r, List<Integer> sentAt, List<Integer> invalidAt) {
+        List<Integer> rejected = new ArrayList<>(r.rejected().size() + invalidAt.size());
+        for (int i : r.rejected()) {
+            rejected.add(sentAt.get(i));
+        }
+        rejected.addAll(invalidAt);
+        rejected.sort(null);
+        return new BulkInsertResult(r.inserted(), r.duplicates(), r.failed() + invalidAt.size(), rejected);
+    }
+
+    static boolean isValid(Payment p) {
+        return p != null && p.getPaymentId() != null && !p.getPaymentId().isEmpty();
     }
 }
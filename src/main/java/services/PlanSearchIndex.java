@@ -0,0 +1,191 @@
+package services;
+
+import org.example.repo.SearchHit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * In-process inverted index over a small catalog (workout or diet plans),
+ * answering ranked keyword searches without a round trip.
+ *
+ * Each plan is split into terms by {@link TextAnalyzer}; a term in the
+ * name counts {@link #NAME_WEIGHT} times, like in the collection's text
+ * index. A search adds up, per plan, the BM25 contribution of every query
+ * term it contains (idf times saturated term weight), so rarer words and
+ * plans matching more of the query rank first. Any term may match.
+ *
+ * Plans are added or replaced one at a time as they are written; searches
+ * and writes share a read-write lock. The index keeps its own copies:
+ * {@link #put} indexes a copy and hits hand out copies, so a caller
+ * changing a plan afterwards cannot leave it indexed under stale terms.
+ */
+public class PlanSearchIndex<T> {
+
+    static final float NAME_WEIGHT = 3f;
+    private static final float K1 = 1.2f;
+
+    private record Entry<T>(T item, Map<String, Float> terms) {}
+
+    private final Function<T, String> idOf;
+    private final Function<T, String> nameOf;
+    private final Function<T, String> detailsOf;
+    private final UnaryOperator<T> copyOf;
+
+    private final Map<String, Entry<T>> docs = new HashMap<>();
+    private final Map<String, Map<String, Float>> postings = new HashMap<>(); // term -> id -> weight
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean loaded;
+
+    public PlanSearchIndex(Function<T, String> idOf, Function<T, String> nameOf, Function<T, String> detailsOf,
+                           UnaryOperator<T> copyOf) {
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+        this.detailsOf = detailsOf;
+        this.copyOf = copyOf;
+    }
+
+    // -------------------- LOADING --------------------
+
+    /**
+     * Fills the index from {@code source} the first time it is called, and
+     * after {@link #clear()}. The stream is closed here.
+     */
+    public void ensureLoaded(Supplier<Stream<T>> source) {
+        lock.readLock().lock();
+        try {
+            if (loaded) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) return;
+            try (Stream<T> items = source.get()) {
+                items.forEach(this::add);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Drops everything; the next {@link #ensureLoaded} reads the catalog again. */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // -------------------- UPDATES --------------------
+
+    /**
+     * Adds a copy of a plan, or replaces the one with the same id. Plans
+     * without an id are not indexed, nor is anything before the first
+     * {@link #ensureLoaded}, which reads the plan from the catalog anyway.
+     */
+    public void put(T item) {
+        if (idOf.apply(item) == null) return;
+        lock.writeLock().lock();
+        try {
+            if (!loaded) return;
+            remove(idOf.apply(item));
+            add(copyOf.apply(item));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(T item) {
+        String id = idOf.apply(item);
+        if (id == null) return;
+        if (docs.containsKey(id)) remove(id);
+
+        Map<String, Float> terms = new HashMap<>();
+        for (String term : TextAnalyzer.terms(nameOf.apply(item))) {
+            terms.merge(term, NAME_WEIGHT, Float::sum);
+        }
+        for (String term : TextAnalyzer.terms(detailsOf.apply(item))) {
+            terms.merge(term, 1f, Float::sum);
+        }
+
+        docs.put(id, new Entry<>(item, terms));
+        terms.forEach((term, weight) -> postings.computeIfAbsent(term, k -> new HashMap<>()).put(id, weight));
+    }
+
+    // caller holds the write lock
+    private void remove(String id) {
+        Entry<T> old = docs.remove(id);
+        if (old == null) return;
+        for (String term : old.terms().keySet()) {
+            Map<String, Float> ids = postings.get(term);
+            ids.remove(id);
+            if (ids.isEmpty()) postings.remove(term);
+        }
+    }
+
+    // -------------------- SEARCH --------------------
+
+    /**
+     * Best {@code limit} plans for the query, highest score first; ties by id.
+     */
+    public List<SearchHit<T>> search(String query, int limit) {
+        if (limit < 1) throw new IllegalArgumentException("limit must be positive");
+
+        lock.readLock().lock();
+        try {
+            int n = docs.size();
+            Map<String, Double> scores = new HashMap<>();
+            for (String term : new LinkedHashSet<>(TextAnalyzer.terms(query))) {
+                Map<String, Float> ids = postings.get(term);
+                if (ids == null) continue;
+                double idf = Math.log(1 + (n - ids.size() + 0.5) / (ids.size() + 0.5));
+                ids.forEach((id, w) -> scores.merge(id, idf * w * (K1 + 1) / (w + K1), Double::sum));
+            }
+
+            List<SearchHit<T>> hits = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> hits.add(new SearchHit<>(copyOf.apply(docs.get(id).item()), score)));
+            hits.sort(Comparator.<SearchHit<T>>comparingDouble(SearchHit::score).reversed()
+                    .thenComparing(h -> idOf.apply(h.item())));
+            return hits.size() > limit ? List.copyOf(hits.subList(0, limit)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -------------------- STATS --------------------
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
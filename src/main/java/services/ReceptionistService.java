@@ -1,20 +1,116 @@
 package services;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationStats;
+import org.example.model.MemberSummary;
 import org.example.model.member;
 import org.example.model.Appointment;
 import org.example.model.receptionist;
+import org.example.repo.ChurnRisk;
+import org.example.repo.ImportReport;
+import org.example.repo.OccupancyHeatmap;
+import org.example.repo.Page;
 import org.example.repo.ReceptionistRepository;
+import org.example.repo.TransferFormat;
+
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * ReceptionistService - rewritten to match the NEW member model.
  */
 public class ReceptionistService {
 
+    private static final OperationStats CREATE_MEMBER = Metrics.op("ReceptionistService.createMember");
+    private static final OperationStats GET_MEMBER_BY_ID = Metrics.op("ReceptionistService.getMemberById");
+    private static final OperationStats GET_ALL_MEMBERS = Metrics.op("ReceptionistService.getAllMembers");
+    private static final OperationStats GET_MEMBERS_PAGE = Metrics.op("ReceptionistService.getMembersPage");
+    private static final OperationStats STREAM_ALL_MEMBERS = Metrics.op("ReceptionistService.streamAllMembers");
+    private static final OperationStats IMPORT_MEMBERS = Metrics.op("ReceptionistService.importMembers");
+    private static final OperationStats EXPORT_MEMBERS = Metrics.op("ReceptionistService.exportMembers");
+    private static final OperationStats RENEW_MEMBERSHIP = Metrics.op("ReceptionistService.renewMembership");
+    private static final OperationStats CANCEL_MEMBERSHIP = Metrics.op("ReceptionistService.cancelMembership");
+    private static final OperationStats GET_MEMBERS_EXPIRING_BETWEEN = Metrics.op("ReceptionistService.getMembersExpiringBetween");
+    private static final OperationStats COUNT_MEMBERS_ACTIVE_ON = Metrics.op("ReceptionistService.countMembersActiveOn");
+    private static final OperationStats RECORD_ATTENDANCE = Metrics.op("ReceptionistService.recordAttendance");
+    private static final OperationStats CHECK_IN = Metrics.op("ReceptionistService.checkIn");
+    private static final OperationStats GET_ATTENDANCE = Metrics.op("ReceptionistService.getAttendance");
+    private static final OperationStats GET_OCCUPANCY_HEATMAP = Metrics.op("ReceptionistService.getOccupancyHeatmap");
+    private static final OperationStats GET_CHURN_RISKS = Metrics.op("ReceptionistService.getChurnRisks");
+    private static final OperationStats SCHEDULE_APPOINTMENT = Metrics.op("ReceptionistService.scheduleAppointment");
+    private static final OperationStats GET_APPOINTMENTS_FOR_MEMBER = Metrics.op("ReceptionistService.getAppointmentsForMember");
+    private static final OperationStats GET_ALL_APPOINTMENTS = Metrics.op("ReceptionistService.getAllAppointments");
+    private static final OperationStats GET_APPOINTMENTS_PAGE = Metrics.op("ReceptionistService.getAppointmentsPage");
+    private static final OperationStats IMPORT_APPOINTMENTS = Metrics.op("ReceptionistService.importAppointments");
+    private static final OperationStats EXPORT_APPOINTMENTS = Metrics.op("ReceptionistService.exportAppointments");
+    private static final OperationStats GET_DAILY_SCHEDULE = Metrics.op("ReceptionistService.getDailySchedule");
+    private static final OperationStats GET_TRAINER_SCHEDULE = Metrics.op("ReceptionistService.getTrainerSchedule");
+
+    static final int IMPORT_CHUNK_SIZE = 1_000;
+
     private final ReceptionistRepository repo;
+    private final CheckInPipeline checkIns;
+    private final MemberCache members;
+    private final BookingIndex bookings;
+    private final DeadlineScheduler deadlines;
 
     public ReceptionistService(ReceptionistRepository repo) {
+        this(repo, null);
+    }
+
+    /**
+     * @param checkIns optional write-behind pipeline used by {@link #checkIn}
+     */
+    public ReceptionistService(ReceptionistRepository repo, CheckInPipeline checkIns) {
+        this(repo, checkIns, new MemberCache(10_000, Duration.ofMinutes(5)));
+    }
+
+    /**
+     * @param members cache in front of findMemberById; size and TTL are set by the caller
+     */
+    public ReceptionistService(ReceptionistRepository repo, CheckInPipeline checkIns, MemberCache members) {
+        this(repo, checkIns, members, null);
+    }
+
+    /**
+     * @param deadlines optional scheduler; renewals and bookings are reported to it,
+     *                  members it expires are dropped from the cache and past days
+     *                  are dropped from the booking index on its daily refill
+     */
+    public ReceptionistService(ReceptionistRepository repo, CheckInPipeline checkIns, MemberCache members,
+                               DeadlineScheduler deadlines) {
         this.repo = repo;
+        this.checkIns = checkIns;
+        this.members = members;
+        this.bookings = new BookingIndex(repo::findAppointmentsOn);
+        this.deadlines = deadlines;
+        if (deadlines != null) {
+            deadlines.onExpired(usernames -> usernames.forEach(members::invalidate));
+            deadlines.onRefill(bookings::evictBefore);
+        }
+    }
+
+    public MemberCache memberCache() {
+        return members;
+    }
+
+    public BookingIndex bookings() {
+        return bookings;
+    }
+
+    private member lookupMember(String username) {
+        return members.get(username, repo::findMemberById);
+    }
+
+    private void save(member m) {
+        repo.saveMember(m);
+        members.put(m);
     }
 
     // ---------------------------------------------------------
@@ -26,12 +122,14 @@ public class ReceptionistService {
      * Uses username as the primary ID (because memberId does not exist).
      */
     public void createMember(member m) {
-        if (m == null) throw new IllegalArgumentException("Member is null");
-        if (m.getUsername() == null || m.getUsername().isBlank())
-            throw new IllegalArgumentException("username is required");
-     
-
-        repo.saveMember(m);
+        CREATE_MEMBER.run(() -> {
+            if (m == null) throw new IllegalArgumentException("Member is null");
+            if (m.getUsername() == null || m.getUsername().isBlank())
+                throw new IllegalArgumentException("username is required");
+
+            save(m);
+            if (deadlines != null) deadlines.membershipChanged(m.getUsername(), m.getMembershipEnd());
+        });
     }
 
     // UI compatibility
@@ -40,45 +138,103 @@ public class ReceptionistService {
     }
 
     public member getMemberById(String username) {
-        return repo.findMemberById(username);
+        return GET_MEMBER_BY_ID.timeDocs(() -> lookupMember(username));
+    }
+
+    /**
+     * List views get summaries read from the members summary index;
+     * use getMemberById for the full record.
+     */
+    public List<MemberSummary> getAllMembers() {
+        return GET_ALL_MEMBERS.timeDocs(() -> repo.findMemberSummaries());
+    }
+
+    /**
+     * Page through members by username; pass null for the first page.
+     */
+    public Page<MemberSummary> getMembersPage(int pageSize, String pageToken) {
+        return GET_MEMBERS_PAGE.timeDocs(() -> repo.findMemberSummariesPage(pageSize, pageToken));
+    }
+
+    /**
+     * Every member, read lazily from the cursor. Close the stream when done.
+     */
+    public Stream<MemberSummary> streamAllMembers() {
+        return STREAM_ALL_MEMBERS.timeStream(() -> repo.streamMemberSummaries());
+    }
+
+    /**
+     * Bulk-loads members from a .csv or .ndjson file, e.g. when a branch moves
+     * onto the system. Rows are upserted by username; bad rows are listed in
+     * the report and do not stop the import.
+     */
+    public ImportReport importMembers(Path file) {
+        return IMPORT_MEMBERS.time(() -> {
+            ImportReport report = repo.importMembers(file, TransferFormat.of(file), IMPORT_CHUNK_SIZE);
+            // the writes bypassed the cache and the scheduler
+            members.clear();
+            if (deadlines != null) deadlines.reload();
+            return report;
+        });
     }
 
-    public List<member> getAllMembers() {
-        return repo.findAllMembers();
+    /**
+     * Streams every member (without passwords) into a .csv or .ndjson file.
+     */
+    public long exportMembers(Path file) {
+        return EXPORT_MEMBERS.time(() -> repo.exportMembers(file, TransferFormat.of(file)));
     }
 
     /**
-     * Renew membership (update type and date range)
+     * Renew membership (update type and date range) and reactivate it
      */
     public void renewMembership(
             String username,
             String membershipType,
-            String startIso,
-            String endIso
+            LocalDate start,
+            LocalDate end
     ) {
-
-        member m = repo.findMemberById(username);
-        if (m == null)
-            throw new IllegalArgumentException("Member not found");
-
-        m.setMembershipType(membershipType);
-        m.setMembershipStart(startIso);
-        m.setMembershipEnd(endIso);
-
-        repo.saveMember(m);
+        RENEW_MEMBERSHIP.run(() -> {
+            if (start != null && end != null && end.isBefore(start))
+                throw new IllegalArgumentException("Membership ends before it starts");
+
+            // targeted $set: a full replace would write a stale attendance over concurrent check-ins
+            if (!repo.renewMembership(username, membershipType, start, end))
+                throw new IllegalArgumentException("Member not found");
+            members.invalidate(username);
+            if (deadlines != null) deadlines.membershipChanged(username, end);
+        });
     }
 
     /**
      * Cancel membership by setting membershipType = CANCELLED
      */
     public boolean cancelMembership(String username, String reason) {
-        member m = repo.findMemberById(username);
-        if (m == null) return false;
+        return CANCEL_MEMBERSHIP.time(() -> {
+            boolean found = repo.cancelMembership(username);
+            members.invalidate(username);
+            return found;
+        });
+    }
 
-        m.setMembershipType("CANCELLED");
-        repo.saveMember(m);
+    /**
+     * Members whose membership ends between from and to (inclusive), soonest first.
+     */
+    public List<member> getMembersExpiringBetween(LocalDate from, LocalDate to) {
+        return GET_MEMBERS_EXPIRING_BETWEEN.time(() -> {
+            if (from == null || to == null) throw new IllegalArgumentException("from and to are required");
+            if (to.isBefore(from)) throw new IllegalArgumentException("to is before from");
+
+            return GET_MEMBERS_EXPIRING_BETWEEN.docs(repo.findMembersExpiringBetween(from, to));
+        });
+    }
 
-        return true;
+    public long countMembersActiveOn(LocalDate day) {
+        return COUNT_MEMBERS_ACTIVE_ON.time(() -> {
+            if (day == null) throw new IllegalArgumentException("day is required");
+
+            return repo.countMembersActiveOn(day);
+        });
     }
 
     // ---------------------------------------------------------
@@ -86,21 +242,99 @@ public class ReceptionistService {
     // ---------------------------------------------------------
 
     /**
-     * Increase attendance count by 1.
+     * Increase attendance count by 1 with a single atomic update,
+     * so concurrent check-ins never overwrite each other.
+     *
+     * @return the new attendance count
      */
-    public void recordAttendance(String username) {
-        member m = repo.findMemberById(username);
-        if (m == null) throw new IllegalArgumentException("Member not found");
+    public int recordAttendance(String username) {
+        // hot path: timed without a capturing lambda
+        long t = RECORD_ATTENDANCE.start();
+        try {
+            Integer count = repo.incrementAttendance(username);
+            if (count != null) {
+                members.update(username, m -> m.attendance = count);
+                return count;
+            }
 
-        m.attendance += 1;
-        repo.saveMember(m);
+            // only the failure path pays for a second lookup
+            if (lookupMember(username) == null)
+                throw new IllegalArgumentException("Member not found");
+            throw new IllegalStateException("Member is inactive or frozen");
+        } catch (RuntimeException e) {
+            RECORD_ATTENDANCE.error();
+            throw e;
+        } finally {
+            RECORD_ATTENDANCE.stop(t);
+        }
+    }
+
+    /**
+     * Turnstile check-in. Goes through the batched pipeline when one is
+     * configured (blocking while it is full), otherwise falls back to the
+     * synchronous {@link #recordAttendance}.
+     */
+    public void checkIn(String username) throws InterruptedException {
+        // not run(): submit() throws InterruptedException
+        long t = CHECK_IN.start();
+        try {
+            if (username == null || username.isBlank())
+                throw new IllegalArgumentException("username is required");
+
+            if (checkIns == null) {
+                recordAttendance(username);
+            } else {
+                checkIns.submit(username);
+            }
+        } catch (RuntimeException e) {
+            CHECK_IN.error();
+            throw e;
+        } finally {
+            CHECK_IN.stop(t);
+        }
     }
 
+    /**
+     * Attendance as of the cached member; check-ins still queued in the
+     * pipeline show up once the entry is reloaded.
+     */
     public int getAttendance(String username) {
-        member m = repo.findMemberById(username);
-        if (m == null) throw new IllegalArgumentException("Member not found");
+        return GET_ATTENDANCE.time(() -> {
+            member m = lookupMember(username);
+            if (m == null) throw new IllegalArgumentException("Member not found");
 
-        return m.attendance;
+            return m.attendance;
+        });
+    }
+
+    /**
+     * Check-ins per day-of-week and hour over the last {@code weeks} complete
+     * weeks (the current week is left out so it doesn't drag averages down).
+     */
+    public OccupancyHeatmap getOccupancyHeatmap(int weeks) {
+        return GET_OCCUPANCY_HEATMAP.time(() -> {
+            if (weeks < 1) throw new IllegalArgumentException("weeks must be positive");
+
+            LocalDate thisWeek = LocalDate.now().with(DayOfWeek.MONDAY);
+            return repo.occupancyHeatmap(thisWeek.minusWeeks(weeks), weeks);
+        });
+    }
+
+    /**
+     * Members at risk of churning: over the last {@code windowWeeks} complete
+     * weeks they visited at most {@code maxRatio} times as often as in the
+     * {@code windowWeeks} before, having come at least once a week back then.
+     * Largest drop first.
+     */
+    public List<ChurnRisk> getChurnRisks(int windowWeeks, double maxRatio, int limit) {
+        return GET_CHURN_RISKS.time(() -> {
+            if (windowWeeks < 1 || limit < 1) throw new IllegalArgumentException("windowWeeks and limit must be positive");
+            if (maxRatio < 0 || maxRatio >= 1) throw new IllegalArgumentException("maxRatio must be in [0, 1)");
+
+            LocalDate thisWeek = LocalDate.now().with(DayOfWeek.MONDAY);
+            return GET_CHURN_RISKS.docs(repo.findChurnRisks(thisWeek.minusWeeks(windowWeeks), windowWeeks,
+                    windowWeeks, maxRatio, limit));
+        });
     }
 
     // ---------------------------------------------------------
@@ -116,24 +350,76 @@ public class ReceptionistService {
     // ---------------------------------------------------------
 
     public void scheduleAppointment(Appointment appt) {
+        SCHEDULE_APPOINTMENT.run(() -> {
+            if (appt == null) throw new IllegalArgumentException("Appointment is null");
 
-        if (appt == null) throw new IllegalArgumentException("Appointment is null");
+            if (appt.getAppointmentName() == null || appt.getAppointmentName().isBlank())
+                appt.setAppointmentName("AP-" + System.currentTimeMillis());
 
-        if (appt.getAppointmentName() == null || appt.getAppointmentName().isBlank())
-            appt.setAppointmentName("AP-" + System.currentTimeMillis());
+            if (appt.getMemberId() == null || appt.getMemberId().isBlank())
+                throw new IllegalArgumentException("username (memberId) required");
 
-        if (appt.getMemberId() == null || appt.getMemberId().isBlank())
-            throw new IllegalArgumentException("username (memberId) required");
+            if (appt.getStatus() == null) appt.setStatus(Appointment.SCHEDULED);
+            if (!appt.isScheduled()) {
+                repo.saveAppointment(appt);
+                return;
+            }
+
+            bookings.reserve(appt);
+            try {
+                repo.saveAppointment(appt);
+            } catch (RuntimeException e) {
+                bookings.release(appt);
+                if (e instanceof MongoWriteException w && w.getError().getCategory() == ErrorCategory.DUPLICATE_KEY)
+                    throw new IllegalStateException("Slot " + appt.getDate() + " " + appt.getTime() + " was booked concurrently", e);
+                throw e;
+            }
+            if (deadlines != null) deadlines.appointmentBooked(appt);
+        });
+    }
 
-        repo.saveAppointment(appt);
+    /**
+     * Loads the booking index for fromDate..toDate in one query,
+     * instead of one query per day on first booking. Call at startup.
+     */
+    public void loadBookings(LocalDate fromDate, LocalDate toDate) {
+        try (Stream<Appointment> s = repo.streamAppointmentsBetween(fromDate, toDate)) {
+            bookings.load(s);
+        }
+        // days without any appointment are loaded too
+        for (LocalDate d = fromDate; !d.isAfter(toDate); d = d.plusDays(1)) {
+            bookings.markLoaded(d);
+        }
+    }
+
+    /**
+     * Bulk-loads appointments, upserted by (memberId, date, time). The
+     * booking index is rebuilt lazily afterwards; rows that collide with a
+     * scheduled appointment are rejected by the unique indexes and reported.
+     */
+    public ImportReport importAppointments(Path file) {
+        return IMPORT_APPOINTMENTS.time(() -> {
+            ImportReport report = repo.importAppointments(file, TransferFormat.of(file), IMPORT_CHUNK_SIZE);
+            bookings.clear();
+            if (deadlines != null) deadlines.reload();
+            return report;
+        });
+    }
+
+    public long exportAppointments(Path file) {
+        return EXPORT_APPOINTMENTS.time(() -> repo.exportAppointments(file, TransferFormat.of(file)));
     }
 
     public List<Appointment> getAppointmentsForMember(String username) {
-        return repo.findAppointmentsByMember(username);
+        return GET_APPOINTMENTS_FOR_MEMBER.timeDocs(() -> repo.findAppointmentsByMember(username));
     }
 
     public List<Appointment> getAllAppointments() {
-        return repo.findAllAppointments();
+        return GET_ALL_APPOINTMENTS.timeDocs(() -> repo.findAllAppointments());
+    }
+
+    public Page<Appointment> getAppointmentsPage(int pageSize, String pageToken) {
+        return GET_APPOINTMENTS_PAGE.timeDocs(() -> repo.findAppointmentsPage(pageSize, pageToken));
     }
 
     public boolean cancelAppointment(String id) {
@@ -145,16 +431,22 @@ public class ReceptionistService {
     // SCHEDULE
     // ---------------------------------------------------------
 
-    public List<Appointment> getDailySchedule(String date) {
+    public List<Appointment> getDailySchedule(LocalDate date) {
+        return GET_DAILY_SCHEDULE.time(() -> {
+            if (date == null) throw new IllegalArgumentException("date is required");
 
-        List<Appointment> out = new java.util.ArrayList<>();
+            return GET_DAILY_SCHEDULE.docs(repo.findAppointmentsOn(date));
+        });
+    }
 
-        for (Appointment a : repo.findAllAppointments()) {
-            if (date.equals(a.getDate())) {
-                out.add(a);
-            }
-        }
+    public List<Appointment> getTrainerSchedule(String trainerId, LocalDate date) {
+        return GET_TRAINER_SCHEDULE.time(() -> {
+            if (trainerId == null || trainerId.isBlank()) throw new IllegalArgumentException("trainerId is required");
+            if (date == null) throw new IllegalArgumentException("date is required");
 
-        return out;
+            try (Stream<Appointment> s = repo.streamTrainerAppointmentsOn(trainerId, date)) {
+                return GET_TRAINER_SCHEDULE.docs(s.toList());
+            }
+        });
     }
 }
@@ -0,0 +1,91 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns text into search terms: lower-cased runs of letters and digits,
+ * English stop words dropped, then a light suffix stemmer so that
+ * "squats", "squatting" and "squatted" all become "squat".
+ *
+ * The stemmer only strips plurals, -ing/-ed, -ly and a trailing e; it is
+ * not Porter's, but documents and queries go through the same rules, which
+ * is all an index needs.
+ */
+final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is", "it",
+            "of", "on", "or", "per", "the", "to", "with", "your", "you", "this", "that", "these", "those");
+
+    private TextAnalyzer() {}
+
+    static List<String> terms(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                String token = lower.substring(start, i);
+                if (token.length() > 1 && !STOP_WORDS.contains(token)) out.add(stem(token));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    static String stem(String w) {
+        if (w.length() <= 3 || !Character.isLetter(w.charAt(w.length() - 1))) return w;
+
+        // plurals
+        if (w.endsWith("ies") && w.length() > 4) {
+            w = w.substring(0, w.length() - 3) + "y";
+        } else if (w.endsWith("es") && (w.endsWith("ches") || w.endsWith("shes") || w.endsWith("sses")
+                || w.endsWith("xes") || w.endsWith("zes"))) {
+            w = w.substring(0, w.length() - 2);
+        } else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us") && !w.endsWith("is")) {
+            w = w.substring(0, w.length() - 1);
+        }
+
+        // -ing / -ed, when a real stem is left: "training" -> "train", "running" -> "run"
+        for (String suffix : new String[]{"ing", "ed"}) {
+            if (w.endsWith(suffix) && w.length() - suffix.length() >= 3 && hasVowel(w, w.length() - suffix.length())) {
+                w = w.substring(0, w.length() - suffix.length());
+                int n = w.length();
+                if (n >= 2 && w.charAt(n - 1) == w.charAt(n - 2) && "lsz".indexOf(w.charAt(n - 1)) < 0
+                        && !isVowel(w.charAt(n - 1))) {
+                    w = w.substring(0, n - 1);
+                }
+                break;
+            }
+        }
+
+        if (w.endsWith("ly") && w.length() >= 6) {
+            w = w.substring(0, w.length() - 2);
+        }
+
+        // "move" and "moving" meet at "mov"; "knee" and "free" keep their e
+        if (w.length() > 3 && w.endsWith("e") && w.charAt(w.length() - 2) != 'e') {
+            w = w.substring(0, w.length() - 1);
+        }
+        return w;
+    }
+
+    private static boolean hasVowel(String w, int end) {
+        for (int i = 0; i < end; i++) {
+            if (isVowel(w.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    private static boolean isVowel(char c) {
+        return "aeiouy".indexOf(c) >= 0;
+    }
+}
@@ -1,46 +1,292 @@
 package services;
 
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationStats;
+import org.example.model.BodyMetric;
+import org.example.model.DietPlan;
+import org.example.model.TrainingSession;
+import org.example.model.WorkoutPlan;
+import org.example.repo.MetricPoint;
+import org.example.repo.Page;
+import org.example.repo.SearchHit;
+import org.example.repo.SessionPoint;
+import org.example.repo.TrainerRepository;
+import org.example.repo.TrainerRepository.Bucket;
+import org.example.repo.TrainerRepository.PlanKind;
+import org.example.repo.TrainerRepository.PlanListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Workout and diet plans for trainers.
+ *
+ * The full catalogs are served from in-memory snapshots: plans change a
+ * few times a day, so {@link #getAllWorkoutPlans} and
+ * {@link #getAllDietPlans} only read MongoDB after a change. Writes through
+ * the repository mark the affected snapshot stale and update the search
+ * index in place; {@link #watchPlanChanges} marks the snapshot stale and
+ * drops the search index for changes made by other nodes, which is rebuilt
+ * on the next search.
+ */
+public class TrainerService implements AutoCloseable {
 
-public class TrainerService {
+    private static final OperationStats CREATE_WORKOUT = Metrics.op("TrainerService.createWorkout");
+    private static final OperationStats UPDATE_WORKOUT = Metrics.op("TrainerService.updateWorkout");
+    private static final OperationStats GET_ALL_WORKOUT_PLANS = Metrics.op("TrainerService.getAllWorkoutPlans");
+    private static final OperationStats GET_WORKOUT_PLANS_PAGE = Metrics.op("TrainerService.getWorkoutPlansPage");
+    private static final OperationStats FIND_WORKOUT_BY_NAME = Metrics.op("TrainerService.findWorkoutByName");
+    private static final OperationStats CREATE_DIET = Metrics.op("TrainerService.createDiet");
+    private static final OperationStats UPDATE_DIET = Metrics.op("TrainerService.updateDiet");
+    private static final OperationStats GET_ALL_DIET_PLANS = Metrics.op("TrainerService.getAllDietPlans");
+    private static final OperationStats GET_DIET_PLANS_PAGE = Metrics.op("TrainerService.getDietPlansPage");
+    private static final OperationStats FIND_DIET_BY_NAME = Metrics.op("TrainerService.findDietByName");
+    private static final OperationStats SEARCH_WORKOUTS = Metrics.op("TrainerService.searchWorkouts");
+    private static final OperationStats SEARCH_DIETS = Metrics.op("TrainerService.searchDiets");
+    private static final OperationStats LOG_SESSIONS = Metrics.op("TrainerService.logSessions");
+    private static final OperationStats LOG_METRICS = Metrics.op("TrainerService.logMetrics");
+    private static final OperationStats GET_METRIC_SERIES = Metrics.op("TrainerService.getMetricSeries");
+    private static final OperationStats GET_SESSION_SERIES = Metrics.op("TrainerService.getSessionSeries");
 
     private final TrainerRepository repo;
+    private final CatalogSnapshot<WorkoutPlan> workoutCatalog;
+    private final CatalogSnapshot<DietPlan> dietCatalog;
+
+    // built from the collections on the first search, then kept current by writes through the repository
+    // and dropped when the change stream reports plans changed elsewhere
+    private final PlanSearchIndex<WorkoutPlan> workoutIndex = new PlanSearchIndex<>(
+            WorkoutPlan::getPlanId, WorkoutPlan::getPlanName, WorkoutPlan::getPlanDetails, TrainerService::copy);
+    private final PlanSearchIndex<DietPlan> dietIndex = new PlanSearchIndex<>(
+            DietPlan::getDietId, DietPlan::getDietName, DietPlan::getDietDetails, TrainerService::copy);
+
+    private ExecutorService watcher;
+    private final AtomicLong watchFailures = new AtomicLong();
 
     public TrainerService(TrainerRepository repo) {
         this.repo = repo;
+        this.workoutCatalog = new CatalogSnapshot<>(repo::findAllWorkouts, TrainerService::copy);
+        this.dietCatalog = new CatalogSnapshot<>(repo::findAllDiets, TrainerService::copy);
+        repo.onPlanWritten(new PlanListener() {
+            @Override
+            public void workoutWritten(WorkoutPlan w) {
+                workoutCatalog.invalidate();
+                workoutIndex.put(w);
+            }
+
+            @Override
+            public void dietWritten(DietPlan d) {
+                dietCatalog.invalidate();
+                dietIndex.put(d);
+            }
+        });
     }
 
     // -------- WORKOUTS --------
     public void createWorkout(WorkoutPlan w) {
-        repo.saveWorkout(w);
+        CREATE_WORKOUT.run(() -> repo.saveWorkout(w));
     }
 
     public void updateWorkout(WorkoutPlan w) {
-        repo.updateWorkout(w);
+        UPDATE_WORKOUT.run(() -> repo.updateWorkout(w));
     }
 
+    /**
+     * All workout plans, copied from the current snapshot; changing them
+     * does not affect other callers.
+     */
     public List<WorkoutPlan> getAllWorkoutPlans() {
-        return repo.findAllWorkouts();
+        return GET_ALL_WORKOUT_PLANS.timeDocs(() -> workoutCatalog.get());
+    }
+
+    public Page<WorkoutPlan> getWorkoutPlansPage(int pageSize, String pageToken) {
+        return GET_WORKOUT_PLANS_PAGE.timeDocs(() -> repo.findWorkoutsPage(pageSize, pageToken));
     }
 
     public WorkoutPlan findWorkoutByName(String name) {
-        return repo.findWorkoutByName(name);
+        return FIND_WORKOUT_BY_NAME.timeDocs(() -> repo.findWorkoutByName(name));
+    }
+
+    /**
+     * Ranked keyword search over workout names and details, answered from
+     * memory. Words are stemmed ("squatting" finds "squats"); a word in the
+     * name weighs three times one in the details.
+     */
+    public List<SearchHit<WorkoutPlan>> searchWorkouts(String query, int limit) {
+        return SEARCH_WORKOUTS.time(() -> {
+            workoutIndex.ensureLoaded(repo::streamAllWorkouts);
+            return SEARCH_WORKOUTS.docs(workoutIndex.search(query, limit));
+        });
     }
 
     // -------- DIETS --------
     public void createDiet(DietPlan d) {
-        repo.saveDiet(d);
+        CREATE_DIET.run(() -> repo.saveDiet(d));
     }
 
     public void updateDiet(DietPlan d) {
-        repo.updateDiet(d);
+        UPDATE_DIET.run(() -> repo.updateDiet(d));
     }
 
+    /** All diet plans, copied from the current snapshot like {@link #getAllWorkoutPlans}. */
     public List<DietPlan> getAllDietPlans() {
-        return repo.findAllDiets();
+        return GET_ALL_DIET_PLANS.timeDocs(() -> dietCatalog.get());
+    }
+
+    public Page<DietPlan> getDietPlansPage(int pageSize, String pageToken) {
+        return GET_DIET_PLANS_PAGE.timeDocs(() -> repo.findDietsPage(pageSize, pageToken));
     }
 
     public DietPlan findDietByName(String name) {
-        return repo.findDietByName(name);
+        return FIND_DIET_BY_NAME.timeDocs(() -> repo.findDietByName(name));
+    }
+
+    /** Same as {@link #searchWorkouts}, over diet plans. */
+    public List<SearchHit<DietPlan>> searchDiets(String query, int limit) {
+        return SEARCH_DIETS.time(() -> {
+            dietIndex.ensureLoaded(repo::streamAllDiets);
+            return SEARCH_DIETS.docs(dietIndex.search(query, limit));
+        });
+    }
+
+    // -------- SEARCH INDEX --------
+
+    /**
+     * Forgets the in-memory search indexes, e.g. after plans were written
+     * by another process; the next search reads the collections again.
+     */
+    public void reloadSearchIndexes() {
+        workoutIndex.clear();
+        dietIndex.clear();
+    }
+
+    // -------- PROGRESS --------
+
+    /** Logs the exercises of a session; returns how many were written. */
+    public int logSessions(List<TrainingSession> entries) {
+        return LOG_SESSIONS.time(() -> repo.logSessions(entries));
+    }
+
+    /** Logs body measurements, e.g. a weigh-in; returns how many were written. */
+    public int logMetrics(List<BodyMetric> metrics) {
+        return LOG_METRICS.time(() -> repo.logMetrics(metrics));
     }
+
+    /**
+     * A member's metric for a progress chart, e.g. weekly averages of
+     * "weight" over a year: one point per bucket, computed by the server.
+     */
+    public List<MetricPoint> getMetricSeries(String memberId, String metric, LocalDate from, LocalDate to,
+                                             Bucket bucket) {
+        return GET_METRIC_SERIES.timeDocs(() -> repo.metricSeries(memberId, metric, from, to, bucket));
+    }
+
+    /**
+     * A member's training per bucket; with an exercise, its max weight per
+     * bucket charts that lift over time.
+     */
+    public List<SessionPoint> getSessionSeries(String memberId, String exercise, LocalDate from, LocalDate to,
+                                               Bucket bucket) {
+        return GET_SESSION_SERIES.timeDocs(() -> repo.sessionSeries(memberId, exercise, from, to, bucket));
+    }
+
+    // -------- CATALOG INVALIDATION --------
+
+    // plans changed somewhere, not necessarily through this service: which ones is unknown
+    private void plansChanged(PlanKind kind) {
+        switch (kind) {
+            case WORKOUTS -> {
+                workoutCatalog.invalidate();
+                workoutIndex.clear();
+            }
+            case DIETS -> {
+                dietCatalog.invalidate();
+                dietIndex.clear();
+            }
+        }
+    }
+
+    /**
+     * Follows plan changes from every node through a change stream on a
+     * daemon thread, so the catalog snapshots pick up other nodes' edits
+     * within about a second.
+     *
+     * When the stream fails, or the server cannot open one (a standalone
+     * mongod), both snapshots and search indexes are dropped and the stream
+     * is retried every {@code retry}; until it is back the catalogs are at
+     * most that stale.
+     */
+    public synchronized void watchPlanChanges(Duration retry) {
+        Objects.requireNonNull(retry, "retry");
+        if (watcher != null) throw new IllegalStateException("Already watching");
+
+        watcher = Executors.newSingleThreadExecutor(r -> {
+            Thread th = new Thread(r, "plan-watch");
+            th.setDaemon(true);
+            return th;
+        });
+        watcher.execute(() -> {
+            String lastError = null;
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    repo.followPlanChanges(this::plansChanged);
+                } catch (RuntimeException e) {
+                    watchFailures.incrementAndGet();
+                    if (!Objects.equals(e.getMessage(), lastError)) {
+                        System.err.println("Plan change stream failed, retrying every " + retry.toMillis()
+                                + " ms: " + e.getMessage());
+                        lastError = e.getMessage();
+                    }
+                }
+                plansChanged(PlanKind.WORKOUTS);
+                plansChanged(PlanKind.DIETS);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(retry.toMillis());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    /** Stops following plan changes. */
+    @Override
+    public synchronized void close() {
+        if (watcher != null) watcher.shutdownNow();
+    }
+
+    // -------- COPIES --------
+
+    static WorkoutPlan copy(WorkoutPlan w) {
+        WorkoutPlan c = new WorkoutPlan();
+        c.setPlanId(w.getPlanId());
+        c.setTrainerId(w.getTrainerId());
+        c.setPlanName(w.getPlanName());
+        c.setPlanDetails(w.getPlanDetails());
+        return c;
+    }
+
+    static DietPlan copy(DietPlan d) {
+        DietPlan c = new DietPlan();
+        c.setDietId(d.getDietId());
+        c.setTrainerId(d.getTrainerId());
+        c.setDietName(d.getDietName());
+        c.setDietDetails(d.getDietDetails());
+        return c;
+    }
+
+    // -------- STATS --------
+
+    /** Catalog reads answered from a snapshot, both kinds together. */
+    public long catalogHits() { return workoutCatalog.hits() + dietCatalog.hits(); }
+
+    /** Catalog reads that had to load from MongoDB. */
+    public long catalogLoads() { return workoutCatalog.loads() + dietCatalog.loads(); }
+
+    public long watchFailures() { return watchFailures.get(); }
 }
@@ -0,0 +1,63 @@
+package org.example.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationStatsTest {
+
+    @Test
+    void streamIsTimedUntilClosed() {
+        OperationStats op = new OperationStats("test.stream");
+        boolean[] sourceClosed = {false};
+
+        Stream<String> s = op.timeStream(() -> Stream.of("a", "b", "c").onClose(() -> sourceClosed[0] = true));
+        Iterator<String> it = s.iterator();
+        it.next();
+        it.next();
+        assertEquals(0, op.getCalls(), "recorded before the stream was closed");
+
+        s.close();
+        s.close();
+        assertTrue(sourceClosed[0]);
+        assertEquals(1, op.getCalls());
+        assertEquals(2, op.getDocuments());
+        assertEquals(0, op.getErrors());
+    }
+
+    @Test
+    void failureWhileReadingCountsAsError() {
+        OperationStats op = new OperationStats("test.failingStream");
+        Stream<Integer> failing = Stream.of(1, 2).map(i -> {
+            if (i == 2) throw new IllegalStateException("cursor died");
+            return i;
+        });
+
+        try (Stream<Integer> s = op.timeStream(() -> failing)) {
+            assertThrows(IllegalStateException.class, s::toList);
+        }
+        assertEquals(1, op.getCalls());
+        assertEquals(1, op.getErrors());
+    }
+
+    @Test
+    void timeCountsErrorsAndTimeDocsCountsResults() {
+        OperationStats op = new OperationStats("test.time");
+
+        assertEquals(List.of(1, 2), op.timeDocs(() -> List.of(1, 2)));
+        assertEquals(7, op.time(() -> 7));
+        assertThrows(IllegalArgumentException.class, () -> op.run(() -> {
+            throw new IllegalArgumentException("bad");
+        }));
+
+        assertEquals(3, op.getCalls());
+        assertEquals(2, op.getDocuments());
+        assertEquals(1, op.getErrors());
+    }
+}
@@ -0,0 +1,200 @@
+package org.example.repo;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV splitting, row error positions and export / import round trips.
+ */
+class BulkTransferTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoDatabase db;
+    private MongoCollection<Document> members;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void start() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        db = client.getDatabase("gym_test");
+        members = db.getCollection("members");
+    }
+
+    @AfterEach
+    void stop() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    // -------------------- CSV RECORDS --------------------
+
+    @Test
+    void quotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        BulkTransfer.CsvReader csv = new BulkTransfer.CsvReader(new StringReader(
+                "a,\"b, c\",\"say \"\"hi\"\"\"\r\n"
+                        + "\"two\r\nlines\",x,\r\n"
+                        + "last,row,here"));
+
+        assertEquals(List.of("a", "b, c", "say \"hi\""), csv.next());
+        assertEquals(1, csv.recordLine);
+
+        assertEquals(List.of("two\r\nlines", "x", ""), csv.next());
+        assertEquals(2, csv.recordLine);
+
+        // the record after a quoted line break starts one line further down
+        assertEquals(List.of("last", "row", "here"), csv.next());
+        assertEquals(4, csv.recordLine);
+
+        assertNull(csv.next());
+    }
+
+    @Test
+    void unterminatedQuoteRunsToTheEndOfTheInput() throws IOException {
+        BulkTransfer.CsvReader csv = new BulkTransfer.CsvReader(new StringReader("a,b\n\"open,c\nd,e\n"));
+
+        assertEquals(List.of("a", "b"), csv.next());
+        assertThrows(IllegalArgumentException.class, csv::next);
+        assertEquals(2, csv.recordLine);
+    }
+
+    // -------------------- IMPORT --------------------
+
+    @Test
+    void importStopsAtAnUnterminatedQuoteAndKeepsTheRowsBeforeIt() throws IOException {
+        Path file = write("members.csv",
+                "username,phone\r\n"
+                        + "alice,111\r\n"
+                        + "bob,\"222\r\n"
+                        + "carol,333\r\n");
+
+        ImportReport report = BulkTransfer.importFile(members, BulkTransfer.MEMBERS, file, TransferFormat.CSV, 10);
+
+        assertEquals(3, report.stoppedAtLine());
+        assertFalse(report.isComplete());
+        assertEquals(1, report.inserted());
+        assertEquals(1, report.failed());
+        assertEquals(3, report.errors().get(0).row());
+        assertEquals(List.of("alice"), usernames());
+    }
+
+    @Test
+    void byteOrderMarkBeforeTheHeaderIsIgnored() throws IOException {
+        Path file = write("members.csv", "\uFEFFusername,age\r\nalice,30\r\n");
+
+        ImportReport report = BulkTransfer.importFile(members, BulkTransfer.MEMBERS, file, TransferFormat.CSV, 10);
+
+        assertFalse(report.hasErrors());
+        assertEquals(30, members.find(Filters.eq("username", "alice")).first().get("age"));
+    }
+
+    @Test
+    void serverRejectionsAreReportedOnTheirOwnLines() throws IOException {
+        members.createIndex(Indexes.ascending("email"), new IndexOptions().unique(true));
+        // chunks of two: the rejected rows are the second of the first chunk and the first of the third
+        Path file = write("members.csv",
+                "username,email,age\r\n"
+                        + "alice,a@gym,30\r\n"      // line 2
+                        + "bob,a@gym,31\r\n"        // line 3, duplicate email
+                        + "carol,c@gym,x\r\n"       // line 4, not an integer
+                        + "dave,d@gym,33\r\n"       // line 5
+                        + "erin,e@gym,34\r\n"       // line 6
+                        + "frank,d@gym,35\r\n"      // line 7, duplicate email
+                        + "grace,g@gym,36\r\n");    // line 8
+
+        ImportReport report = BulkTransfer.importFile(members, BulkTransfer.MEMBERS, file, TransferFormat.CSV, 2);
+
+        assertEquals(7, report.rows());
+        assertEquals(4, report.inserted());
+        assertEquals(3, report.failed());
+        assertEquals(List.of(3L, 4L, 7L), report.errors().stream().map(ImportReport.RowError::row).toList());
+        assertEquals(List.of("alice", "dave", "erin", "grace"), usernames());
+    }
+
+    // -------------------- ROUND TRIP --------------------
+
+    @Test
+    void exportedCsvImportsBackUnchanged() throws IOException {
+        Path source = write("source.csv",
+                "username,phone,address,age,membershipStart,membershipEnd,isActive\r\n"
+                        + "alice,111,\"1 Main St, Springfield\",30,2026-01-01,2026-12-31,true\r\n"
+                        + "bob,222,\"the \"\"old\"\" mill\r\nback door\",41,2026-02-01,2026-03-01,false\r\n");
+        assertFalse(BulkTransfer.importFile(members, BulkTransfer.MEMBERS, source, TransferFormat.CSV, 10).hasErrors());
+
+        Path exported = dir.resolve("export.csv");
+        assertEquals(2, BulkTransfer.exportFile(members, BulkTransfer.MEMBERS, exported, TransferFormat.CSV));
+
+        MongoCollection<Document> copy = db.getCollection("members_copy");
+        ImportReport report = BulkTransfer.importFile(copy, BulkTransfer.MEMBERS, exported, TransferFormat.CSV, 10);
+        assertFalse(report.hasErrors());
+        assertEquals(2, report.inserted());
+        assertEquals(contents(members), contents(copy));
+    }
+
+    @Test
+    void exportedNdjsonImportsBackUnchanged() throws IOException {
+        Path source = write("source.csv",
+                "username,address,age,membershipEnd,freezed\r\n"
+                        + "alice,\"line one\nline two\",30,2026-12-31,true\r\n"
+                        + "bob,\"quote \"\"here\"\"\",,,\r\n");
+        assertFalse(BulkTransfer.importFile(members, BulkTransfer.MEMBERS, source, TransferFormat.CSV, 10).hasErrors());
+
+        Path exported = dir.resolve("export.ndjson");
+        assertEquals(2, BulkTransfer.exportFile(members, BulkTransfer.MEMBERS, exported, TransferFormat.NDJSON));
+
+        MongoCollection<Document> copy = db.getCollection("members_copy");
+        assertTrue(BulkTransfer.importFile(copy, BulkTransfer.MEMBERS, exported, TransferFormat.NDJSON, 10)
+                .isComplete());
+        assertEquals(contents(members), contents(copy));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private List<String> usernames() {
+        List<String> names = new ArrayList<>();
+        for (Document d : members.find().sort(Sorts.ascending("username"))) {
+            names.add(d.getString("username"));
+        }
+        return names;
+    }
+
+    private static List<Document> contents(MongoCollection<Document> collection) {
+        return collection.find().projection(Projections.excludeId()).sort(Sorts.ascending("username"))
+                .into(new ArrayList<>());
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.repo;
+
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.example.model.Payment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Every stored payment is in the revenue rollups exactly once, also when
+ * an insert that reached the server is retried.
+ */
+class PaymentRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 14);
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoDatabase db;
+    private PaymentRepository repo;
+
+    @BeforeEach
+    void start() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        db = client.getDatabase("gym_test");
+        repo = new PaymentRepository(db.getCollection("payments"), db.getCollection("payment_rollups"));
+        repo.ensureIndexes(new IndexManager());
+    }
+
+    @AfterEach
+    void stop() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void retriedBatchRollsUpPaymentsStoredByTheFailedAttempt() {
+        // the first attempt stored "a" but the client saw an error, so nothing was rolled up
+        db.getCollection("payments").insertOne(PaymentRepository.paymentToDoc(payment("a", 10)));
+
+        BulkInsertResult retry = repo.insertPayments(List.of(payment("a", 10), payment("b", 5)));
+        assertEquals(1, retry.duplicates());
+        assertEquals(15.0, dayRevenue());
+
+        // a further retry finds both claimed and adds nothing
+        repo.insertPayments(List.of(payment("a", 10), payment("b", 5)));
+        assertEquals(15.0, dayRevenue());
+    }
+
+    @Test
+    void retriedSingleInsertRollsUpOnceAndStillReportsTheDuplicate() {
+        db.getCollection("payments").insertOne(PaymentRepository.paymentToDoc(payment("a", 10)));
+
+        assertThrows(MongoWriteException.class, () -> repo.insertPayment(payment("a", 10)));
+        assertThrows(MongoWriteException.class, () -> repo.insertPayment(payment("a", 10)));
+        assertEquals(10.0, dayRevenue());
+    }
+
+    private double dayRevenue() {
+        List<RevenueRow> rows = repo.revenue(PaymentRollups.Period.DAY, DAY, DAY, PaymentRollups.Dimension.NONE);
+        return rows.stream().mapToDouble(RevenueRow::amount).sum();
+    }
+
+    private static Payment payment(String id, double amount) {
+        Payment p = new Payment();
+        p.setPaymentId(id);
+        p.setAmount(amount);
+        p.setCurrency("EUR");
+        p.setMethod("card");
+        p.setStatus("paid");
+        p.setDateIso(DAY + "T10:00:00");
+        return p;
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.repo;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.example.model.CheckInEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Check-ins from many desks at once must not lose visits: the counter is
+ * bumped on the server, never read, incremented and written back. Visits
+ * of members who may not check in leave no trace at all.
+ */
+class ReceptionistRepositoryConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int CHECK_INS = 100;
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoDatabase db;
+    private ReceptionistRepository repo;
+
+    @BeforeEach
+    void start() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        db = client.getDatabase("gym_test");
+        repo = new ReceptionistRepository(db, "members", "attendance", "appointments", "invoices", ZoneOffset.UTC);
+    }
+
+    @AfterEach
+    void stop() {
+        repo.close();
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void concurrentCheckInsLoseNoIncrements() throws Exception {
+        db.getCollection("members").insertOne(new Document("username", "alice").append("attendance", 0));
+
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> desks = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                desks.add(pool.submit(() -> {
+                    go.await();
+                    for (int j = 0; j < CHECK_INS; j++) {
+                        seen.add(repo.incrementAttendance("alice"));
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> f : desks) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int expected = THREADS * CHECK_INS;
+        Document member = db.getCollection("members").find(new Document("username", "alice")).first();
+        assertEquals(expected, member.getInteger("attendance"));
+        // every caller got its own new count back
+        assertEquals(expected, seen.size());
+        repo.close(); // the events are written behind the check-ins
+        assertEquals(expected, db.getCollection("attendance").countDocuments());
+    }
+
+    @Test
+    void frozenAndInactiveMembersAreNotCounted() {
+        db.getCollection("members").insertMany(List.of(
+                new Document("username", "frozen").append("attendance", 3).append("freezed", true),
+                new Document("username", "gone").append("attendance", 5).append("isActive", false)));
+
+        assertNull(repo.incrementAttendance("frozen"));
+        assertNull(repo.incrementAttendance("gone"));
+        assertNull(repo.incrementAttendance("nobody"));
+        repo.close();
+
+        assertEquals(3, db.getCollection("members").find(new Document("username", "frozen")).first().getInteger("attendance"));
+        assertEquals(5, db.getCollection("members").find(new Document("username", "gone")).first().getInteger("attendance"));
+        assertEquals(0, db.getCollection("attendance").countDocuments());
+    }
+
+    @Test
+    void batchRecordsEventsOnlyForCountedMembers() {
+        db.getCollection("members").insertMany(List.of(
+                new Document("username", "alice").append("attendance", 0),
+                new Document("username", "frozen").append("attendance", 3).append("freezed", true)));
+        Instant at = Instant.parse("2024-03-04T10:15:00Z");
+
+        int updated = repo.writeCheckIns(List.of(
+                new CheckInEvent("alice", at),
+                new CheckInEvent("frozen", at),
+                new CheckInEvent("alice", at.plusSeconds(60)),
+                new CheckInEvent("nobody", at)));
+
+        assertEquals(1, updated);
+        assertEquals(2, db.getCollection("members").find(new Document("username", "alice")).first().getInteger("attendance"));
+        assertEquals(3, db.getCollection("members").find(new Document("username", "frozen")).first().getInteger("attendance"));
+        assertEquals(2, db.getCollection("attendance").countDocuments());
+        assertEquals(0, db.getCollection("attendance").countDocuments(new Document("member", new Document("$ne", "alice"))));
+        assertEquals(1, db.getCollection("attendance_member_weekly").countDocuments());
+    }
+}
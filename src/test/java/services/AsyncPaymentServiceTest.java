@@ -0,0 +1,46 @@
+package services;
+
+import com.mongodb.MongoTimeoutException;
+import org.example.model.Payment;
+import org.example.repo.AsyncPaymentRepository;
+import org.example.repo.BulkInsertResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AsyncPaymentServiceTest {
+
+    private final StubRepositories stubs = new StubRepositories();
+
+    @AfterEach
+    void closeStubs() {
+        stubs.close();
+    }
+
+    @Test
+    void invalidPaymentsAndFailedBatchesAreCountedLikeTheBlockingService() {
+        AsyncPaymentRepository repo = stubs.asyncPayments(batch -> {
+            if (batch.get(0).getPaymentId().equals("down"))
+                return CompletableFuture.failedFuture(new MongoTimeoutException("no server"));
+            return CompletableFuture.completedFuture(new BulkInsertResult(batch.size(), 0, 0, List.of()));
+        });
+
+        List<Payment> input = new ArrayList<>();
+        for (String id : new String[]{"a", null, "b", "down", "c"}) {
+            Payment p = new Payment();
+            p.setPaymentId(id);
+            input.add(p);
+        }
+
+        List<BulkInsertResult> results = new AsyncPaymentService(repo).ingestPayments(input, 3).join();
+
+        assertEquals(2, results.size());
+        assertEquals(new BulkInsertResult(2, 0, 1, List.of(1)), results.get(0));
+        assertEquals(new BulkInsertResult(0, 0, 2, List.of(3, 4)), results.get(1));
+    }
+}
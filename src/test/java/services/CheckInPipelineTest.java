@@ -0,0 +1,107 @@
+package services;
+
+import org.example.model.CheckInEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Failed batches are retried, never dropped; what cannot be written by
+ * shutdown is handed back.
+ */
+class CheckInPipelineTest {
+
+    private final StubRepositories stubs = new StubRepositories();
+
+    /** Fails the first {@code failures} writes, then records what it is given. */
+    private static final class FlakyWrites {
+        final AtomicInteger failuresLeft;
+        final List<String> written = new ArrayList<>();
+
+        FlakyWrites(int failures) {
+            this.failuresLeft = new AtomicInteger(failures);
+        }
+
+        synchronized int write(List<CheckInEvent> batch) {
+            if (failuresLeft.getAndDecrement() > 0) throw new IllegalStateException("database down");
+            for (CheckInEvent e : batch) {
+                written.add(e.getUsername());
+            }
+            return batch.size();
+        }
+    }
+
+    @AfterEach
+    void closeStubs() {
+        stubs.close();
+    }
+
+    @Test
+    void failedBatchIsRetriedUntilWritten() throws Exception {
+        FlakyWrites writes = new FlakyWrites(2);
+        CheckInPipeline pipeline = new CheckInPipeline(stubs.checkIns(writes::write), 100, 10, Duration.ofMillis(5));
+
+        CompletableFuture<Void> done = pipeline.submitTracked("alice");
+        pipeline.submit("bob");
+        done.get(5, TimeUnit.SECONDS);
+        pipeline.close();
+
+        assertTrue(writes.written.containsAll(List.of("alice", "bob")));
+        assertEquals(2, pipeline.written());
+        assertEquals(0, pipeline.failed());
+        assertTrue(pipeline.retries() >= 2);
+        assertTrue(pipeline.unwritten().isEmpty());
+    }
+
+    @Test
+    void checkInsAreHandedBackWhenTheDatabaseStaysDownAtShutdown() throws Exception {
+        FlakyWrites writes = new FlakyWrites(Integer.MAX_VALUE);
+        CheckInPipeline pipeline = new CheckInPipeline(stubs.checkIns(writes::write), 100, 10, Duration.ofMillis(5));
+
+        CompletableFuture<Void> done = pipeline.submitTracked("alice");
+        pipeline.submit("bob");
+        pipeline.close();
+
+        assertEquals(List.of("alice", "bob"), pipeline.unwritten().stream().map(CheckInEvent::getUsername).toList());
+        assertEquals(2, pipeline.failed());
+        assertEquals(0, pipeline.written());
+        assertThrows(CompletionException.class, done::join);
+    }
+
+    @Test
+    void closeReturnsWhileProducersAreBlockedOnAFullQueue() throws Exception {
+        FlakyWrites writes = new FlakyWrites(Integer.MAX_VALUE);
+        CheckInPipeline pipeline = new CheckInPipeline(stubs.checkIns(writes::write), 1, 1, Duration.ofMillis(5));
+
+        pipeline.submit("alice"); // taken by the writer, which keeps retrying it
+        while (pipeline.queued() > 0) Thread.sleep(1);
+        pipeline.submit("bob"); // fills the queue
+        Thread blocked = new Thread(() -> {
+            try {
+                pipeline.submit("carol");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        blocked.start();
+        while (blocked.getState() != Thread.State.WAITING) Thread.sleep(1);
+
+        CompletableFuture.runAsync(pipeline::close).get(30, TimeUnit.SECONDS);
+        blocked.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(List.of("alice", "bob", "carol"),
+                pipeline.unwritten().stream().map(CheckInEvent::getUsername).toList());
+        assertEquals(3, pipeline.failed());
+    }
+}
@@ -0,0 +1,50 @@
+package services;
+
+import org.example.model.member;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MemberCacheTest {
+
+    @Test
+    void loadOvertakenByAnInvalidationIsNotCached() throws Exception {
+        MemberCache cache = new MemberCache(10, Duration.ofMinutes(5));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        CompletableFuture<member> lookup = CompletableFuture.supplyAsync(() -> cache.get("alice", name -> {
+            loading.countDown();
+            try {
+                invalidated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new member("pw", name); // read before the renewal below
+        }));
+
+        loading.await();
+        cache.invalidate("alice"); // e.g. a renewal saved meanwhile
+        invalidated.countDown();
+
+        assertNotNull(lookup.get());
+        assertNull(cache.peek("alice"));
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void loadIsCachedWhenNothingInterferes() {
+        MemberCache cache = new MemberCache(10, Duration.ofMinutes(5));
+
+        cache.get("alice", name -> new member("pw", name));
+
+        assertNotNull(cache.peek("alice"));
+        assertEquals(1, cache.size());
+    }
+}
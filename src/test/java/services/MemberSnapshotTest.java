@@ -0,0 +1,155 @@
+package services;
+
+import org.example.model.MemberSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemberSnapshotTest {
+
+    private static final LocalDate END = LocalDate.of(2026, 12, 31);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyWrittenMemberIsFound() throws IOException {
+        List<MemberSummary> members = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            members.add(member("member" + i, i % 3 == 0, i % 7 == 0, i % 5 == 0 ? null : END.plusDays(i)));
+        }
+        members.add(member("zoë", true, false, END)); // multi-byte UTF-8
+        MemberSnapshot snapshot = snapshotOf(members);
+
+        assertEquals(members.size(), snapshot.size());
+        for (MemberSummary m : members) {
+            assertStatus(m, snapshot.lookup(m.username()));
+        }
+    }
+
+    @Test
+    void absentNamesMiss() throws IOException {
+        MemberSnapshot snapshot = snapshotOf(List.of(member("alice", true, false, END), member("bob", true, false, END)));
+
+        assertNull(snapshot.lookup("carol"));
+        assertNull(snapshot.lookup("alic"));
+        assertNull(snapshot.lookup("alicee"));
+        assertNull(snapshot.lookup(""));
+        assertNull(snapshot.lookup(null));
+    }
+
+    @Test
+    void collidingKeysAreToldApartByName() throws IOException {
+        // 300 names that all start probing at the same slot, so they sit in one run
+        int slots = 1024; // what write() picks for 300 members
+        List<MemberSummary> members = new ArrayList<>();
+        List<String> sameSlotAbsent = new ArrayList<>();
+        for (int i = 0; members.size() < 300 || sameSlotAbsent.size() < 10; i++) {
+            String name = "u" + i;
+            if ((MemberSnapshot.hash(name.getBytes(StandardCharsets.UTF_8)) & (slots - 1)) != 7) continue;
+            if (members.size() < 300) members.add(member(name, i % 2 == 0, false, END.plusDays(i % 400)));
+            else sameSlotAbsent.add(name);
+        }
+        // and two names with the very same 32-bit hash
+        String[] sameHash = sameHash();
+        members.add(member(sameHash[0], true, false, END));
+        members.add(member(sameHash[1], false, true, null));
+
+        MemberSnapshot snapshot = snapshotOf(members);
+
+        for (MemberSummary m : members) {
+            assertStatus(m, snapshot.lookup(m.username()));
+        }
+        for (String absent : sameSlotAbsent) {
+            assertNull(snapshot.lookup(absent));
+        }
+    }
+
+    @Test
+    void shortFileIsRejected() throws IOException {
+        Path file = Files.write(dir.resolve("members.snap"), new byte[10]);
+        MemberSnapshot snapshot = new MemberSnapshot(file, null);
+
+        assertThrows(UncheckedIOException.class, snapshot::load);
+        assertFalse(snapshot.isLoaded());
+    }
+
+    @Test
+    void truncatedNamesAreRejectedWhenMapped() throws IOException {
+        Path file = write(List.of(member("alice", true, false, END), member("bob", true, false, END)));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 2);
+        }
+
+        MemberSnapshot snapshot = new MemberSnapshot(file, null);
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, snapshot::load);
+        assertTrue(e.getCause().getMessage().contains("out of bounds"), e.getCause().getMessage());
+        assertFalse(snapshot.isLoaded());
+    }
+
+    @Test
+    void countThatDisagreesWithTheSlotsIsRejected() throws IOException {
+        Path file = write(List.of(member("alice", true, false, END)));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 2), 8);
+        }
+
+        assertThrows(UncheckedIOException.class, new MemberSnapshot(file, null)::load);
+    }
+
+    private MemberSnapshot snapshotOf(List<MemberSummary> members) throws IOException {
+        MemberSnapshot snapshot = new MemberSnapshot(write(members), null);
+        assertTrue(snapshot.load());
+        assertNotNull(snapshot.builtAt());
+        return snapshot;
+    }
+
+    private Path write(List<MemberSummary> members) throws IOException {
+        Path file = dir.resolve("members.snap");
+        assertEquals(members.size(), MemberSnapshot.write(file, members.iterator(), Instant.now()));
+        return file;
+    }
+
+    // the first pair of "h<i>" names whose hashes collide; a few hundred thousand tries by the birthday bound
+    private static String[] sameHash() {
+        Map<Integer, String> seen = new HashMap<>();
+        for (int i = 0; ; i++) {
+            String name = "h" + i;
+            String other = seen.putIfAbsent(MemberSnapshot.hash(name.getBytes(StandardCharsets.UTF_8)), name);
+            if (other != null) return new String[] {other, name};
+        }
+    }
+
+    private static void assertStatus(MemberSummary expected, MemberSnapshot.Status actual) {
+        assertNotNull(actual, expected.username());
+        assertEquals(expected.isActive(), actual.isActive(), expected.username());
+        assertEquals(expected.freezed(), actual.freezed(), expected.username());
+        assertEquals(expected.membershipEnd(), actual.membershipEnd(), expected.username());
+    }
+
+    private static MemberSummary member(String username, boolean active, boolean freezed, LocalDate end) {
+        return new MemberSummary(username, null, "monthly", end, active, freezed);
+    }
+}
@@ -0,0 +1,49 @@
+package services;
+
+import org.example.model.Payment;
+import org.example.repo.BulkInsertResult;
+import org.example.repo.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentServiceTest {
+
+    private final StubRepositories stubs = new StubRepositories();
+
+    @AfterEach
+    void closeStubs() {
+        stubs.close();
+    }
+
+    @Test
+    void rejectedPositionsReferToTheCallersInput() {
+        // rejects every batch entry whose paymentId starts with "dup"
+        PaymentRepository repo = stubs.payments(batch -> {
+            List<Integer> rejected = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i).getPaymentId().startsWith("dup")) rejected.add(i);
+            }
+            return new BulkInsertResult(batch.size() - rejected.size(), rejected.size(), 0, rejected);
+        });
+
+        List<Payment> input = new ArrayList<>();
+        for (String id : new String[]{"a", null, "dup1", "b", "c", "dup2", null}) {
+            Payment p = new Payment();
+            p.setPaymentId(id);
+            input.add(p);
+        }
+
+        List<BulkInsertResult> results = new PaymentService(repo).ingestPayments(input, 3);
+
+        assertEquals(3, results.size());
+        assertEquals(List.of(1, 2), results.get(0).rejected());
+        assertEquals(List.of(5), results.get(1).rejected());
+        assertEquals(List.of(6), results.get(2).rejected());
+        assertEquals(2, results.get(0).failed() + results.get(0).duplicates());
+    }
+}
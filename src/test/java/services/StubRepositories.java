@@ -0,0 +1,73 @@
+package services;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.example.model.CheckInEvent;
+import org.example.model.Payment;
+import org.example.repo.AsyncPaymentRepository;
+import org.example.repo.BulkInsertResult;
+import org.example.repo.PaymentRepository;
+import org.example.repo.ReceptionistRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Repositories whose one method a service test exercises is replaced by a
+ * function, for testing services without a database. They are built over
+ * clients that never connect, so anything else they are asked to do fails.
+ * Close after each test.
+ */
+final class StubRepositories implements AutoCloseable {
+
+    private static final String NOWHERE = "mongodb://localhost:1";
+
+    private MongoClient client;
+    private com.mongodb.reactivestreams.client.MongoClient reactiveClient;
+
+    PaymentRepository payments(Function<List<Payment>, BulkInsertResult> insertPayments) {
+        return new PaymentRepository(client().getDatabase("unused").getCollection("payments")) {
+            @Override
+            public BulkInsertResult insertPayments(List<Payment> batch) {
+                return insertPayments.apply(batch);
+            }
+        };
+    }
+
+    AsyncPaymentRepository asyncPayments(Function<List<Payment>, CompletableFuture<BulkInsertResult>> insertPayments) {
+        return new AsyncPaymentRepository(reactiveClient().getDatabase("unused").getCollection("payments")) {
+            @Override
+            public CompletableFuture<BulkInsertResult> insertPayments(List<Payment> batch) {
+                return insertPayments.apply(batch);
+            }
+        };
+    }
+
+    ReceptionistRepository checkIns(ToIntFunction<List<CheckInEvent>> writeCheckIns) {
+        return new ReceptionistRepository(client().getDatabase("unused"), "members", "attendance", "appointments",
+                "invoices") {
+            @Override
+            public int writeCheckIns(List<CheckInEvent> batch) {
+                return writeCheckIns.applyAsInt(batch);
+            }
+        };
+    }
+
+    private synchronized MongoClient client() {
+        if (client == null) client = MongoClients.create(NOWHERE);
+        return client;
+    }
+
+    private synchronized com.mongodb.reactivestreams.client.MongoClient reactiveClient() {
+        if (reactiveClient == null) reactiveClient = com.mongodb.reactivestreams.client.MongoClients.create(NOWHERE);
+        return reactiveClient;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (client != null) client.close();
+        if (reactiveClient != null) reactiveClient.close();
+    }
+}
@@ -0,0 +1,130 @@
+package services;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.example.model.WorkoutPlan;
+import org.example.repo.SearchHit;
+import org.example.repo.TrainerRepository;
+import org.example.repo.TrainerRepository.PlanKind;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TrainerServiceTest {
+
+    // change streams need a replica set, e.g. a single-node one started with --replSet rs0 and rs.initiate()
+    private static final String REPLICA_SET = System.getProperty("test.replicaSet", "");
+
+    @Test
+    void catalogReadsHandOutCopies() {
+        MongoServer server = new MongoServer(new MemoryBackend());
+        InetSocketAddress addr = server.bind();
+        try (MongoClient client = MongoClients.create("mongodb://" + addr.getHostString() + ":" + addr.getPort())) {
+            TrainerService service = new TrainerService(repository(client.getDatabase("gym")));
+            service.createWorkout(workout("w1", "Leg day"));
+
+            WorkoutPlan read = service.getAllWorkoutPlans().get(0);
+            read.setPlanName("Changed by a caller");
+
+            assertEquals("Leg day", service.getAllWorkoutPlans().get(0).getPlanName());
+            assertEquals(1, service.catalogLoads());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void writesUpdateTheSearchIndexWithoutReloadingIt() {
+        MongoServer server = new MongoServer(new MemoryBackend());
+        InetSocketAddress addr = server.bind();
+        try (MongoClient client = MongoClients.create("mongodb://" + addr.getHostString() + ":" + addr.getPort())) {
+            AtomicInteger scans = new AtomicInteger();
+            TrainerRepository repo = new TrainerRepository(client.getDatabase("gym"),
+                    "trainers", "workouts", "diets", "sessions", "progress") {
+                @Override
+                public Stream<WorkoutPlan> streamAllWorkouts() {
+                    scans.incrementAndGet();
+                    return super.streamAllWorkouts();
+                }
+            };
+            TrainerService service = new TrainerService(repo);
+            service.createWorkout(workout("w1", "Leg day"));
+            assertEquals(1, service.searchWorkouts("legs", 5).size());
+
+            service.createWorkout(workout("w2", "Deadlift day"));
+            List<SearchHit<WorkoutPlan>> hits = service.searchWorkouts("deadlift", 5);
+            assertEquals("w2", hits.get(0).item().getPlanId());
+
+            service.updateWorkout(workout("w1", "Rowing intervals"));
+            assertEquals("w1", service.searchWorkouts("rowing", 5).get(0).item().getPlanId());
+
+            assertEquals(1, scans.get());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void followPlanChangesReportsWritesOfAnotherNode() throws InterruptedException {
+        assumeTrue(!REPLICA_SET.isEmpty(), "set -Dtest.replicaSet=<uri> to run against a replica set");
+
+        try (MongoClient client = MongoClients.create(REPLICA_SET)) {
+            MongoDatabase db = client.getDatabase("gym_test_" + UUID.randomUUID().toString().replace("-", ""));
+            try {
+                TrainerRepository watching = repository(db);
+                TrainerRepository other = repository(db);
+
+                BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+                Thread follower = new Thread(() -> {
+                    try {
+                        watching.followPlanChanges(events::add);
+                    } catch (RuntimeException e) {
+                        events.add(e);
+                    }
+                });
+                follower.start();
+                try {
+                    // both kinds are reported once the stream is open
+                    assertEquals(PlanKind.WORKOUTS, events.poll(10, TimeUnit.SECONDS));
+                    assertEquals(PlanKind.DIETS, events.poll(10, TimeUnit.SECONDS));
+
+                    other.saveWorkout(workout("w1", "Leg day"));
+                    assertEquals(PlanKind.WORKOUTS, events.poll(10, TimeUnit.SECONDS));
+                } finally {
+                    follower.interrupt();
+                    follower.join(TimeUnit.SECONDS.toMillis(5));
+                }
+                assertFalse(follower.isAlive(), "follower stops when interrupted");
+            } finally {
+                db.drop();
+            }
+        }
+    }
+
+    private static TrainerRepository repository(MongoDatabase db) {
+        return new TrainerRepository(db, "trainers", "workouts", "diets", "sessions", "progress");
+    }
+
+    private static WorkoutPlan workout(String id, String name) {
+        WorkoutPlan w = new WorkoutPlan();
+        w.setPlanId(id);
+        w.setTrainerId("t1");
+        w.setPlanName(name);
+        w.setPlanDetails("squats and lunges");
+        return w;
+    }
+}